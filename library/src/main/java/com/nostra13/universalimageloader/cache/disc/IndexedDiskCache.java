@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.disc;
+
+/**
+ * Disk cache which keeps in-memory index of cached images. So presence of image in cache can be checked quickly
+ * without access to file system (e.g. on application main thread).
+ *
+ * @see DiskCache
+ * @since 1.9.5
+ */
+public interface IndexedDiskCache extends DiskCache {
+
+	/**
+	 * Checks presence of image in disk cache using in-memory index. This method doesn't access file system.<br />
+	 * <b>NOTE:</b> Index can rarely give false positive result (e.g. if cached file was deleted outside of the cache).
+	 * So {@link #get(String)} still can return <b>null</b> or non-existing file for URI which is contained in index.
+	 *
+	 * @param imageUri Original image URI
+	 * Until index is {@linkplain #isIndexLoaded() loaded} this method returns <b>true</b> for any URI.
+	 *
+	 * @return <b>true</b> - if image is cached (probably); <b>false</b> - if image isn't cached
+	 */
+	boolean contains(String imageUri);
+
+	/**
+	 * @return <b>true</b> - if in-memory index is built and {@link #contains(String)} reflects cache content;
+	 * <b>false</b> - if index is still loading in background
+	 */
+	boolean isIndexLoaded();
+}
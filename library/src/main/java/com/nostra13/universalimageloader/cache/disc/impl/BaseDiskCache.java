@@ -16,7 +16,7 @@
 package com.nostra13.universalimageloader.cache.disc.impl;
 
 import android.graphics.Bitmap;
-import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.core.DefaultConfigurationFactory;
 import com.nostra13.universalimageloader.utils.IoUtils;
@@ -29,13 +29,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 /**
- * Base disk cache.
+ * Base disk cache. Keeps in-memory {@linkplain IndexedDiskCache index} of cached files. Index is filled from cache
+ * directories in background thread right after the cache is created.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see FileNameGenerator
  * @since 1.0.0
  */
-public abstract class BaseDiskCache implements DiskCache {
+public abstract class BaseDiskCache implements IndexedDiskCache {
 	/** {@value */
 	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024; // 32 Kb
 	/** {@value */
@@ -56,6 +57,8 @@ public abstract class BaseDiskCache implements DiskCache {
 	protected Bitmap.CompressFormat compressFormat = DEFAULT_COMPRESS_FORMAT;
 	protected int compressQuality = DEFAULT_COMPRESS_QUALITY;
 
+	private final DiskCacheIndex index = new DiskCacheIndex();
+
 	/** @param cacheDir Directory for file caching */
 	public BaseDiskCache(File cacheDir) {
 		this(cacheDir, null);
@@ -86,6 +89,8 @@ public abstract class BaseDiskCache implements DiskCache {
 		this.cacheDir = cacheDir;
 		this.reserveCacheDir = reserveCacheDir;
 		this.fileNameGenerator = fileNameGenerator;
+		//索引在后台线程中从缓存目录加载，不阻塞调用者（一般是UI线程）
+		index.loadInBackground(cacheDir, reserveCacheDir, TEMP_IMAGE_POSTFIX);
 	}
 
 	@Override
@@ -98,6 +103,17 @@ public abstract class BaseDiskCache implements DiskCache {
 		return getFile(imageUri);
 	}
 
+	@Override
+	public boolean contains(String imageUri) {
+		//索引还没加载完成的时候无法确定，认为可能被缓存了
+		return !index.isLoaded() || index.contains(fileNameGenerator.generate(imageUri));
+	}
+
+	@Override
+	public boolean isIndexLoaded() {
+		return index.isLoaded();
+	}
+
 	@Override
 	public boolean save(String imageUri, InputStream imageStream, IoUtils.CopyListener listener) throws IOException {
 		File imageFile = getFile(imageUri);
@@ -118,6 +134,9 @@ public abstract class BaseDiskCache implements DiskCache {
 				tmpFile.delete();
 			}
 		}
+		if (loaded) {
+			index.add(imageFile.getName());
+		}
 		return loaded;
 	}
 
@@ -138,12 +157,16 @@ public abstract class BaseDiskCache implements DiskCache {
 				tmpFile.delete();
 			}
 		}
+		if (savedSuccessfully) {
+			index.add(imageFile.getName());
+		}
 		bitmap.recycle();
 		return savedSuccessfully;
 	}
 
 	@Override
 	public boolean remove(String imageUri) {
+		removeFromIndex(imageUri);
 		return getFile(imageUri).delete();
 	}
 
@@ -160,6 +183,12 @@ public abstract class BaseDiskCache implements DiskCache {
 				f.delete();
 			}
 		}
+		index.clear();
+	}
+
+	/** Removes image from in-memory index. Should be called when cached file is deleted bypassing this class. */
+	protected void removeFromIndex(String imageUri) {
+		index.remove(fileNameGenerator.generate(imageUri));
 	}
 
 	/** Returns file object (not null) for incoming image URI. File object can reference to non-existing file. */
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.disc.impl;
+
+import java.io.File;
+
+/**
+ * Compact in-memory index of cached file names. Keeps only 64-bit hashes of names in open-addressing hash table so
+ * presence check doesn't allocate objects. Index is filled from cache directories by
+ * {@linkplain #load(File, File, String) load} which is usually run in background thread
+ * ({@link #loadInBackground(File, File, String)}). Until it's {@linkplain #isLoaded() loaded} index doesn't know all
+ * cached files.
+ *
+ * @see BaseDiskCache
+ * @since 1.9.5
+ */
+final class DiskCacheIndex {
+
+	private static final int INITIAL_CAPACITY = 64; // must be power of 2
+	private static final long EMPTY = 0;
+	private static final String LOADER_THREAD_NAME = "uil-disk-index";
+
+	private long[] table = new long[INITIAL_CAPACITY];
+	private int size;
+	private int clearCount;
+	private volatile boolean loaded;
+
+	/** Starts {@linkplain #load(File, File, String) loading} of index in new background thread */
+	void loadInBackground(final File cacheDir, final File reserveCacheDir, final String tempFilePostfix) {
+		Thread loader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				load(cacheDir, reserveCacheDir, tempFilePostfix);
+			}
+		}, LOADER_THREAD_NAME);
+		loader.setDaemon(true);
+		loader.setPriority(Thread.MIN_PRIORITY);
+		loader.start();
+	}
+
+	/**
+	 * Fills index with names of files from incoming directories if index wasn't loaded before. Directories are listed
+	 * without holding the index's lock so concurrent checks and updates aren't blocked by file system.
+	 */
+	void load(File cacheDir, File reserveCacheDir, String tempFilePostfix) {
+		int clearCountBefore;
+		synchronized (this) {
+			if (loaded) return;
+			clearCountBefore = clearCount;
+		}
+		String[] fileNames = cacheDir.list();
+		String[] reserveFileNames = reserveCacheDir == null ? null : reserveCacheDir.list();
+		synchronized (this) {
+			if (loaded) return;
+			//加载过程中缓存被清空的话，列出的文件已经被删除了
+			if (clearCount == clearCountBefore) {
+				addFiles(fileNames, tempFilePostfix);
+				addFiles(reserveFileNames, tempFilePostfix);
+			}
+			loaded = true;
+		}
+	}
+
+	/** @return <b>true</b> - if index was filled with files from cache directories; <b>false</b> - otherwise */
+	boolean isLoaded() {
+		return loaded;
+	}
+
+	synchronized boolean contains(String fileName) {
+		return table[indexOf(hash(fileName))] != EMPTY;
+	}
+
+	synchronized void add(String fileName) {
+		long hash = hash(fileName);
+		int index = indexOf(hash);
+		if (table[index] == EMPTY) {
+			table[index] = hash;
+			if (++size * 2 > table.length) {
+				resize(table.length * 2);
+			}
+		}
+	}
+
+	synchronized void remove(String fileName) {
+		int index = indexOf(hash(fileName));
+		if (table[index] == EMPTY) return;
+
+		// Backward shift deletion keeps probe sequences unbroken without tombstones
+		int mask = table.length - 1;
+		int hole = index;
+		int next = (hole + 1) & mask;
+		while (table[next] != EMPTY) {
+			int home = homeIndex(table[next], mask);
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				table[hole] = table[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		table[hole] = EMPTY;
+		size--;
+	}
+
+	synchronized void clear() {
+		table = new long[INITIAL_CAPACITY];
+		size = 0;
+		clearCount++;
+	}
+
+	/** Returns count of indexed file names */
+	synchronized int size() {
+		return size;
+	}
+
+	private void addFiles(String[] fileNames, String tempFilePostfix) {
+		if (fileNames == null) return;
+		for (String fileName : fileNames) {
+			if (!fileName.endsWith(tempFilePostfix)) {
+				add(fileName);
+			}
+		}
+	}
+
+	/** Returns index of slot which contains incoming hash or index of empty slot where it should be placed */
+	private int indexOf(long hash) {
+		int mask = table.length - 1;
+		int index = homeIndex(hash, mask);
+		while (table[index] != EMPTY && table[index] != hash) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void resize(int capacity) {
+		long[] oldTable = table;
+		table = new long[capacity];
+		int mask = capacity - 1;
+		for (long hash : oldTable) {
+			if (hash != EMPTY) {
+				int index = homeIndex(hash, mask);
+				while (table[index] != EMPTY) {
+					index = (index + 1) & mask;
+				}
+				table[index] = hash;
+			}
+		}
+	}
+
+	private static int homeIndex(long hash, int mask) {
+		return ((int) (hash ^ (hash >>> 32)) * 0x9E3779B9) >>> 7 & mask;
+	}
+
+	/** 64-bit FNV-1a hash of string. Never returns {@link #EMPTY}. */
+	private static long hash(String s) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0, length = s.length(); i < length; i++) {
+			hash ^= s.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash == EMPTY ? 1 : hash;
+	}
+}
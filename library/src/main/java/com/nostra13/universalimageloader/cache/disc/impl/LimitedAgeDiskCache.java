@@ -85,6 +85,7 @@ public class LimitedAgeDiskCache extends BaseDiskCache {
 			if (System.currentTimeMillis() - loadingDate > maxFileAge) {
 				file.delete();
 				loadingDates.remove(file);
+				removeFromIndex(imageUri);
 			} else if (!cached) {
 				loadingDates.put(file, loadingDate);
 			}
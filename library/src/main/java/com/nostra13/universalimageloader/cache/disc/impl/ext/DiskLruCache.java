@@ -34,6 +34,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -150,6 +151,11 @@ final class DiskLruCache implements Closeable {
 	private Writer journalWriter;
 	private final LinkedHashMap<String, Entry> lruEntries =
 			new LinkedHashMap<String, Entry>(0, 0.75f, true);
+	/**
+	 * Keys of readable entries. It's updated under the cache's lock together with {@link #lruEntries} but it's read
+	 * without lock so {@link #contains(String)} never waits for file system operations.
+	 */
+	private final ConcurrentHashMap<String, Boolean> readableKeys = new ConcurrentHashMap<String, Boolean>();
 	private int redundantOpCount;
 
 	/**
@@ -296,6 +302,7 @@ final class DiskLruCache implements Closeable {
 			key = line.substring(keyBegin);
 			if (firstSpace == REMOVE.length() && line.startsWith(REMOVE)) {
 				lruEntries.remove(key);
+				readableKeys.remove(key);
 				return;
 			}
 		} else {
@@ -311,6 +318,7 @@ final class DiskLruCache implements Closeable {
 		if (secondSpace != -1 && firstSpace == CLEAN.length() && line.startsWith(CLEAN)) {
 			String[] parts = line.substring(secondSpace + 1).split(" ");
 			entry.readable = true;
+			readableKeys.put(key, Boolean.TRUE);
 			entry.currentEditor = null;
 			entry.setLengths(parts);
 		} else if (secondSpace == -1 && firstSpace == DIRTY.length() && line.startsWith(DIRTY)) {
@@ -342,6 +350,7 @@ final class DiskLruCache implements Closeable {
 					deleteIfExists(entry.getDirtyFile(t));
 				}
 				i.remove();
+				readableKeys.remove(entry.key);
 			}
 		}
 	}
@@ -404,6 +413,15 @@ final class DiskLruCache implements Closeable {
 		}
 	}
 
+	/**
+	 * Returns true if the entry named {@code key} exists and is readable. Unlike
+	 * {@link #get(String)} this method doesn't touch the file system and doesn't
+	 * take the cache's lock, so it never waits for other operations.
+	 */
+	public boolean contains(String key) {
+		return readableKeys.containsKey(key);
+	}
+
 	/**
 	 * Returns a snapshot of the entry named {@code key}, or null if it doesn't
 	 * exist is not currently readable. If a value is returned, it is moved to
@@ -572,12 +590,14 @@ final class DiskLruCache implements Closeable {
 		entry.currentEditor = null;
 		if (entry.readable | success) {
 			entry.readable = true;
+			readableKeys.put(entry.key, Boolean.TRUE);
 			journalWriter.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
 			if (success) {
 				entry.sequenceNumber = nextSequenceNumber++;
 			}
 		} else {
 			lruEntries.remove(entry.key);
+			readableKeys.remove(entry.key);
 			journalWriter.write(REMOVE + ' ' + entry.key + '\n');
 		}
 		journalWriter.flush();
@@ -611,6 +631,7 @@ final class DiskLruCache implements Closeable {
 			return false;
 		}
 
+		readableKeys.remove(key);
 		for (int i = 0; i < valueCount; i++) {
 			File file = entry.getCleanFile(i);
 			if (file.exists() && !file.delete()) {
@@ -665,6 +686,7 @@ final class DiskLruCache implements Closeable {
 		trimToFileCount();
 		journalWriter.close();
 		journalWriter = null;
+		readableKeys.clear();
 	}
 
 	private void trimToSize() throws IOException {
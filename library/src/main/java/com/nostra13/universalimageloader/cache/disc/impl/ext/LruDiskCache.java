@@ -16,7 +16,7 @@
 package com.nostra13.universalimageloader.cache.disc.impl.ext;
 
 import android.graphics.Bitmap;
-import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.utils.IoUtils;
 import com.nostra13.universalimageloader.utils.L;
@@ -30,13 +30,14 @@ import java.io.OutputStream;
 /**
  * Disk cache based on "Least-Recently Used" principle. Adapter pattern, adapts
  * {@link com.nostra13.universalimageloader.cache.disc.impl.ext.DiskLruCache DiskLruCache} to
- * {@link com.nostra13.universalimageloader.cache.disc.DiskCache DiskCache}
+ * {@link com.nostra13.universalimageloader.cache.disc.DiskCache DiskCache}. In-memory journal of DiskLruCache is used
+ * as {@linkplain IndexedDiskCache index} of cached images.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see FileNameGenerator
  * @since 1.9.2
  */
-public class LruDiskCache implements DiskCache {
+public class LruDiskCache implements IndexedDiskCache {
 	/** {@value */
 	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024; // 32 Kb
 	/** {@value */
@@ -142,6 +143,16 @@ public class LruDiskCache implements DiskCache {
 		}
 	}
 
+	@Override
+	public boolean contains(String imageUri) {
+		return cache.contains(getKey(imageUri));
+	}
+
+	@Override
+	public boolean isIndexLoaded() {
+		return true; // journal is read when the cache is opened
+	}
+
 	@Override
 	public boolean save(String imageUri, InputStream imageStream, IoUtils.CopyListener listener) throws IOException {
 		DiskLruCache.Editor editor = cache.edit(getKey(imageUri));
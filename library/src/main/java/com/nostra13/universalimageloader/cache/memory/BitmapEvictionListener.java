@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.graphics.Bitmap;
+
+/**
+ * Listener of bitmaps which are removed from memory cache (evicted because of size limit, removed explicitly or
+ * replaced by other bitmap for the same key)
+ *
+ * @see ObservableMemoryCache#setEvictionListener(BitmapEvictionListener)
+ * @since 1.9.5
+ */
+public interface BitmapEvictionListener {
+	/**
+	 * Is called when bitmap was removed from memory cache. Is called outside of cache's lock.
+	 *
+	 * @param key    Key of removed bitmap
+	 * @param bitmap Removed bitmap
+	 */
+	void onBitmapEvicted(String key, Bitmap bitmap);
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.graphics.Bitmap;
+
+/**
+ * Pool of {@link Bitmap bitmaps} which aren't used anymore and can be reused as targets of decoding (see
+ * {@link android.graphics.BitmapFactory.Options#inBitmap}) and drawing. Reusing of bitmaps reduces allocations of large
+ * objects and GC pauses (e.g. during scrolling of image grid).<br />
+ * Bitmap put into pool is owned by pool, it mustn't be displayed or used anywhere else after that.<br />
+ * Bitmaps can be reused on API 11+ only, pool doesn't accept bitmaps on older versions.
+ *
+ * @see com.nostra13.universalimageloader.cache.memory.impl.SizeClassBitmapPool
+ * @since 1.9.5
+ */
+public interface BitmapPool {
+	/**
+	 * Puts bitmap into pool
+	 *
+	 * @return <b>true</b> - if bitmap was put into pool (pool owns it now); <b>false</b> - if bitmap can't be reused
+	 * (e.g. it's immutable or recycled), caller still owns it then
+	 */
+	boolean put(Bitmap bitmap);
+
+	/**
+	 * Returns mutable bitmap of exact incoming size and config which isn't used by anyone. Content of bitmap is
+	 * undefined.
+	 *
+	 * @return Bitmap from pool or <b>null</b> if pool has no suitable bitmap
+	 */
+	Bitmap get(int width, int height, Bitmap.Config config);
+
+	/** Removes all bitmaps from pool */
+	void clear();
+
+	/** Returns count of {@link #get(int, int, Bitmap.Config)} calls which returned bitmap */
+	int getHitCount();
+
+	/** Returns count of {@link #get(int, int, Bitmap.Config)} calls which didn't find suitable bitmap */
+	int getMissCount();
+}
@@ -19,9 +19,8 @@ import android.graphics.Bitmap;
 
 import com.nostra13.universalimageloader.utils.L;
 
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -45,11 +44,12 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	private final AtomicInteger cacheSize;
 
 	/**
-	 * Contains strong references to stored objects. Each next object is added last. If hard cache size will exceed
-	 * limit then first object is deleted (but it continue exist at {@link #softMap} and can be collected by GC at any
-	 * time)
+	 * Contains strong references to stored objects and number of times each object was added. If hard cache size will
+	 * exceed limit then object chosen by {@link #removeNext()} is deleted (but it continue exist at {@link #softMap}
+	 * and can be collected by GC at any time)
 	 */
-	private final List<Bitmap> hardCache = Collections.synchronizedList(new LinkedList<Bitmap>());
+	//只需要按值添加和删除，不需要顺序，所以用计数的Map代替List，删除的时候不需要遍历
+	private final Map<Bitmap, Integer> hardCache = new HashMap<Bitmap, Integer>();
 
 	/** @param sizeLimit Maximum size for cache (in bytes) */
 	public LimitedMemoryCache(int sizeLimit) {
@@ -70,11 +70,11 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 		if (valueSize < sizeLimit) {
 			while (curCacheSize + valueSize > sizeLimit) {
 				Bitmap removedValue = removeNext();
-				if (hardCache.remove(removedValue)) {
+				if (removeHardReference(removedValue)) {
 					curCacheSize = cacheSize.addAndGet(-getSize(removedValue));
 				}
 			}
-			hardCache.add(value);
+			addHardReference(value);
 			cacheSize.addAndGet(valueSize);
 
 			putSuccessfully = true;
@@ -88,7 +88,7 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	public Bitmap remove(String key) {
 		Bitmap value = super.get(key);
 		if (value != null) {
-			if (hardCache.remove(value)) {
+			if (removeHardReference(value)) {
 				cacheSize.addAndGet(-getSize(value));
 			}
 		}
@@ -97,11 +97,35 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 
 	@Override
 	public void clear() {
-		hardCache.clear();
+		synchronized (hardCache) {
+			hardCache.clear();
+		}
 		cacheSize.set(0);
 		super.clear();
 	}
 
+	private void addHardReference(Bitmap value) {
+		synchronized (hardCache) {
+			Integer count = hardCache.get(value);
+			hardCache.put(value, count == null ? 1 : count + 1);
+		}
+	}
+
+	/** Removes one strong reference to value, returns <b>false</b> if there is no strong reference to it */
+	private boolean removeHardReference(Bitmap value) {
+		if (value == null) return false;
+		synchronized (hardCache) {
+			Integer count = hardCache.get(value);
+			if (count == null) return false;
+			if (count == 1) {
+				hardCache.remove(value);
+			} else {
+				hardCache.put(value, count - 1);
+			}
+			return true;
+		}
+	}
+
 	protected int getSizeLimit() {
 		return sizeLimit;
 	}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import java.util.List;
+
+/**
+ * Memory cache which indexes its keys by image URI, so keys of all cached sizes of image can be found without looking
+ * through all keys of cache. Keys are expected to be generated by
+ * {@link com.nostra13.universalimageloader.utils.MemoryCacheUtils#generateKey(String,
+ * com.nostra13.universalimageloader.core.assist.ImageSize) MemoryCacheUtils.generateKey(...)}.
+ *
+ * @see com.nostra13.universalimageloader.utils.MemoryCacheUtils#findCacheKeysForImageUri(String, MemoryCache)
+ * @since 1.9.5
+ */
+public interface UriIndexedMemoryCache extends MemoryCache {
+	/**
+	 * Returns keys of all cached bitmaps of image URI (different sizes of the same image). Returned list is a copy and
+	 * isn't changed by cache.
+	 */
+	List<String> keysForImageUri(String imageUri);
+}
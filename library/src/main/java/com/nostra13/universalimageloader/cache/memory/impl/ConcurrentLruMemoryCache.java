@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapEvictionListener;
+import com.nostra13.universalimageloader.cache.memory.ObservableMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.UriIndexedMemoryCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent version of {@link LruMemoryCache}: holds strong references to Bitmaps up to limited sum of their sizes
+ * and evicts least recently used Bitmaps when limit is exceeded.<br />
+ * <br />
+ * {@link #get(String)} doesn't take any lock: Bitmaps are looked up in {@link ConcurrentHashMap} and accesses are
+ * recorded into striped buffers. Buffers are applied to LRU order in batches by thread which gets the eviction lock
+ * (writer or reader which filled its buffer). Buffers are lossy - if they are overflown under heavy load then some
+ * accesses are dropped, so LRU order is approximated for frequently accessed Bitmaps. Writes and eviction are
+ * serialized with the eviction lock, all Bitmaps which exceed limit are evicted in one pass.<br />
+ * <br />
+ * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
+ *
+ * @see LruMemoryCache
+ * @since 1.9.5
+ */
+public class ConcurrentLruMemoryCache implements ObservableMemoryCache, UriIndexedMemoryCache {
+
+	/** Number of recorded accesses which are kept in one read buffer */
+	private static final int READ_BUFFER_SIZE = 16;
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+	/** Max number of read buffers (and lock stripes of map) */
+	private static final int MAX_STRIPES = 16;
+
+	private final ConcurrentHashMap<String, Node> map;
+	private final ReadBuffer[] readBuffers;
+	private final int readBufferMask;
+
+	//以下都只在evictionLock中访问
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	/** Head of LRU list - least recently used Bitmap, which is evicted first */
+	private final Node head;
+	//按照图片链接索引的key，用于快速找到同一个图片的所有尺寸
+	private final ImageUriIndex uriIndex = new ImageUriIndex();
+	private final int maxSize;
+	/** Size of this cache in bytes */
+	private int size;
+
+	private volatile BitmapEvictionListener evictionListener;
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
+	public ConcurrentLruMemoryCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		this.maxSize = maxSize;
+
+		int stripes = 1;
+		int processors = Runtime.getRuntime().availableProcessors();
+		while (stripes < processors && stripes < MAX_STRIPES) {
+			stripes <<= 1;
+		}
+		this.map = new ConcurrentHashMap<String, Node>(16, 0.75f, stripes);
+		this.readBuffers = new ReadBuffer[stripes];
+		for (int i = 0; i < stripes; i++) {
+			readBuffers[i] = new ReadBuffer();
+		}
+		this.readBufferMask = stripes - 1;
+
+		head = new Node(null, null, 0);
+		head.prev = head;
+		head.next = head;
+	}
+
+	/**
+	 * Returns the Bitmap for {@code key} if it exists in the cache. If a Bitmap was returned, its access is recorded
+	 * and later it will be moved to the tail of LRU queue. This returns null if a Bitmap is not cached.
+	 */
+	@Override
+	public final Bitmap get(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		Node node = map.get(key);
+		if (node == null) {
+			return null;
+		}
+		recordAccess(node);
+		return node.value;
+	}
+
+	/** Caches {@code Bitmap} for {@code key}. The Bitmap is moved to the tail of LRU queue. */
+	@Override
+	public final boolean put(String key, Bitmap value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+
+		Node node = new Node(key, value, sizeOf(key, value));
+		Node previous;
+		List<Node> evicted;
+		evictionLock.lock();
+		try {
+			drainReadBuffers();
+			previous = map.put(key, node);
+			if (previous != null) {
+				unlink(previous);
+			} else {
+				uriIndex.add(key);
+			}
+			link(node);
+			evicted = evictToSize(maxSize);
+		} finally {
+			evictionLock.unlock();
+		}
+		if (previous != null && previous.value != value) {
+			notifyEvicted(previous);
+		}
+		notifyEvicted(evicted);
+		return true;
+	}
+
+	/** Removes the entry for {@code key} if it exists. */
+	@Override
+	public final Bitmap remove(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		Node previous;
+		evictionLock.lock();
+		try {
+			previous = map.remove(key);
+			if (previous != null) {
+				unlink(previous);
+				uriIndex.remove(key);
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+		if (previous == null) {
+			return null;
+		}
+		notifyEvicted(previous);
+		return previous.value;
+	}
+
+	/** Returns keys of all cached sizes of image URI without looking through all keys of cache */
+	@Override
+	public List<String> keysForImageUri(String imageUri) {
+		evictionLock.lock();
+		try {
+			return uriIndex.get(imageUri);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public Collection<String> keys() {
+		return new HashSet<String>(map.keySet());
+	}
+
+	@Override
+	public void clear() {
+		List<Node> evicted;
+		evictionLock.lock();
+		try {
+			drainReadBuffers();
+			evicted = evictToSize(-1); // -1 will evict 0-sized elements
+		} finally {
+			evictionLock.unlock();
+		}
+		notifyEvicted(evicted);
+	}
+
+	@Override
+	public void setEvictionListener(BitmapEvictionListener evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+	/** Returns sum of the sizes of the Bitmaps in this cache (in bytes) */
+	public int size() {
+		evictionLock.lock();
+		try {
+			return size;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the size {@code Bitmap} in bytes.
+	 * <p/>
+	 * An entry's size must not change while it is in the cache.
+	 */
+	protected int sizeOf(String key, Bitmap value) {
+		return value.getRowBytes() * value.getHeight();
+	}
+
+	private void recordAccess(Node node) {
+		//按线程分散到不同的缓冲区中，减少线程之间的竞争
+		ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & readBufferMask];
+		long index = buffer.writeCount.getAndIncrement();
+		buffer.nodes.lazySet((int) (index & READ_BUFFER_MASK), node);
+		//缓冲区写满一轮的时候尝试批量处理，拿不到锁说明其他线程正在处理，不需要等待
+		if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK && evictionLock.tryLock()) {
+			try {
+				drainReadBuffers();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	/** Applies recorded accesses to LRU order. Must be called under eviction lock. */
+	private void drainReadBuffers() {
+		for (ReadBuffer buffer : readBuffers) {
+			for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+				Node node = buffer.nodes.getAndSet(i, null);
+				//已经被移除的节点不再处理
+				if (node != null && node.prev != null) {
+					unlink(node);
+					link(node);
+				}
+			}
+		}
+	}
+
+	/** Evicts least recently used entries until size is at or below requested one. Must be called under eviction lock. */
+	private List<Node> evictToSize(int maxSize) {
+		List<Node> evicted = null;
+		while (true) {
+			Node eldest = head.next;
+			if (size < 0 || (eldest == head && size != 0)) {
+				throw new IllegalStateException(getClass().getName() + ".sizeOf() is reporting inconsistent results!");
+			}
+			if (size <= maxSize || eldest == head) {
+				break;
+			}
+			//key对应的可能已经是其他节点，只移除当前节点
+			map.remove(eldest.key);
+			uriIndex.remove(eldest.key);
+			unlink(eldest);
+			if (evicted == null) {
+				evicted = new ArrayList<Node>();
+			}
+			evicted.add(eldest);
+		}
+		return evicted;
+	}
+
+	/** Adds node to the tail of LRU queue. Must be called under eviction lock. */
+	private void link(Node node) {
+		Node tail = head.prev;
+		node.prev = tail;
+		node.next = head;
+		tail.next = node;
+		head.prev = node;
+		size += node.size;
+	}
+
+	/** Removes node from LRU queue. Must be called under eviction lock. */
+	private void unlink(Node node) {
+		if (node.prev == null) return;
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = null;
+		node.next = null;
+		size -= node.size;
+	}
+
+	private void notifyEvicted(List<Node> nodes) {
+		if (nodes == null) return;
+		for (Node node : nodes) {
+			notifyEvicted(node);
+		}
+	}
+
+	private void notifyEvicted(Node node) {
+		BitmapEvictionListener listener = evictionListener;
+		if (listener != null) {
+			listener.onBitmapEvicted(node.key, node.value);
+		}
+	}
+
+	@Override
+	public final String toString() {
+		return String.format("ConcurrentLruCache[maxSize=%d]", maxSize);
+	}
+
+	private static final class Node {
+		final String key;
+		final Bitmap value;
+		final int size;
+		//LRU链表中的前后节点，只在evictionLock中访问，prev为null表示节点不在缓存中
+		Node prev;
+		Node next;
+
+		Node(String key, Bitmap value, int size) {
+			this.key = key;
+			this.value = value;
+			this.size = size;
+		}
+	}
+
+	/** Lossy ring buffer of recorded accesses */
+	private static final class ReadBuffer {
+		final AtomicLong writeCount = new AtomicLong();
+		final AtomicReferenceArray<Node> nodes = new AtomicReferenceArray<Node>(READ_BUFFER_SIZE);
+	}
+}
@@ -20,9 +20,8 @@ import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Limited {@link Bitmap bitmap} cache. Provides {@link Bitmap bitmaps} storing. Size of all stored bitmaps will not to
@@ -36,16 +35,36 @@ import java.util.List;
  */
 public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 
-	private final List<Bitmap> queue = Collections.synchronizedList(new LinkedList<Bitmap>());
+	/** Queue of stored bitmaps in order of putting (intrusive doubly linked list with sentinel node) */
+	private final Node queue = new Node(null);
+	/** First (oldest) node of each bitmap in queue, bitmap can be put several times */
+	private final Map<Bitmap, Node> firstNodes = new HashMap<Bitmap, Node>();
 
 	public FIFOLimitedMemoryCache(int sizeLimit) {
 		super(sizeLimit);
+		queue.prev = queue;
+		queue.next = queue;
 	}
 
 	@Override
 	public boolean put(String key, Bitmap value) {
 		if (super.put(key, value)) {
-			queue.add(value);
+			synchronized (queue) {
+				Node node = new Node(value);
+				node.prev = queue.prev;
+				node.next = queue;
+				queue.prev.next = node;
+				queue.prev = node;
+				//同一个Bitmap的多个节点按顺序串起来，删除的时候总是删除最早的那个
+				Node first = firstNodes.get(value);
+				if (first == null) {
+					firstNodes.put(value, node);
+					node.lastSame = node;
+				} else {
+					first.lastSame.nextSame = node;
+					first.lastSame = node;
+				}
+			}
 			return true;
 		} else {
 			return false;
@@ -56,14 +75,23 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 	public Bitmap remove(String key) {
 		Bitmap value = super.get(key);
 		if (value != null) {
-			queue.remove(value);
+			synchronized (queue) {
+				Node first = firstNodes.get(value);
+				if (first != null) {
+					removeNode(first);
+				}
+			}
 		}
 		return super.remove(key);
 	}
 
 	@Override
 	public void clear() {
-		queue.clear();
+		synchronized (queue) {
+			queue.prev = queue;
+			queue.next = queue;
+			firstNodes.clear();
+		}
 		super.clear();
 	}
 
@@ -74,11 +102,48 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	protected Bitmap removeNext() {
-		return queue.remove(0);
+		synchronized (queue) {
+			Node eldest = queue.next;
+			if (eldest == queue) {
+				throw new IndexOutOfBoundsException("Queue is empty");
+			}
+			//队列头部的节点一定是这个Bitmap最早的节点
+			removeNode(eldest);
+			return eldest.value;
+		}
+	}
+
+	/** Removes the first node of its bitmap from queue. Must be called under lock of queue. */
+	private void removeNode(Node node) {
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = null;
+		node.next = null;
+		Node nextSame = node.nextSame;
+		if (nextSame == null) {
+			firstNodes.remove(node.value);
+		} else {
+			nextSame.lastSame = node.lastSame;
+			firstNodes.put(node.value, nextSame);
+		}
 	}
 
 	@Override
 	protected Reference<Bitmap> createReference(Bitmap value) {
 		return new WeakReference<Bitmap>(value);
 	}
+
+	private static final class Node {
+		final Bitmap value;
+		Node prev;
+		Node next;
+		/** Next node of the same bitmap */
+		Node nextSame;
+		/** Last node of the same bitmap, is actual only for the first node of bitmap */
+		Node lastSame;
+
+		Node(Bitmap value) {
+			this.value = value;
+		}
+	}
 }
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+/**
+ * Probabilistic counter of keys' popularity (count-min sketch with 4-bit counters). Each key is counted in 4 counters
+ * of table and its frequency is the minimum of them, so frequency can be overestimated but never underestimated.
+ * Counters are halved when number of increments reaches sample size, so old popularity fades away (aging).<br />
+ * <br />
+ * Isn't thread-safe.
+ *
+ * @see TinyLfuMemoryCache
+ * @since 1.9.5
+ */
+final class FrequencySketch {
+
+	/** Max value of 4-bit counter */
+	static final int MAX_FREQUENCY = 15;
+	/** Number of increments (per counted entry) before counters are halved */
+	private static final int SAMPLE_FACTOR = 10;
+	private static final int MAX_TABLE_SIZE = 1 << 24;
+
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	//每个long中包含16个4位的计数器
+	private long[] table;
+	private int tableMask;
+	private int sampleSize;
+	/** Number of increments since last aging */
+	private int size;
+
+	/** @param expectedEntries Expected number of counted entries, table grows with {@link #ensureCapacity(int)} */
+	FrequencySketch(int expectedEntries) {
+		ensureCapacity(expectedEntries);
+	}
+
+	/** Grows table if it's too small for number of entries. Counters are lost after growing. */
+	void ensureCapacity(int expectedEntries) {
+		int tableSize = 8;
+		while (tableSize < expectedEntries && tableSize < MAX_TABLE_SIZE) {
+			tableSize <<= 1;
+		}
+		if (table != null && table.length >= tableSize) return;
+
+		table = new long[tableSize];
+		tableMask = tableSize - 1;
+		sampleSize = SAMPLE_FACTOR * tableSize;
+		size = 0;
+	}
+
+	/** Returns estimated number of occurrences of key's hash (up to {@value #MAX_FREQUENCY}) */
+	int frequency(int hashCode) {
+		int hash = spread(hashCode);
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/** Increments popularity of key's hash, halves all counters if sample size is reached */
+	void increment(int hashCode) {
+		int hash = spread(hashCode);
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && ++size >= sampleSize) {
+			reset();
+		}
+	}
+
+	/** Increments counter #{@code counter} (0..15) in table element if it isn't saturated */
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xFL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/** Halves all counters */
+	private void reset() {
+		int oddCounters = 0;
+		for (int i = 0; i < table.length; i++) {
+			oddCounters += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		//奇数的计数器减半时会丢掉0.5，每个key对应4个计数器
+		size = (size >>> 1) - (oddCounters >>> 2);
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	/** Mixes bits of hash code, so poor hash codes are spread over table */
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
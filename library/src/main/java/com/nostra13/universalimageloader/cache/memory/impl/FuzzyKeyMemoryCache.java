@@ -18,9 +18,13 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 import android.graphics.Bitmap;
 
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.UriIndexedMemoryCache;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Decorator for {@link MemoryCache}. Provides special feature for cache: some different keys are considered as
@@ -31,9 +35,10 @@ import java.util.Comparator;
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.0.0
  */
-public class FuzzyKeyMemoryCache implements MemoryCache {
+public class FuzzyKeyMemoryCache implements UriIndexedMemoryCache {
 
 	private final MemoryCache cache;
+	/** Comparator of keys or <b>null</b> if keys of the same image URI are considered as equals */
 	private final Comparator<String> keyComparator;
 
 	public FuzzyKeyMemoryCache(MemoryCache cache, Comparator<String> keyComparator) {
@@ -41,8 +46,31 @@ public class FuzzyKeyMemoryCache implements MemoryCache {
 		this.keyComparator = keyComparator;
 	}
 
+	/**
+	 * Keys of the same image URI (generated by {@link MemoryCacheUtils#generateKey(String,
+	 * com.nostra13.universalimageloader.core.assist.ImageSize) MemoryCacheUtils.generateKey(...)}) are considered as
+	 * equals. If wrapped cache is {@link UriIndexedMemoryCache} then equal keys are found without looking through all
+	 * keys of cache.
+	 *
+	 * @since 1.9.5
+	 */
+	public FuzzyKeyMemoryCache(MemoryCache cache) {
+		this(cache, null);
+	}
+
 	@Override
 	public boolean put(String key, Bitmap value) {
+		if (keyComparator == null) {
+			//同一个图片的其他尺寸都移除
+			synchronized (cache) {
+				for (String keyToRemove : keysForImageUri(MemoryCacheUtils.getImageUri(key))) {
+					if (!keyToRemove.equals(key)) {
+						cache.remove(keyToRemove);
+					}
+				}
+			}
+			return cache.put(key, value);
+		}
 		// Search equal key and remove this entry
 		synchronized (cache) {
 			String keyToRemove = null;
@@ -78,4 +106,18 @@ public class FuzzyKeyMemoryCache implements MemoryCache {
 	public Collection<String> keys() {
 		return cache.keys();
 	}
+
+	@Override
+	public List<String> keysForImageUri(String imageUri) {
+		if (cache instanceof UriIndexedMemoryCache) {
+			return ((UriIndexedMemoryCache) cache).keysForImageUri(imageUri);
+		}
+		List<String> keys = new ArrayList<String>();
+		for (String key : cache.keys()) {
+			if (MemoryCacheUtils.getImageUri(key).equals(imageUri)) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
 }
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Secondary index of memory cache keys by image URI: URI -> keys of all cached sizes of image. Isn't thread-safe, is
+ * used under lock of cache.
+ *
+ * @see com.nostra13.universalimageloader.cache.memory.UriIndexedMemoryCache
+ * @since 1.9.5
+ */
+final class ImageUriIndex {
+
+	//同一个图片一般只有很少几个尺寸
+	private static final int INITIAL_VARIANTS_CAPACITY = 2;
+
+	private final HashMap<String, ArrayList<String>> variants = new HashMap<String, ArrayList<String>>();
+
+	/** Adds key which isn't in index yet */
+	void add(String key) {
+		String imageUri = MemoryCacheUtils.getImageUri(key);
+		ArrayList<String> keys = variants.get(imageUri);
+		if (keys == null) {
+			keys = new ArrayList<String>(INITIAL_VARIANTS_CAPACITY);
+			variants.put(imageUri, keys);
+		}
+		keys.add(key);
+	}
+
+	void remove(String key) {
+		String imageUri = MemoryCacheUtils.getImageUri(key);
+		ArrayList<String> keys = variants.get(imageUri);
+		if (keys != null && keys.remove(key) && keys.isEmpty()) {
+			variants.remove(imageUri);
+		}
+	}
+
+	/** Returns copy of keys of image URI */
+	List<String> get(String imageUri) {
+		ArrayList<String> keys = variants.get(imageUri);
+		if (keys == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<String>(keys);
+	}
+
+	void clear() {
+		variants.clear();
+	}
+}
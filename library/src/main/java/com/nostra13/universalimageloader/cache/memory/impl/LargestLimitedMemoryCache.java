@@ -20,11 +20,8 @@ import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 /**
  * Limited {@link Bitmap bitmap} cache. Provides {@link Bitmap bitmaps} storing. Size of all stored bitmaps will not to
@@ -43,7 +40,10 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	 * size will exceed limit then object with the largest size is deleted (but it continue exist at
 	 * {@link #softMap} and can be collected by GC at any time)
 	 */
-	private final Map<Bitmap, Integer> valueSizes = Collections.synchronizedMap(new HashMap<Bitmap, Integer>());
+	private final Map<Bitmap, HeapEntry> valueSizes = new HashMap<Bitmap, HeapEntry>();
+	/** Binary max-heap of {@link #valueSizes} entries by size, each entry knows its index in heap */
+	private HeapEntry[] heap = new HeapEntry[16];
+	private int heapSize;
 
 	public LargestLimitedMemoryCache(int sizeLimit) {
 		super(sizeLimit);
@@ -52,7 +52,26 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	@Override
 	public boolean put(String key, Bitmap value) {
 		if (super.put(key, value)) {
-			valueSizes.put(value, getSize(value));
+			int size = getSize(value);
+			synchronized (valueSizes) {
+				HeapEntry entry = valueSizes.get(value);
+				if (entry == null) {
+					entry = new HeapEntry(value, size);
+					valueSizes.put(value, entry);
+					if (heapSize == heap.length) {
+						HeapEntry[] newHeap = new HeapEntry[heapSize * 2];
+						System.arraycopy(heap, 0, newHeap, 0, heapSize);
+						heap = newHeap;
+					}
+					entry.index = heapSize++;
+					heap[entry.index] = entry;
+					siftUp(entry.index);
+				} else {
+					entry.size = size;
+					siftUp(entry.index);
+					siftDown(entry.index);
+				}
+			}
 			return true;
 		} else {
 			return false;
@@ -63,14 +82,25 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	public Bitmap remove(String key) {
 		Bitmap value = super.get(key);
 		if (value != null) {
-			valueSizes.remove(value);
+			synchronized (valueSizes) {
+				HeapEntry entry = valueSizes.remove(value);
+				if (entry != null) {
+					removeAt(entry.index);
+				}
+			}
 		}
 		return super.remove(key);
 	}
 
 	@Override
 	public void clear() {
-		valueSizes.clear();
+		synchronized (valueSizes) {
+			valueSizes.clear();
+			for (int i = 0; i < heapSize; i++) {
+				heap[i] = null;
+			}
+			heapSize = 0;
+		}
 		super.clear();
 	}
 
@@ -81,29 +111,74 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	protected Bitmap removeNext() {
-		Integer maxSize = null;
-		Bitmap largestValue = null;
-		Set<Entry<Bitmap, Integer>> entries = valueSizes.entrySet();
 		synchronized (valueSizes) {
-			for (Entry<Bitmap, Integer> entry : entries) {
-				if (largestValue == null) {
-					largestValue = entry.getKey();
-					maxSize = entry.getValue();
-				} else {
-					Integer size = entry.getValue();
-					if (size > maxSize) {
-						maxSize = size;
-						largestValue = entry.getKey();
-					}
-				}
+			if (heapSize == 0) return null;
+			//堆顶就是最大的Bitmap
+			HeapEntry largest = heap[0];
+			valueSizes.remove(largest.value);
+			removeAt(0);
+			return largest.value;
+		}
+	}
+
+	/** Removes heap entry at index. Must be called under lock of {@link #valueSizes}. */
+	private void removeAt(int index) {
+		int last = --heapSize;
+		if (index != last) {
+			move(heap[last], index);
+			heap[last] = null;
+			siftUp(index);
+			siftDown(index);
+		} else {
+			heap[last] = null;
+		}
+	}
+
+	private void siftUp(int index) {
+		HeapEntry entry = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (heap[parent].size >= entry.size) break;
+			move(heap[parent], index);
+			index = parent;
+		}
+		move(entry, index);
+	}
+
+	private void siftDown(int index) {
+		HeapEntry entry = heap[index];
+		int half = heapSize >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < heapSize && heap[right].size > heap[child].size) {
+				child = right;
 			}
+			if (entry.size >= heap[child].size) break;
+			move(heap[child], index);
+			index = child;
 		}
-		valueSizes.remove(largestValue);
-		return largestValue;
+		move(entry, index);
+	}
+
+	private void move(HeapEntry entry, int index) {
+		heap[index] = entry;
+		entry.index = index;
 	}
 
 	@Override
 	protected Reference<Bitmap> createReference(Bitmap value) {
 		return new WeakReference<Bitmap>(value);
 	}
+
+	private static final class HeapEntry {
+		final Bitmap value;
+		int size;
+		int index;
+
+		HeapEntry(Bitmap value, int size) {
+			this.value = value;
+			this.size = size;
+		}
+	}
 }
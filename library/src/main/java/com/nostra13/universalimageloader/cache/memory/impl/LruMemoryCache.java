@@ -2,11 +2,14 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
 
-import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.BitmapEvictionListener;
+import com.nostra13.universalimageloader.cache.memory.ObservableMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.UriIndexedMemoryCache;
 
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,14 +22,18 @@ import java.util.Map;
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.8.1
  */
-public class LruMemoryCache implements MemoryCache {
+public class LruMemoryCache implements ObservableMemoryCache, UriIndexedMemoryCache {
 
 	private final LinkedHashMap<String, Bitmap> map;
+	//按照图片链接索引的key，用于快速找到同一个图片的所有尺寸
+	private final ImageUriIndex uriIndex = new ImageUriIndex();
 
 	private final int maxSize;
 	/** Size of this cache in bytes */
 	private int size;
 
+	private volatile BitmapEvictionListener evictionListener;
+
 	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
 	public LruMemoryCache(int maxSize) {
 		if (maxSize <= 0) {
@@ -58,13 +65,19 @@ public class LruMemoryCache implements MemoryCache {
 			throw new NullPointerException("key == null || value == null");
 		}
 
+		Bitmap previous;
 		synchronized (this) {
 			size += sizeOf(key, value);
-			Bitmap previous = map.put(key, value);
+			previous = map.put(key, value);
 			if (previous != null) {
 				size -= sizeOf(key, previous);
+			} else {
+				uriIndex.add(key);
 			}
 		}
+		if (previous != null && previous != value) {
+			notifyEvicted(key, previous);
+		}
 
 		trimToSize(maxSize);
 		return true;
@@ -95,8 +108,10 @@ public class LruMemoryCache implements MemoryCache {
 				key = toEvict.getKey();
 				value = toEvict.getValue();
 				map.remove(key);
+				uriIndex.remove(key);
 				size -= sizeOf(key, value);
 			}
+			notifyEvicted(key, value);
 		}
 	}
 
@@ -107,12 +122,43 @@ public class LruMemoryCache implements MemoryCache {
 			throw new NullPointerException("key == null");
 		}
 
+		Bitmap previous;
 		synchronized (this) {
-			Bitmap previous = map.remove(key);
+			previous = map.remove(key);
 			if (previous != null) {
+				uriIndex.remove(key);
 				size -= sizeOf(key, previous);
 			}
-			return previous;
+		}
+		if (previous != null) {
+			notifyEvicted(key, previous);
+		}
+		return previous;
+	}
+
+	/**
+	 * Sets listener of bitmaps which are removed from this cache (evicted, removed or replaced). <b>null</b> removes
+	 * listener.
+	 *
+	 * @since 1.9.5
+	 */
+	@Override
+	public void setEvictionListener(BitmapEvictionListener evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+	private void notifyEvicted(String key, Bitmap bitmap) {
+		BitmapEvictionListener listener = evictionListener;
+		if (listener != null) {
+			listener.onBitmapEvicted(key, bitmap);
+		}
+	}
+
+	/** Returns keys of all cached sizes of image URI without looking through all keys of cache */
+	@Override
+	public List<String> keysForImageUri(String imageUri) {
+		synchronized (this) {
+			return uriIndex.get(imageUri);
 		}
 	}
 
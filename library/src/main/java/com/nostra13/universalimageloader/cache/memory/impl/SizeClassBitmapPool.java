@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of bitmaps grouped into size classes by byte size. Bitmaps are matched according to API level of device:
+ * <ul>
+ * <li>before KitKat (API 11-18) bitmap can be reused only for bitmap of exactly the same width, height and config</li>
+ * <li>since KitKat (API 19+) any bitmap with enough allocated bytes can be reused, it's reconfigured to requested size
+ * and config. Bitmaps which are more than {@value #MAX_SIZE_MULTIPLE} times bigger than requested aren't used to not
+ * waste memory.</li>
+ * </ul>
+ * Total byte size of pooled bitmaps is limited, the oldest pooled bitmaps are recycled when the limit is exceeded.
+ *
+ * @since 1.9.5
+ */
+public class SizeClassBitmapPool implements BitmapPool {
+
+	/** {@value} */
+	public static final int MAX_SIZE_MULTIPLE = 4;
+
+	private final int maxSize;
+	//4.4之后池中的Bitmap可以重新配置成其他大小
+	private final boolean reconfigureSupported;
+	/** Size of pooled bitmaps in bytes */
+	private int size;
+
+	//按照字节数分组的空闲Bitmap
+	private final TreeMap<Integer, LinkedList<Bitmap>> sizeClasses = new TreeMap<Integer, LinkedList<Bitmap>>();
+	//放入池中的顺序，池满的时候先回收最早放入的
+	private final LinkedList<Bitmap> order = new LinkedList<Bitmap>();
+	//池中的Bitmap以及它所属的分组
+	private final Map<Bitmap, Integer> pooled = new IdentityHashMap<Bitmap, Integer>();
+
+	private int hitCount;
+	private int missCount;
+	private int putCount;
+	private int evictionCount;
+
+	/** @param maxSize Maximum sum of the byte sizes of the bitmaps in this pool */
+	public SizeClassBitmapPool(int maxSize) {
+		this(maxSize, Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT);
+	}
+
+	/**
+	 * @param maxSize              Maximum sum of the byte sizes of the bitmaps in this pool
+	 * @param reconfigureSupported Whether pooled bitmaps can be {@linkplain #reconfigure(Bitmap, int, int,
+	 *                             Bitmap.Config) reconfigured} for another size (since KitKat)
+	 */
+	SizeClassBitmapPool(int maxSize, boolean reconfigureSupported) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		this.maxSize = maxSize;
+		this.reconfigureSupported = reconfigureSupported;
+	}
+
+	@Override
+	public boolean put(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || !isReuseSupported()) return false;
+		int bitmapSize = sizeOf(bitmap);
+		if (bitmapSize > maxSize) return false;
+
+		synchronized (this) {
+			if (pooled.containsKey(bitmap)) return true;
+			LinkedList<Bitmap> sizeClass = sizeClasses.get(bitmapSize);
+			if (sizeClass == null) {
+				sizeClass = new LinkedList<Bitmap>();
+				sizeClasses.put(bitmapSize, sizeClass);
+			}
+			sizeClass.addLast(bitmap);
+			order.addLast(bitmap);
+			pooled.put(bitmap, bitmapSize);
+			size += bitmapSize;
+			putCount++;
+			trimToSize(maxSize);
+		}
+		return true;
+	}
+
+	@Override
+	public Bitmap get(int width, int height, Bitmap.Config config) {
+		if (!isReuseSupported() || width <= 0 || height <= 0) return null;
+		if (config == null) config = Bitmap.Config.ARGB_8888;
+		Bitmap bitmap;
+		synchronized (this) {
+			bitmap = reconfigureSupported ? takeBySize(width, height, config) : takeExact(width, height, config);
+			if (bitmap == null) {
+				missCount++;
+			} else {
+				hitCount++;
+			}
+		}
+		return bitmap;
+	}
+
+	/** Takes bitmap of exactly the same size and config (before KitKat) */
+	private Bitmap takeExact(int width, int height, Bitmap.Config config) {
+		LinkedList<Bitmap> sizeClass = sizeClasses.get(width * height * getBytesPerPixel(config));
+		if (sizeClass == null) return null;
+		for (Bitmap bitmap : sizeClass) {
+			if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+				take(bitmap);
+				return bitmap;
+			}
+		}
+		return null;
+	}
+
+	/** Takes the smallest bitmap which has enough allocated bytes and reconfigures it (since KitKat) */
+	private Bitmap takeBySize(int width, int height, Bitmap.Config config) {
+		int neededSize = width * height * getBytesPerPixel(config);
+		Map.Entry<Integer, LinkedList<Bitmap>> sizeClass = sizeClasses.ceilingEntry(neededSize);
+		if (sizeClass == null || sizeClass.getKey() / MAX_SIZE_MULTIPLE > neededSize) return null;
+		Bitmap bitmap = sizeClass.getValue().getFirst();
+		take(bitmap);
+		if (bitmap.getWidth() != width || bitmap.getHeight() != height || bitmap.getConfig() != config) {
+			if (!reconfigure(bitmap, width, height, config)) {
+				// Bitmap can't be reconfigured to needed config, it's dropped
+				bitmap.recycle();
+				return null;
+			}
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Reconfigures bitmap taken from pool to requested size and config (since KitKat)
+	 *
+	 * @return <b>true</b> - if bitmap was reconfigured; <b>false</b> - if bitmap can't be reconfigured
+	 */
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	protected boolean reconfigure(Bitmap bitmap, int width, int height, Bitmap.Config config) {
+		try {
+			bitmap.reconfigure(width, height, config);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		} catch (IllegalStateException e) {
+			// Native-backed bitmap
+			return false;
+		}
+	}
+
+	/** Removes bitmap from pool */
+	private void take(Bitmap bitmap) {
+		Integer bitmapSize = pooled.remove(bitmap);
+		LinkedList<Bitmap> sizeClass = sizeClasses.get(bitmapSize);
+		sizeClass.remove(bitmap);
+		if (sizeClass.isEmpty()) {
+			sizeClasses.remove(bitmapSize);
+		}
+		order.remove(bitmap);
+		size -= bitmapSize;
+	}
+
+	/** Recycles the oldest bitmaps until the total size of pooled bitmaps is at or below the requested size */
+	private void trimToSize(int maxSize) {
+		while (size > maxSize && !order.isEmpty()) {
+			Bitmap bitmap = order.getFirst();
+			take(bitmap);
+			bitmap.recycle();
+			evictionCount++;
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		trimToSize(0);
+	}
+
+	@Override
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	@Override
+	public synchronized int getMissCount() {
+		return missCount;
+	}
+
+	/** Returns count of bitmaps which were put into pool */
+	public synchronized int getPutCount() {
+		return putCount;
+	}
+
+	/** Returns count of bitmaps which were recycled because pool was full */
+	public synchronized int getEvictionCount() {
+		return evictionCount;
+	}
+
+	/** Returns sum of the byte sizes of the bitmaps in this pool */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Returns byte size of bitmap which is considered by pool. Since KitKat it's size of bitmap's allocation which can
+	 * be bigger than current size of bitmap (if bitmap was reconfigured).
+	 */
+	protected int sizeOf(Bitmap bitmap) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			return getAllocationByteCount(bitmap);
+		}
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	private static int getAllocationByteCount(Bitmap bitmap) {
+		return bitmap.getAllocationByteCount();
+	}
+
+	private static boolean isReuseSupported() {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+	}
+
+	/** Returns count of bytes per pixel for bitmap config */
+	@SuppressWarnings("deprecation") // ARGB_4444 is deprecated but still can be used by decoding options
+	public static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == Bitmap.Config.ALPHA_8) return 1;
+		if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) return 2;
+		return 4;
+	}
+
+	@Override
+	public synchronized final String toString() {
+		return String.format("SizeClassBitmapPool[maxSize=%d, size=%d, hits=%d, misses=%d]", maxSize, size, hitCount,
+				missCount);
+	}
+}
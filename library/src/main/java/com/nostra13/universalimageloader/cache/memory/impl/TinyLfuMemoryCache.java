@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapEvictionListener;
+import com.nostra13.universalimageloader.cache.memory.ObservableMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.UriIndexedMemoryCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Memory cache with limited sum of Bitmaps' sizes which admits Bitmaps by their popularity (W-TinyLFU policy).<br />
+ * <br />
+ * New Bitmaps are put into small <i>window</i> LRU queue. Bitmap which is pushed out of window becomes a candidate
+ * for <i>main</i> area and is kept there only if it's requested more often than the Bitmap which would be evicted
+ * for it. Popularity is estimated by {@linkplain FrequencySketch frequency sketch} of all requested keys (hits and
+ * misses), counters are periodically halved so old popularity fades away. Main area is segmented: Bitmaps are
+ * admitted into <i>probation</i> queue and are moved into <i>protected</i> queue when they are requested again.<br />
+ * <br />
+ * So one pass through a long list of one-off images doesn't flush out images which are shown on every screen (like
+ * avatars or icons), unlike {@link LruMemoryCache}.<br />
+ * <br />
+ * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
+ *
+ * @since 1.9.5
+ */
+public class TinyLfuMemoryCache implements ObservableMemoryCache, UriIndexedMemoryCache {
+
+	/** Default size of window queue (in percent of max cache size): {@value} */
+	public static final int DEFAULT_WINDOW_PERCENTAGE = 10;
+	/** Size of protected queue (in percent of main area size): {@value} */
+	private static final int PROTECTED_PERCENTAGE = 80;
+	/** Initial number of entries which frequency sketch is sized for */
+	private static final int INITIAL_SKETCH_CAPACITY = 64;
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private final HashMap<String, Node> map = new HashMap<String, Node>();
+	//按照图片链接索引的key，用于快速找到同一个图片的所有尺寸
+	private final ImageUriIndex uriIndex = new ImageUriIndex();
+	private final FrequencySketch sketch = new FrequencySketch(INITIAL_SKETCH_CAPACITY);
+	//每个队列都是以哨兵节点为头的双向循环链表，头部的下一个节点是最久未使用的
+	private final Node window = new Node(null, null, 0);
+	private final Node probation = new Node(null, null, 0);
+	private final Node protectedQueue = new Node(null, null, 0);
+
+	private final int maxSize;
+	private final int maxWindowSize;
+	private final int maxProtectedSize;
+	/** Sizes of queues in bytes */
+	private int windowSize;
+	private int probationSize;
+	private int protectedSize;
+
+	private volatile BitmapEvictionListener evictionListener;
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
+	public TinyLfuMemoryCache(int maxSize) {
+		this(maxSize, DEFAULT_WINDOW_PERCENTAGE);
+	}
+
+	/**
+	 * @param maxSize          Maximum sum of the sizes of the Bitmaps in this cache
+	 * @param windowPercentage Size of window queue in percent of max cache size (0 < % < 100). New Bitmaps are kept in
+	 *                         window regardless of their popularity, so it should be able to hold a few Bitmaps.
+	 */
+	public TinyLfuMemoryCache(int maxSize, int windowPercentage) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		if (windowPercentage <= 0 || windowPercentage >= 100) {
+			throw new IllegalArgumentException("windowPercentage must be in range (0 < % < 100)");
+		}
+		this.maxSize = maxSize;
+		this.maxWindowSize = (int) ((long) maxSize * windowPercentage / 100);
+		this.maxProtectedSize = (int) ((long) (maxSize - maxWindowSize) * PROTECTED_PERCENTAGE / 100);
+		clearQueue(window);
+		clearQueue(probation);
+		clearQueue(protectedQueue);
+	}
+
+	/**
+	 * Returns the Bitmap for {@code key} if it exists in the cache. Request is counted in key's popularity even if
+	 * Bitmap isn't cached.
+	 */
+	@Override
+	public final Bitmap get(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		synchronized (this) {
+			sketch.increment(key.hashCode());
+			Node node = map.get(key);
+			if (node == null) {
+				return null;
+			}
+			onAccess(node);
+			return node.value;
+		}
+	}
+
+	/** Caches {@code Bitmap} for {@code key}. New Bitmap is put into window queue. */
+	@Override
+	public final boolean put(String key, Bitmap value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+
+		Node node = new Node(key, value, sizeOf(key, value));
+		Node previous;
+		List<Node> evicted;
+		synchronized (this) {
+			previous = map.put(key, node);
+			if (previous == null) {
+				uriIndex.add(key);
+				sketch.ensureCapacity(map.size());
+				sketch.increment(key.hashCode());
+				node.queue = WINDOW;
+				link(window, node);
+			} else {
+				//替换的Bitmap保留原来的位置
+				node.queue = previous.queue;
+				replace(previous, node);
+				onAccess(node);
+			}
+			evicted = evict();
+		}
+		if (previous != null && previous.value != value) {
+			notifyEvicted(previous);
+		}
+		notifyEvicted(evicted);
+		return true;
+	}
+
+	/** Removes the entry for {@code key} if it exists. */
+	@Override
+	public final Bitmap remove(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		Node previous;
+		synchronized (this) {
+			previous = map.remove(key);
+			if (previous != null) {
+				unlink(previous);
+				uriIndex.remove(key);
+			}
+		}
+		if (previous == null) {
+			return null;
+		}
+		notifyEvicted(previous);
+		return previous.value;
+	}
+
+	/** Returns keys of all cached sizes of image URI without looking through all keys of cache */
+	@Override
+	public synchronized List<String> keysForImageUri(String imageUri) {
+		return uriIndex.get(imageUri);
+	}
+
+	@Override
+	public Collection<String> keys() {
+		synchronized (this) {
+			return new HashSet<String>(map.keySet());
+		}
+	}
+
+	@Override
+	public void clear() {
+		List<Node> evicted = new ArrayList<Node>();
+		synchronized (this) {
+			evicted.addAll(map.values());
+			map.clear();
+			uriIndex.clear();
+			clearQueue(window);
+			clearQueue(probation);
+			clearQueue(protectedQueue);
+			windowSize = 0;
+			probationSize = 0;
+			protectedSize = 0;
+		}
+		notifyEvicted(evicted);
+	}
+
+	@Override
+	public void setEvictionListener(BitmapEvictionListener evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+	/** Returns sum of the sizes of the Bitmaps in this cache (in bytes) */
+	public synchronized int size() {
+		return windowSize + probationSize + protectedSize;
+	}
+
+	/**
+	 * Returns the size {@code Bitmap} in bytes.
+	 * <p/>
+	 * An entry's size must not change while it is in the cache.
+	 */
+	protected int sizeOf(String key, Bitmap value) {
+		return value.getRowBytes() * value.getHeight();
+	}
+
+	/** Moves requested node in its queue. Must be called under lock. */
+	private void onAccess(Node node) {
+		switch (node.queue) {
+			case WINDOW:
+				unlink(node);
+				link(window, node);
+				break;
+			case PROBATION:
+				//再次被使用的Bitmap进入受保护队列，受保护队列满了的话最久未使用的降级到试用队列
+				unlink(node);
+				node.queue = PROTECTED;
+				link(protectedQueue, node);
+				while (protectedSize > maxProtectedSize && protectedQueue.next != node) {
+					Node demoted = protectedQueue.next;
+					unlink(demoted);
+					demoted.queue = PROBATION;
+					link(probation, demoted);
+				}
+				break;
+			case PROTECTED:
+				unlink(node);
+				link(protectedQueue, node);
+				break;
+		}
+	}
+
+	/**
+	 * Moves Bitmaps which don't fit window into main area, then evicts less popular Bitmaps until cache fits max size.
+	 * Must be called under lock.
+	 */
+	private List<Node> evict() {
+		while (windowSize > maxWindowSize && window.next != window) {
+			Node candidate = window.next;
+			unlink(candidate);
+			candidate.queue = PROBATION;
+			candidate.candidate = true;
+			link(probation, candidate);
+		}
+
+		List<Node> evicted = null;
+		while (windowSize + probationSize + protectedSize > maxSize) {
+			Node toEvict;
+			Node victim = probation.next != probation ? probation.next : protectedQueue.next;
+			//刚从窗口移过来的候选者在试用队列的尾部，淘汰过程中候选者可能已经全部被淘汰
+			Node candidate = probation.prev != probation && probation.prev.candidate ? probation.prev : null;
+			if (victim == protectedQueue) {
+				//主区域已经空了，只能淘汰窗口中的Bitmap
+				toEvict = window.next;
+			} else if (candidate != null && candidate != victim) {
+				//和最久未使用的Bitmap比较访问频率，淘汰不常用的
+				if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+					toEvict = victim;
+				} else {
+					toEvict = candidate;
+				}
+			} else {
+				toEvict = victim;
+			}
+			if (toEvict == window) {
+				throw new IllegalStateException(getClass().getName() + ".sizeOf() is reporting inconsistent results!");
+			}
+
+			map.remove(toEvict.key);
+			uriIndex.remove(toEvict.key);
+			unlink(toEvict);
+			if (evicted == null) {
+				evicted = new ArrayList<Node>();
+			}
+			evicted.add(toEvict);
+		}
+		//留下来的候选者成为试用队列的普通成员
+		for (Node node = probation.prev; node != probation && node.candidate; node = node.prev) {
+			node.candidate = false;
+		}
+		return evicted;
+	}
+
+	/** Adds node to the tail (most recently used) of queue. Must be called under lock. */
+	private void link(Node queue, Node node) {
+		Node tail = queue.prev;
+		node.prev = tail;
+		node.next = queue;
+		tail.next = node;
+		queue.prev = node;
+		addSize(node.queue, node.size);
+	}
+
+	/** Removes node from its queue. Must be called under lock. */
+	private void unlink(Node node) {
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = null;
+		node.next = null;
+		addSize(node.queue, -node.size);
+	}
+
+	/** Puts new node at the place of old node in queue. Must be called under lock. */
+	private void replace(Node oldNode, Node newNode) {
+		newNode.prev = oldNode.prev;
+		newNode.next = oldNode.next;
+		newNode.prev.next = newNode;
+		newNode.next.prev = newNode;
+		oldNode.prev = null;
+		oldNode.next = null;
+		addSize(newNode.queue, newNode.size - oldNode.size);
+	}
+
+	private void addSize(int queue, int delta) {
+		switch (queue) {
+			case WINDOW:
+				windowSize += delta;
+				break;
+			case PROBATION:
+				probationSize += delta;
+				break;
+			case PROTECTED:
+				protectedSize += delta;
+				break;
+		}
+	}
+
+	private static void clearQueue(Node queue) {
+		queue.prev = queue;
+		queue.next = queue;
+	}
+
+	private void notifyEvicted(List<Node> nodes) {
+		if (nodes == null) return;
+		for (Node node : nodes) {
+			notifyEvicted(node);
+		}
+	}
+
+	private void notifyEvicted(Node node) {
+		BitmapEvictionListener listener = evictionListener;
+		if (listener != null) {
+			listener.onBitmapEvicted(node.key, node.value);
+		}
+	}
+
+	@Override
+	public final String toString() {
+		return String.format("TinyLfuCache[maxSize=%d]", maxSize);
+	}
+
+	private static final class Node {
+		final String key;
+		final Bitmap value;
+		final int size;
+		/** Queue which contains node: {@link #WINDOW}, {@link #PROBATION} or {@link #PROTECTED} */
+		int queue;
+		/** Whether node was just moved from window and isn't admitted into main area yet (during eviction only) */
+		boolean candidate;
+		Node prev;
+		Node next;
+
+		Node(String key, Bitmap value, int size) {
+			this.key = key;
+			this.value = value;
+			this.size = size;
+		}
+	}
+}
@@ -20,11 +20,8 @@ import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 /**
  * Limited {@link Bitmap bitmap} cache. Provides {@link Bitmap bitmaps} storing. Size of all stored bitmaps will not to
@@ -39,20 +36,37 @@ import java.util.Set;
  */
 public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 	/**
-	 * Contains strong references to stored objects (keys) and last object usage date (in milliseconds). If hard cache
-	 * size will exceed limit then object with the least frequently usage is deleted (but it continue exist at
-	 * {@link #softMap} and can be collected by GC at any time)
+	 * Contains strong references to stored objects (keys) and their usage counts. If hard cache size will exceed
+	 * limit then object with the least frequently usage is deleted (but it continue exist at {@link #softMap} and can
+	 * be collected by GC at any time)
 	 */
-	private final Map<Bitmap, Integer> usingCounts = Collections.synchronizedMap(new HashMap<Bitmap, Integer>());
+	private final Map<Bitmap, UsageEntry> usingCounts = new HashMap<Bitmap, UsageEntry>();
+	/**
+	 * List of buckets in ascending order of usage count (with sentinel bucket), each bucket contains entries with the
+	 * same usage count. So using and eviction of object take constant time.
+	 */
+	private final FrequencyBucket buckets = new FrequencyBucket(-1);
 
 	public UsingFreqLimitedMemoryCache(int sizeLimit) {
 		super(sizeLimit);
+		buckets.prev = buckets;
+		buckets.next = buckets;
 	}
 
 	@Override
 	public boolean put(String key, Bitmap value) {
 		if (super.put(key, value)) {
-			usingCounts.put(value, 0);
+			synchronized (usingCounts) {
+				//重新放入的Bitmap使用次数重置为0
+				UsageEntry entry = usingCounts.get(value);
+				if (entry == null) {
+					entry = new UsageEntry(value);
+					usingCounts.put(value, entry);
+				} else {
+					removeFromBucket(entry);
+				}
+				addToBucket(entry, buckets, 0);
+			}
 			return true;
 		} else {
 			return false;
@@ -64,9 +78,13 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 		Bitmap value = super.get(key);
 		// Increment usage count for value if value is contained in hardCahe
 		if (value != null) {
-			Integer usageCount = usingCounts.get(value);
-			if (usageCount != null) {
-				usingCounts.put(value, usageCount + 1);
+			synchronized (usingCounts) {
+				UsageEntry entry = usingCounts.get(value);
+				if (entry != null) {
+					int count = entry.bucket.count + 1;
+					FrequencyBucket previous = removeFromBucket(entry);
+					addToBucket(entry, previous, count);
+				}
 			}
 		}
 		return value;
@@ -76,14 +94,23 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 	public Bitmap remove(String key) {
 		Bitmap value = super.get(key);
 		if (value != null) {
-			usingCounts.remove(value);
+			synchronized (usingCounts) {
+				UsageEntry entry = usingCounts.remove(value);
+				if (entry != null) {
+					removeFromBucket(entry);
+				}
+			}
 		}
 		return super.remove(key);
 	}
 
 	@Override
 	public void clear() {
-		usingCounts.clear();
+		synchronized (usingCounts) {
+			usingCounts.clear();
+			buckets.prev = buckets;
+			buckets.next = buckets;
+		}
 		super.clear();
 	}
 
@@ -94,29 +121,86 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	protected Bitmap removeNext() {
-		Integer minUsageCount = null;
-		Bitmap leastUsedValue = null;
-		Set<Entry<Bitmap, Integer>> entries = usingCounts.entrySet();
 		synchronized (usingCounts) {
-			for (Entry<Bitmap, Integer> entry : entries) {
-				if (leastUsedValue == null) {
-					leastUsedValue = entry.getKey();
-					minUsageCount = entry.getValue();
-				} else {
-					Integer lastValueUsage = entry.getValue();
-					if (lastValueUsage < minUsageCount) {
-						minUsageCount = lastValueUsage;
-						leastUsedValue = entry.getKey();
-					}
-				}
-			}
+			//第一个桶中就是使用次数最少的Bitmap，同样次数的先淘汰最早放入桶中的
+			FrequencyBucket leastUsed = buckets.next;
+			if (leastUsed == buckets) return null;
+			UsageEntry entry = leastUsed.head.nextInBucket;
+			usingCounts.remove(entry.value);
+			removeFromBucket(entry);
+			return entry.value;
 		}
-		usingCounts.remove(leastUsedValue);
-		return leastUsedValue;
+	}
+
+	/**
+	 * Adds entry to the end of bucket with given usage count which must go right after {@code previous} bucket (bucket
+	 * is created if needed). Must be called under lock of {@link #usingCounts}.
+	 */
+	private void addToBucket(UsageEntry entry, FrequencyBucket previous, int count) {
+		FrequencyBucket bucket = previous.next;
+		if (bucket == buckets || bucket.count != count) {
+			bucket = new FrequencyBucket(count);
+			bucket.prev = previous;
+			bucket.next = previous.next;
+			previous.next.prev = bucket;
+			previous.next = bucket;
+		}
+		UsageEntry head = bucket.head;
+		entry.prevInBucket = head.prevInBucket;
+		entry.nextInBucket = head;
+		head.prevInBucket.nextInBucket = entry;
+		head.prevInBucket = entry;
+		entry.bucket = bucket;
+	}
+
+	/**
+	 * Removes entry from its bucket, empty bucket is removed. Must be called under lock of {@link #usingCounts}.
+	 *
+	 * @return Bucket after which bucket with greater usage count should be placed: entry's bucket or the previous one
+	 * if entry's bucket was removed
+	 */
+	private FrequencyBucket removeFromBucket(UsageEntry entry) {
+		entry.prevInBucket.nextInBucket = entry.nextInBucket;
+		entry.nextInBucket.prevInBucket = entry.prevInBucket;
+		entry.prevInBucket = null;
+		entry.nextInBucket = null;
+		FrequencyBucket bucket = entry.bucket;
+		entry.bucket = null;
+		if (bucket.head.nextInBucket == bucket.head) {
+			bucket.prev.next = bucket.next;
+			bucket.next.prev = bucket.prev;
+			return bucket.prev;
+		}
+		return bucket;
 	}
 
 	@Override
 	protected Reference<Bitmap> createReference(Bitmap value) {
 		return new WeakReference<Bitmap>(value);
 	}
+
+	private static final class FrequencyBucket {
+		final int count;
+		/** Sentinel entry of circular list of bucket's entries */
+		final UsageEntry head = new UsageEntry(null);
+		FrequencyBucket prev;
+		FrequencyBucket next;
+
+		FrequencyBucket(int count) {
+			this.count = count;
+			head.prevInBucket = head;
+			head.nextInBucket = head;
+		}
+	}
+
+	private static final class UsageEntry {
+		final Bitmap value;
+		FrequencyBucket bucket;
+		UsageEntry prevInBucket;
+		UsageEntry nextInBucket;
+
+		UsageEntry(Bitmap value) {
+			this.value = value;
+		}
+	}
 }
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Application;
+import android.os.Build;
+import android.os.Bundle;
+
+/**
+ * Binds {@linkplain DisplayImageOptions.Builder#tag(Object) tag} of requests to lifecycle of {@link Activity}. Tag is
+ * paused when activity is stopped, resumed when activity is started and cancelled when activity is destroyed. Binding
+ * is removed after activity is destroyed.
+ *
+ * @see ImageLoader#bindTagToActivity(Object, Activity)
+ * @since 1.9.5
+ */
+@TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+final class ActivityTagBinding implements Application.ActivityLifecycleCallbacks {
+
+	private final ImageLoader imageLoader;
+	private final Object tag;
+	private final Activity activity;
+
+	ActivityTagBinding(ImageLoader imageLoader, Object tag, Activity activity) {
+		this.imageLoader = imageLoader;
+		this.tag = tag;
+		this.activity = activity;
+	}
+
+	void bind() {
+		activity.getApplication().registerActivityLifecycleCallbacks(this);
+	}
+
+	@Override
+	public void onActivityStarted(Activity activity) {
+		if (activity == this.activity) {
+			imageLoader.resumeTag(tag);
+		}
+	}
+
+	@Override
+	public void onActivityStopped(Activity activity) {
+		if (activity == this.activity) {
+			imageLoader.pauseTag(tag);
+		}
+	}
+
+	@Override
+	public void onActivityDestroyed(Activity activity) {
+		if (activity == this.activity) {
+			activity.getApplication().unregisterActivityLifecycleCallbacks(this);
+			imageLoader.cancelTag(tag);
+			//页面已经销毁，不再保留分组的暂停状态
+			imageLoader.resumeTag(tag);
+		}
+	}
+
+	@Override
+	public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+	}
+
+	@Override
+	public void onActivityResumed(Activity activity) {
+	}
+
+	@Override
+	public void onActivityPaused(Activity activity) {
+	}
+
+	@Override
+	public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+	}
+}
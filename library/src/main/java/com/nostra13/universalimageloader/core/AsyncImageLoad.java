@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Image loading which is shared by all {@linkplain ImageLoadFuture futures} requested for the same memory cache key by
+ * {@link ImageLoader#loadImageAsync(String, ImageSize, DisplayImageOptions)}. Loading is cancelled when all its futures
+ * are cancelled.
+ *
+ * @see ImageLoadFuture
+ * @since 1.9.5
+ */
+final class AsyncImageLoad implements ImageLoadingListener {
+
+	static final int STATE_LOADING = 0;
+	static final int STATE_COMPLETED = 1;
+	static final int STATE_FAILED = 2;
+	static final int STATE_CANCELLED = 3;
+
+	private final ImageLoader imageLoader;
+	//相同内存缓存key的加载共享一个AsyncImageLoad，通过loads自身同步
+	private final Map<String, AsyncImageLoad> loads;
+	private final String memoryCacheKey;
+	//NonViewAware没有指定链接的时候使用自身的hashCode作为id，所以每一个加载都有自己独立的载体
+	final NonViewAware imageAware;
+
+	private final List<ImageLoadFuture> futures = new ArrayList<ImageLoadFuture>();
+	private boolean abandoned;
+	private volatile int state = STATE_LOADING;
+	private volatile Bitmap bitmap;
+	private volatile FailReason failReason;
+
+	AsyncImageLoad(ImageLoader imageLoader, Map<String, AsyncImageLoad> loads, String memoryCacheKey,
+			ImageSize targetSize) {
+		this.imageLoader = imageLoader;
+		this.loads = loads;
+		this.memoryCacheKey = memoryCacheKey;
+		this.imageAware = new NonViewAware(targetSize, ViewScaleType.CROP);
+	}
+
+	/**
+	 * Creates new future which shares this loading.
+	 *
+	 * @return New future or <b>null</b> if this loading is finished or abandoned already
+	 */
+	ImageLoadFuture newFuture() {
+		synchronized (this) {
+			if (state == STATE_LOADING && !abandoned) {
+				ImageLoadFuture future = new ImageLoadFuture(this);
+				futures.add(future);
+				return future;
+			}
+		}
+		unregister();
+		return null;
+	}
+
+	/**
+	 * Detaches incoming future from this loading. Loading is cancelled if it hasn't other futures.
+	 *
+	 * @return <b>true</b> - if future was detached; <b>false</b> - if loading is finished already
+	 */
+	boolean cancel(ImageLoadFuture future) {
+		boolean lastFuture;
+		synchronized (this) {
+			if (state != STATE_LOADING || !futures.remove(future)) return false;
+			abandoned = lastFuture = futures.isEmpty();
+		}
+		if (lastFuture) {
+			unregister();
+			imageLoader.cancelDisplayTask(imageAware);
+		}
+		return true;
+	}
+
+	int getState() {
+		return state;
+	}
+
+	Bitmap getBitmap() {
+		return bitmap;
+	}
+
+	FailReason getFailReason() {
+		return failReason;
+	}
+
+	@Override
+	public void onLoadingStarted(String imageUri, View view) {
+	}
+
+	@Override
+	public void onLoadingFailed(String imageUri, View view, FailReason failReason) {
+		complete(STATE_FAILED, null, failReason);
+	}
+
+	@Override
+	public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
+		complete(STATE_COMPLETED, loadedImage, null);
+	}
+
+	@Override
+	public void onLoadingCancelled(String imageUri, View view) {
+		complete(STATE_CANCELLED, null, null);
+	}
+
+	private void complete(int state, Bitmap bitmap, FailReason failReason) {
+		unregister();
+		List<ImageLoadFuture> completedFutures;
+		synchronized (this) {
+			if (this.state != STATE_LOADING) return;
+			this.bitmap = bitmap;
+			this.failReason = failReason;
+			this.state = state;
+			completedFutures = new ArrayList<ImageLoadFuture>(futures);
+			futures.clear();
+		}
+		if (state != STATE_COMPLETED) {
+			//成功展示的时候DisplayBitmapTask会移除载体的请求，失败或者取消的时候需要自己移除
+			//否则每次失败的加载都会在引擎中留下请求和它的任务
+			imageLoader.cancelDisplayTask(imageAware);
+		}
+		for (ImageLoadFuture future : completedFutures) {
+			future.fireDone();
+		}
+	}
+
+	/** Removes this loading from shared loadings so following requests will start new loading */
+	private void unregister() {
+		synchronized (loads) {
+			if (loads.get(memoryCacheKey) == this) {
+				loads.remove(memoryCacheKey);
+			}
+		}
+	}
+}
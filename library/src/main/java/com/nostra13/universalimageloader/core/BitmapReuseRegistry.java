@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.util.SparseArray;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapEvictionListener;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.core.imageaware.ImageAware;
+import com.nostra13.universalimageloader.core.imageaware.ViewAware;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Tracks owners of bitmaps which were put into memory cache by {@link ImageLoader} and returns bitmap to
+ * {@linkplain BitmapPool bitmap pool} when nobody uses it anymore. Ownership rules:
+ * <ul>
+ * <li>Only bitmaps which were decoded and cached by ImageLoader are tracked. Bitmaps put into memory cache by other
+ * code are never pooled.</li>
+ * <li>Bitmap is owned by memory cache until it's evicted from cache.</li>
+ * <li>Bitmap is leased in flight while it's passed to display (or process'n'display) task which isn't run yet. Lease
+ * is released when the task is run, whether it displays the bitmap or drops it (e.g. if view was reused).</li>
+ * <li>Bitmap is leased by view while ImageLoader displays it in the view ({@link ViewAware}). Lease is released when
+ * ImageLoader displays other bitmap in the same view or when the view is collected by GC.</li>
+ * <li>Bitmap which was delivered to non-view target (e.g. by
+ * {@link ImageLoader#loadImageSync(String) loadImageSync()}) is pinned, it's never pooled because it can be kept by
+ * caller. Bitmaps loaded by {@linkplain ImageLoader#prefetch(java.util.Collection,
+ * com.nostra13.universalimageloader.core.assist.PrefetchTarget, com.nostra13.universalimageloader.core.assist.ImageSize)
+ * prefetch} aren't delivered to anyone so they aren't pinned.</li>
+ * </ul>
+ * Bitmap which isn't cached, isn't leased (in view or in flight) and isn't pinned is put into pool.
+ *
+ * @see ImageLoaderConfiguration.Builder#bitmapPool(BitmapPool)
+ * @since 1.9.5
+ */
+final class BitmapReuseRegistry implements BitmapEvictionListener {
+
+	private static final int MIN_PRUNE_THRESHOLD = 32;
+
+	private final BitmapPool bitmapPool;
+	private final Map<Bitmap, Owners> bitmaps = new IdentityHashMap<Bitmap, Owners>();
+	//载体ID以及载体当前展示的Bitmap，ID不装箱，重复展示时不创建对象
+	private final SparseArray<Lease> leases = new SparseArray<Lease>();
+	private int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+	BitmapReuseRegistry(BitmapPool bitmapPool) {
+		this.bitmapPool = bitmapPool;
+	}
+
+	/**
+	 * Registers bitmap which is going to be put into memory cache. Must be called <b>before</b> putting so eviction
+	 * which happens right after putting always finds the bitmap registered.
+	 */
+	synchronized void registerCached(Bitmap bitmap) {
+		Owners owners = bitmaps.get(bitmap);
+		if (owners == null) {
+			owners = new Owners();
+			bitmaps.put(bitmap, owners);
+		}
+		owners.cacheCount++;
+	}
+
+	/** Undoes {@linkplain #registerCached(Bitmap) registration} of bitmap which memory cache refused to put */
+	void unregisterCached(Bitmap bitmap) {
+		releaseCached(bitmap);
+	}
+
+	/**
+	 * Takes in-flight lease of bitmap so it isn't pooled until the lease is {@linkplain #releaseInFlight(Bitmap)
+	 * released}. Should be taken when bitmap is read from memory cache or is passed to a task which will display it
+	 * later.
+	 *
+	 * @return <b>true</b> - if lease was taken; <b>false</b> - if bitmap isn't registered (it was never cached by
+	 * ImageLoader or it was released already)
+	 */
+	synchronized boolean acquireInFlight(Bitmap bitmap) {
+		Owners owners = bitmaps.get(bitmap);
+		if (owners == null) return false;
+		owners.inFlightCount++;
+		return true;
+	}
+
+	/** Releases in-flight lease which was {@linkplain #acquireInFlight(Bitmap) taken} before */
+	void releaseInFlight(Bitmap bitmap) {
+		Bitmap released = null;
+		synchronized (this) {
+			Owners owners = bitmaps.get(bitmap);
+			if (owners != null && owners.inFlightCount > 0) {
+				owners.inFlightCount--;
+				released = takeIfUnused(bitmap, owners);
+			}
+		}
+		if (released != null) {
+			bitmapPool.put(released);
+		}
+	}
+
+	@Override
+	public void onBitmapEvicted(String key, Bitmap bitmap) {
+		releaseCached(bitmap);
+	}
+
+	private void releaseCached(Bitmap bitmap) {
+		Bitmap released;
+		synchronized (this) {
+			Owners owners = bitmaps.get(bitmap);
+			if (owners == null || owners.cacheCount == 0) return;
+			owners.cacheCount--;
+			released = takeIfUnused(bitmap, owners);
+		}
+		if (released != null) {
+			bitmapPool.put(released);
+		}
+	}
+
+	/** Registers bitmap which was displayed in incoming image aware */
+	void onDisplayed(ImageAware imageAware, Bitmap bitmap) {
+		Bitmap released = null;
+		synchronized (this) {
+			if (!(imageAware instanceof ViewAware)) {
+				//交给调用者的Bitmap可能被一直持有，永远不能复用
+				Owners owners = bitmaps.get(bitmap);
+				if (owners != null) {
+					owners.pinned = true;
+				}
+				return;
+			}
+			int viewId = imageAware.getId();
+			Lease lease = leases.get(viewId);
+			if (lease == null) {
+				pruneCollectedLeasesIfNeed();
+				lease = new Lease();
+				leases.put(viewId, lease);
+			}
+			lease.imageAware = imageAware;
+			if (lease.bitmap != bitmap) {
+				if (lease.counted) {
+					released = release(lease.bitmap);
+				}
+				Owners owners = bitmaps.get(bitmap);
+				if (owners != null) {
+					owners.leaseCount++;
+				}
+				lease.bitmap = bitmap;
+				lease.counted = owners != null;
+			}
+		}
+		if (released != null) {
+			bitmapPool.put(released);
+		}
+	}
+
+	/** Releases leases of views which were collected by GC. Is amortized by growth of leases map. */
+	private void pruneCollectedLeasesIfNeed() {
+		if (leases.size() < pruneThreshold) return;
+		for (int i = leases.size() - 1; i >= 0; i--) {
+			Lease lease = leases.valueAt(i);
+			if (lease.imageAware.isCollected()) {
+				leases.removeAt(i);
+				if (!lease.counted) continue;
+				Bitmap released = release(lease.bitmap);
+				if (released != null) {
+					//在锁中放入池中，避免在遍历过程中释放锁
+					bitmapPool.put(released);
+				}
+			}
+		}
+		pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, leases.size() * 2);
+	}
+
+	/** @return Bitmap if it's unused after release; <b>null</b> - otherwise */
+	private Bitmap release(Bitmap bitmap) {
+		Owners owners = bitmaps.get(bitmap);
+		if (owners == null || owners.leaseCount == 0) return null;
+		owners.leaseCount--;
+		return takeIfUnused(bitmap, owners);
+	}
+
+	private Bitmap takeIfUnused(Bitmap bitmap, Owners owners) {
+		if (owners.cacheCount > 0 || owners.leaseCount > 0 || owners.inFlightCount > 0) return null;
+		bitmaps.remove(bitmap);
+		return owners.pinned ? null : bitmap;
+	}
+
+	/** Forgets all owners. Bitmaps aren't pooled. */
+	synchronized void clear() {
+		bitmaps.clear();
+		leases.clear();
+		pruneThreshold = MIN_PRUNE_THRESHOLD;
+	}
+
+	private static class Owners {
+		int cacheCount;
+		int leaseCount;
+		int inFlightCount;
+		boolean pinned;
+	}
+
+	private static class Lease {
+		ImageAware imageAware;
+		Bitmap bitmap;
+		//租用是否计入了Bitmap的租用数，只有登记过的Bitmap才会计数
+		boolean counted;
+	}
+}
@@ -25,10 +25,12 @@ import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiskCache;
 import com.nostra13.universalimageloader.cache.disc.impl.ext.LruDiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
 import com.nostra13.universalimageloader.cache.disc.naming.HashCodeFileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
-import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.ConcurrentLruMemoryCache;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
+import com.nostra13.universalimageloader.core.assist.PriorityTaskQueue;
 import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
-import com.nostra13.universalimageloader.core.assist.deque.LIFOLinkedBlockingDeque;
 import com.nostra13.universalimageloader.core.decode.BaseImageDecoder;
 import com.nostra13.universalimageloader.core.decode.ImageDecoder;
 import com.nostra13.universalimageloader.core.display.BitmapDisplayer;
@@ -40,10 +42,12 @@ import com.nostra13.universalimageloader.utils.StorageUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Locale;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -57,21 +61,67 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class DefaultConfigurationFactory {
 
-	/** Creates default implementation of task executor */
+	/**
+	 * Creates default implementation of task executor. Tasks are taken from {@linkplain PriorityTaskQueue queue} by
+	 * priority, tasks of equal priority - according to <b>tasksProcessingType</b>.
+	 */
 	public static Executor createExecutor(int threadPoolSize, int threadPriority,
 			QueueProcessingType tasksProcessingType) {
-		boolean lifo = tasksProcessingType == QueueProcessingType.LIFO;
-		BlockingQueue<Runnable> taskQueue =
-				lifo ? new LIFOLinkedBlockingDeque<Runnable>() : new LinkedBlockingQueue<Runnable>();
+		return createExecutor(threadPoolSize, threadPriority, tasksProcessingType,
+				PriorityTaskQueue.DEFAULT_MAX_WAIT_MILLIS);
+	}
+
+	/**
+	 * Creates default implementation of task executor. Tasks are taken from {@linkplain PriorityTaskQueue queue} by
+	 * priority, tasks of equal priority - according to <b>tasksProcessingType</b>. Task which waits longer than
+	 * <b>taskMaxWaitMillis</b> is taken before tasks of greater priority.
+	 *
+	 * @since 1.9.5
+	 */
+	public static Executor createExecutor(int threadPoolSize, int threadPriority,
+			QueueProcessingType tasksProcessingType, long taskMaxWaitMillis) {
+		BlockingQueue<Runnable> taskQueue = new PriorityTaskQueue(tasksProcessingType, taskMaxWaitMillis);
 		return new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, taskQueue,
 				createThreadFactory(threadPriority, "uil-pool-"));
 	}
 
+	/**
+	 * Creates executor for incoming stage of staged pipeline. Executor's queue is bounded by <b>queueCapacity</b>, so
+	 * executor rejects tasks when queue is full. Task which waits longer than <b>taskMaxWaitMillis</b> is taken before
+	 * tasks of greater priority.
+	 */
+	public static Executor createStageExecutor(PipelineStage stage, int poolSize, int queueCapacity,
+			int threadPriority, QueueProcessingType tasksProcessingType, long taskMaxWaitMillis) {
+		BlockingQueue<Runnable> taskQueue = new PriorityTaskQueue(tasksProcessingType, taskMaxWaitMillis,
+				queueCapacity);
+		String threadNamePrefix = "uil-pool-" + stage.name().toLowerCase(Locale.US) + "-";
+		return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, taskQueue,
+				createThreadFactory(threadPriority, threadNamePrefix));
+	}
+
 	/** Creates default implementation of task distributor */
 	public static Executor createTaskDistributor() {
 		return Executors.newCachedThreadPool(createThreadFactory(Thread.NORM_PRIORITY, "uil-pool-d-"));
 	}
 
+	/**
+	 * Creates scheduler for tasks which should be delayed before loading and for deadlines of requests. Cancelled timers
+	 * are removed from its queue at once on API 21+.
+	 */
+	public static ScheduledExecutorService createTaskScheduler() {
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+				createThreadFactory(Thread.NORM_PRIORITY, "uil-pool-t-"));
+		if (Build.VERSION.SDK_INT >= 21) {
+			setRemoveOnCancelPolicy(scheduler);
+		}
+		return scheduler;
+	}
+
+	@TargetApi(21)
+	private static void setRemoveOnCancelPolicy(ScheduledThreadPoolExecutor scheduler) {
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
 	/** Creates {@linkplain HashCodeFileNameGenerator default implementation} of FileNameGenerator */
 	public static FileNameGenerator createFileNameGenerator() {
 		return new HashCodeFileNameGenerator();
@@ -108,7 +158,7 @@ public class DefaultConfigurationFactory {
 	}
 
 	/**
-	 * Creates default implementation of {@link MemoryCache} - {@link LruMemoryCache}<br />
+	 * Creates default implementation of {@link MemoryCache} - {@link ConcurrentLruMemoryCache}<br />
 	 * Default cache size = 1/8 of available app memory.
 	 */
 	public static MemoryCache createMemoryCache(Context context, int memoryCacheSize) {
@@ -120,7 +170,7 @@ public class DefaultConfigurationFactory {
 			}
 			memoryCacheSize = 1024 * 1024 * memoryClass / 8;
 		}
-		return new LruMemoryCache(memoryCacheSize);
+		return new ConcurrentLruMemoryCache(memoryCacheSize);
 	}
 
 	private static boolean hasHoneycomb() {
@@ -147,6 +197,14 @@ public class DefaultConfigurationFactory {
 		return new BaseImageDecoder(loggingEnabled);
 	}
 
+	/**
+	 * Creates default implementation of {@link ImageDecoder} - {@link BaseImageDecoder} which reuses bitmaps from
+	 * incoming pool (can be <b>null</b>)
+	 */
+	public static ImageDecoder createImageDecoder(boolean loggingEnabled, BitmapPool bitmapPool) {
+		return new BaseImageDecoder(loggingEnabled, bitmapPool);
+	}
+
 	/** Creates default implementation of {@link BitmapDisplayer} - {@link SimpleBitmapDisplayer} */
 	public static BitmapDisplayer createBitmapDisplayer() {
 		return new SimpleBitmapDisplayer();
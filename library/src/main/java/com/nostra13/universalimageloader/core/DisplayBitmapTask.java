@@ -16,14 +16,19 @@
 package com.nostra13.universalimageloader.core;
 
 import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
 import com.nostra13.universalimageloader.core.display.BitmapDisplayer;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
 import com.nostra13.universalimageloader.utils.L;
+import com.nostra13.universalimageloader.utils.ObjectPool;
 
 /**
  * Displays bitmap in {@link com.nostra13.universalimageloader.core.imageaware.ImageAware}. Must be called on UI thread.
+ * Task is taken from pool by {@link #obtain(Bitmap, ImageLoadingInfo, ImageLoaderEngine, LoadedFrom)} and is
+ * returned to pool after it's run, so task must be run only once and mustn't be referenced after that.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see ImageLoadingListener
@@ -35,47 +40,107 @@ final class DisplayBitmapTask implements Runnable {
 	private static final String LOG_DISPLAY_IMAGE_IN_IMAGEAWARE = "Display image in ImageAware (loaded from %1$s) [%2$s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_REUSED = "ImageAware is reused for another image. Task is cancelled. [%s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED = "ImageAware was collected by GC. Task is cancelled. [%s]";
+	private static final String LOG_TASK_EXPIRED = "Deadline of request is exceeded. Image isn't displayed. [%s]";
 
-	private final Bitmap bitmap;
-	private final String imageUri;
-	private final ImageAware imageAware;
-	private final String memoryCacheKey;
-	private final BitmapDisplayer displayer;
-	private final ImageLoadingListener listener;
-	private final ImageLoaderEngine engine;
-	private final LoadedFrom loadedFrom;
+	private static final int MAX_POOL_SIZE = 32;
 
-	public DisplayBitmapTask(Bitmap bitmap, ImageLoadingInfo imageLoadingInfo, ImageLoaderEngine engine,
+	static final ObjectPool<DisplayBitmapTask> POOL = new ObjectPool<DisplayBitmapTask>(MAX_POOL_SIZE) {
+		@Override
+		protected DisplayBitmapTask create() {
+			return new DisplayBitmapTask();
+		}
+	};
+
+	private Bitmap bitmap;
+	//是否持有bitmap的租用，任务执行之前bitmap不会被放入复用池
+	private boolean bitmapAcquired;
+	private String imageUri;
+	private ImageAware imageAware;
+	private String memoryCacheKey;
+	private int generation;
+	private ImageLoadingInfo imageLoadingInfo;
+	private BitmapDisplayer displayer;
+	private ImageLoadingListener listener;
+	private ImageLoaderEngine engine;
+	private LoadedFrom loadedFrom;
+
+	private DisplayBitmapTask() {
+	}
+
+	static DisplayBitmapTask obtain(Bitmap bitmap, ImageLoadingInfo imageLoadingInfo, ImageLoaderEngine engine,
 			LoadedFrom loadedFrom) {
-		this.bitmap = bitmap;
-		imageUri = imageLoadingInfo.uri;
-		imageAware = imageLoadingInfo.imageAware;
-		memoryCacheKey = imageLoadingInfo.memoryCacheKey;
-		displayer = imageLoadingInfo.options.getDisplayer();
-		listener = imageLoadingInfo.listener;
-		this.engine = engine;
-		this.loadedFrom = loadedFrom;
+		DisplayBitmapTask task = POOL.acquire();
+		task.bitmap = bitmap;
+		task.bitmapAcquired = engine.acquireBitmap(bitmap);
+		task.imageUri = imageLoadingInfo.uri;
+		task.imageAware = imageLoadingInfo.imageAware;
+		task.memoryCacheKey = imageLoadingInfo.memoryCacheKey;
+		task.generation = imageLoadingInfo.generation;
+		task.imageLoadingInfo = imageLoadingInfo;
+		task.displayer = imageLoadingInfo.options.getDisplayer();
+		task.listener = imageLoadingInfo.listener;
+		task.engine = engine;
+		task.loadedFrom = loadedFrom;
+		return task;
 	}
 
 	@Override
 	public void run() {
+		try {
+			display();
+		} finally {
+			recycle();
+		}
+	}
+
+	private void display() {
 		if (imageAware.isCollected()) {//当前载体是否被回收
 			L.d(LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED, memoryCacheKey);
 			listener.onLoadingCancelled(imageUri, imageAware.getWrappedView());
 		} else if (isViewWasReused()) {//当前请求是否已经过期
 			L.d(LOG_TASK_CANCELLED_IMAGEAWARE_REUSED, memoryCacheKey);
 			listener.onLoadingCancelled(imageUri, imageAware.getWrappedView());
+		} else if (imageLoadingInfo.isExpired()) {//请求已经超过截止时间，不再展示过时的图片
+			L.d(LOG_TASK_EXPIRED, memoryCacheKey);
+			DisplayImageOptions options = imageLoadingInfo.options;
+			if (options.shouldShowImageOnFail()) {
+				imageAware.setImageDrawable(options.getImageOnFail(engine.configuration.resources));
+			}
+			engine.cancelDisplayTaskFor(imageAware);
+			listener.onLoadingFailed(imageUri, imageAware.getWrappedView(),
+					new FailReason(FailType.DEADLINE_EXCEEDED, null));
 		} else {
 			L.d(LOG_DISPLAY_IMAGE_IN_IMAGEAWARE, loadedFrom, memoryCacheKey);
 			displayer.display(bitmap, imageAware, loadedFrom);
+			//预加载的bitmap只留在内存缓存中，不需要登记使用者
+			if (!imageLoadingInfo.prefetch) {
+				engine.onBitmapDisplayed(imageAware, bitmap);
+			}
 			engine.cancelDisplayTaskFor(imageAware);
 			listener.onLoadingComplete(imageUri, imageAware.getWrappedView(), bitmap);
 		}
 	}
 
-	/** Checks whether memory cache key (image URI) for current ImageAware is actual */
+	/** Releases lease of bitmap and references to request objects and returns task to pool */
+	private void recycle() {
+		if (bitmapAcquired) {
+			engine.releaseBitmap(bitmap);
+			bitmapAcquired = false;
+		}
+		bitmap = null;
+		imageUri = null;
+		imageAware = null;
+		memoryCacheKey = null;
+		imageLoadingInfo = null;
+		displayer = null;
+		listener = null;
+		engine = null;
+		loadedFrom = null;
+		POOL.release(this);
+	}
+
+	/** Checks whether display request for current ImageAware is actual */
 	private boolean isViewWasReused() {
-		String currentCacheKey = engine.getLoadingUriForView(imageAware);
-		return !memoryCacheKey.equals(currentCacheKey);
+		return engine.isViewReused(imageAware, generation);
 	}
 }
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import com.nostra13.universalimageloader.core.listener.DisplayBatchListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects {@linkplain DisplayBitmapTask display tasks} posted from loading threads and applies them on UI thread in
+ * one batch per frame. Frames are ticked by {@link Choreographer} on API 16+ and by single message of UI thread handler
+ * on older versions. Displays which don't fit in time budget of frame are deferred to next frame.
+ *
+ * @see ImageLoaderConfiguration.Builder#batchedDisplay(int, DisplayBatchListener)
+ * @since 1.9.5
+ */
+final class DisplayDispatcher {
+
+	private final Handler uiHandler = new Handler(Looper.getMainLooper());
+	private final long frameBudgetNanos;
+	private final DisplayBatchListener batchListener;
+
+	//加载线程提交的展示任务，通过this同步
+	private final List<Runnable> pendingTasks = new ArrayList<Runnable>();
+	private boolean frameRequested;
+	//当前帧要执行的展示任务，只在UI线程中访问，超出时间预算的任务留到下一帧
+	private final List<Runnable> frameTasks = new ArrayList<Runnable>();
+
+	private final FrameTick frameTick;
+	private final Runnable frameRequest = new Runnable() {
+		@Override
+		public void run() {
+			if (frameTick != null) {
+				frameTick.postFrameCallback();
+			} else {
+				doFrame();
+			}
+		}
+	};
+
+	DisplayDispatcher(int frameBudgetMillis, DisplayBatchListener batchListener) {
+		this.frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(frameBudgetMillis);
+		this.batchListener = batchListener;
+		frameTick = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ? new FrameTick(this) : null;
+	}
+
+	/** Schedules display task to be run on UI thread in next frame */
+	void post(Runnable displayTask) {
+		synchronized (this) {
+			pendingTasks.add(displayTask);
+		}
+		requestFrame();
+	}
+
+	private void requestFrame() {
+		synchronized (this) {
+			if (frameRequested) return;
+			frameRequested = true;
+		}
+		uiHandler.post(frameRequest);
+	}
+
+	/** Runs display tasks of frame within time budget. Is called on UI thread. */
+	void doFrame() {
+		synchronized (this) {
+			frameTasks.addAll(pendingTasks);
+			pendingTasks.clear();
+			frameRequested = false;
+		}
+		long start = System.nanoTime();
+		int displayedCount = 0;
+		int size = frameTasks.size();
+		while (displayedCount < size) {
+			frameTasks.get(displayedCount++).run();
+			if (System.nanoTime() - start >= frameBudgetNanos) break;
+		}
+		long batchTime = System.nanoTime() - start;
+		frameTasks.subList(0, displayedCount).clear();
+
+		int deferredCount = frameTasks.size();
+		if (deferredCount > 0) {
+			requestFrame();
+		}
+		if (batchListener != null && displayedCount > 0) {
+			batchListener.onDisplayBatch(displayedCount, deferredCount, batchTime);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static class FrameTick implements Choreographer.FrameCallback {
+
+		private final DisplayDispatcher dispatcher;
+
+		FrameTick(DisplayDispatcher dispatcher) {
+			this.dispatcher = dispatcher;
+		}
+
+		/** Must be called on UI thread */
+		void postFrameCallback() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			dispatcher.doFrame();
+		}
+	}
+}
@@ -48,6 +48,9 @@ import com.nostra13.universalimageloader.core.process.BitmapProcessor;
  * <li>pre-processor for image Bitmap (before caching in memory)</li>
  * <li>post-processor for image Bitmap (after caching in memory, before displaying)</li>
  * <li>how decoded {@link Bitmap} will be displayed</li>
+ * <li>priority of loading task</li>
+ * <li>deadline of request</li>
+ * <li>tag of request group</li>
  * </ul>
  * <p/>
  * You can create instance:
@@ -83,6 +86,10 @@ public final class DisplayImageOptions {
 	private final BitmapDisplayer displayer;
 	private final Handler handler;
 	private final boolean isSyncLoading;
+	private final boolean hasPriority;
+	private final int priority;
+	private final int deadline;
+	private final Object tag;
 
 	private DisplayImageOptions(Builder builder) {
 		imageResOnLoading = builder.imageResOnLoading;
@@ -104,6 +111,10 @@ public final class DisplayImageOptions {
 		displayer = builder.displayer;
 		handler = builder.handler;
 		isSyncLoading = builder.isSyncLoading;
+		hasPriority = builder.hasPriority;
+		priority = builder.priority;
+		deadline = builder.deadline;
+		tag = builder.tag;
 	}
 
 	public boolean shouldShowImageOnLoading() {
@@ -190,6 +201,32 @@ public final class DisplayImageOptions {
 		return handler;
 	}
 
+	/**
+	 * Returns <b>true</b> - if priority of loading task was set explicitly; <b>false</b> - if
+	 * {@linkplain ImageLoaderConfiguration.Builder#defaultTaskPriority(int) default priority} is used
+	 */
+	public boolean hasPriority() {
+		return hasPriority;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	/** Returns <b>true</b> if request has {@linkplain Builder#deadline(int) deadline} */
+	public boolean hasDeadline() {
+		return deadline > 0;
+	}
+
+	public int getDeadline() {
+		return deadline;
+	}
+
+	/** Returns {@linkplain Builder#tag(Object) tag} of request or <b>null</b> if request isn't tagged */
+	public Object getTag() {
+		return tag;
+	}
+
 	boolean isSyncLoading() {
 		return isSyncLoading;
 	}
@@ -242,6 +279,13 @@ public final class DisplayImageOptions {
 		private boolean isSyncLoading = false;
 		//用于在通过ImageDownloader中通过uri获取图片的输入流的时候传递的一个参数
 		private Object extraForDownloader = null;
+		//加载任务的优先级，优先级高的任务会先于优先级低的任务从线程池的队列中取出执行
+		//没有设置的时候使用ImageLoaderConfiguration中的默认优先级
+		private boolean hasPriority = false;
+		private int priority = 0;
+		private int deadline = 0;
+		//请求所属的分组，可以按照分组暂停、继续或者取消请求
+		private Object tag = null;
 
 		/**
 		 * Stub image will be displayed in {@link com.nostra13.universalimageloader.core.imageaware.ImageAware
@@ -464,6 +508,49 @@ public final class DisplayImageOptions {
 			return this;
 		}
 
+		/**
+		 * Sets priority of image loading task. Tasks with greater priority are executed before tasks with lower
+		 * priority (e.g. on-screen images before prefetches). Waiting tasks of lower priority are not starved, they
+		 * are executed anyway after some time.<br />
+		 * Default value - {@linkplain ImageLoaderConfiguration.Builder#defaultTaskPriority(int) default priority of
+		 * configuration}
+		 *
+		 * @see ImageLoader#setPriority(com.nostra13.universalimageloader.core.imageaware.ImageAware, int)
+		 */
+		public Builder priority(int priority) {
+			this.hasPriority = true;
+			this.priority = priority;
+			return this;
+		}
+
+		/**
+		 * Sets deadline (in milliseconds) of request measured from
+		 * {@linkplain ImageLoader#displayImage(String, com.nostra13.universalimageloader.core.imageaware.ImageAware, DisplayImageOptions, ImageLoadingListener)
+		 * display call}. Request which isn't completed before deadline is dropped (even if it's still waiting in
+		 * execution queue) and
+		 * {@link ImageLoadingListener#onLoadingFailed(String, android.view.View, com.nostra13.universalimageloader.core.assist.FailReason)}
+		 * is fired with {@link com.nostra13.universalimageloader.core.assist.FailReason.FailType#DEADLINE_EXCEEDED}.
+		 * Image which was loaded after deadline isn't displayed but it's still cached. Default - no deadline.
+		 */
+		public Builder deadline(int deadlineInMillis) {
+			this.deadline = deadlineInMillis;
+			return this;
+		}
+
+		/**
+		 * Sets tag of request. Requests with the same tag (e.g. requests of one screen) can be paused, resumed and
+		 * cancelled together. Tags are compared by {@link Object#equals(Object)}. Default - <b>null</b> (request isn't
+		 * tagged).
+		 *
+		 * @see ImageLoader#pauseTag(Object)
+		 * @see ImageLoader#resumeTag(Object)
+		 * @see ImageLoader#cancelTag(Object)
+		 */
+		public Builder tag(Object tag) {
+			this.tag = tag;
+			return this;
+		}
+
 		Builder syncLoading(boolean isSyncLoading) {
 			this.isSyncLoading = isSyncLoading;
 			return this;
@@ -499,6 +586,10 @@ public final class DisplayImageOptions {
 			displayer = options.displayer;
 			handler = options.handler;
 			isSyncLoading = options.isSyncLoading;
+			hasPriority = options.hasPriority;
+			priority = options.priority;
+			deadline = options.deadline;
+			tag = options.tag;
 			return this;
 		}
 
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.ImageLoadResult.Status;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads list of images in parallel using {@link ImageLoader#loadImageAsync(String, ImageSize, DisplayImageOptions)}.
+ * Repeated requests (the same URI and target size) are loaded once. Count of loadings running at the same time is
+ * limited.
+ *
+ * @see ImageLoader#loadImagesSync(List, List, DisplayImageOptions, long, int)
+ * @since 1.9.5
+ */
+final class ImageBatchLoad implements ImageLoadFuture.Listener {
+
+	private final ImageLoader imageLoader;
+	private final DisplayImageOptions options;
+
+	//去重之后的请求
+	private final List<String> uniqueUris = new ArrayList<String>();
+	private final List<ImageSize> uniqueSizes = new ArrayList<ImageSize>();
+	//每一个输入请求对应的去重后请求的下标
+	private final int[] requestIndexes;
+	private final ImageLoadFuture[] futures;
+	private final CountDownLatch completion;
+
+	//以下变量通过this同步
+	private int permits;
+	private int nextRequest;
+	private boolean starting;
+	private boolean stopped;
+
+	ImageBatchLoad(ImageLoader imageLoader, List<String> uris, List<ImageSize> targetSizes, DisplayImageOptions options) {
+		this.imageLoader = imageLoader;
+		this.options = options;
+
+		requestIndexes = new int[uris.size()];
+		Map<String, Integer> keyIndexes = new HashMap<String, Integer>();
+		for (int i = 0; i < uris.size(); i++) {
+			String uri = uris.get(i);
+			ImageSize targetSize = targetSizes.get(i);
+			String key = uri + "_" + targetSize;
+			Integer index = keyIndexes.get(key);
+			if (index == null) {
+				index = uniqueUris.size();
+				keyIndexes.put(key, index);
+				uniqueUris.add(uri);
+				uniqueSizes.add(targetSize);
+			}
+			requestIndexes[i] = index;
+		}
+		futures = new ImageLoadFuture[uniqueUris.size()];
+		completion = new CountDownLatch(futures.length);
+	}
+
+	/**
+	 * Loads images and waits for results.
+	 *
+	 * @param timeoutMillis  Max time of waiting for all images. Non-positive value means no limit.
+	 * @param maxConcurrency Max count of loadings running at the same time
+	 * @return Results in order of requests
+	 */
+	List<ImageLoadResult> execute(long timeoutMillis, int maxConcurrency) {
+		synchronized (this) {
+			permits = maxConcurrency;
+			starting = true;
+		}
+		startPendingLoads();
+
+		boolean interrupted = false;
+		try {
+			if (timeoutMillis > 0) {
+				completion.await(timeoutMillis, TimeUnit.MILLISECONDS);
+			} else {
+				completion.await();
+			}
+		} catch (InterruptedException e) {
+			interrupted = true;
+		}
+		synchronized (this) {
+			stopped = true;
+		}
+
+		ImageLoadResult[] uniqueResults = new ImageLoadResult[futures.length];
+		for (int i = 0; i < futures.length; i++) {
+			uniqueResults[i] = createResult(i, interrupted ? Status.CANCELLED : Status.TIMED_OUT);
+		}
+		List<ImageLoadResult> results = new ArrayList<ImageLoadResult>(requestIndexes.length);
+		for (int index : requestIndexes) {
+			results.add(uniqueResults[index]);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return results;
+	}
+
+	@Override
+	public void onDone(ImageLoadFuture future) {
+		completion.countDown();
+		synchronized (this) {
+			permits++;
+			if (starting) return; // thread which is starting loads will start next one
+			starting = true;
+		}
+		startPendingLoads();
+	}
+
+	/** Starts loadings while there are free permits. Only one thread starts loadings at a moment. */
+	private void startPendingLoads() {
+		while (true) {
+			int index;
+			synchronized (this) {
+				if (stopped || permits == 0 || nextRequest == futures.length) {
+					starting = false;
+					return;
+				}
+				permits--;
+				index = nextRequest++;
+			}
+			ImageLoadFuture future = imageLoader.loadImageAsync(uniqueUris.get(index), uniqueSizes.get(index), options);
+			synchronized (this) {
+				futures[index] = future;
+			}
+			future.addListener(this);
+		}
+	}
+
+	/** Creates result of unique request. Unfinished loading is cancelled and gets <b>unfinishedStatus</b>. */
+	private ImageLoadResult createResult(int index, Status unfinishedStatus) {
+		String uri = uniqueUris.get(index);
+		ImageLoadFuture future;
+		synchronized (this) {
+			future = futures[index];
+		}
+		if (future == null || !future.isDone() && future.cancel(false)) {
+			return new ImageLoadResult(uri, unfinishedStatus, null, null);
+		}
+		if (future.isCancelled()) {
+			return new ImageLoadResult(uri, Status.CANCELLED, null, null);
+		}
+		if (future.getFailReason() != null) {
+			return new ImageLoadResult(uri, Status.FAILED, null, future.getFailReason());
+		}
+		return new ImageLoadResult(uri, Status.LOADED, future.getBitmap(), null);
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Result of asynchronous image loading started by
+ * {@link ImageLoader#loadImageAsync(String, com.nostra13.universalimageloader.core.assist.ImageSize, DisplayImageOptions)}.
+ * <br />
+ * Futures requested for the same image (and the same target size) share one loading. Cancellation of a future detaches
+ * it from the loading; the loading itself is cancelled (removed from execution queue or stopped) when all its futures
+ * are cancelled.<br />
+ * Futures can be composed by {@linkplain #addListener(Listener) listeners} and {@link #whenAll(Collection, Runnable)}.
+ * Listeners are called on the thread which delivers {@linkplain com.nostra13.universalimageloader.core.listener.ImageLoadingListener
+ * loading callbacks} (UI thread if loading was started on UI thread) or on the thread which cancels the future.
+ *
+ * @since 1.9.5
+ */
+public final class ImageLoadFuture implements Future<Bitmap> {
+
+	/** Listener which is called when future is done (completed, failed or cancelled) */
+	public interface Listener {
+		void onDone(ImageLoadFuture future);
+	}
+
+	private final AsyncImageLoad load;
+	private final CountDownLatch done = new CountDownLatch(1);
+	private volatile boolean cancelled;
+
+	private List<Listener> listeners;
+	private boolean notified;
+
+	ImageLoadFuture(AsyncImageLoad load) {
+		this.load = load;
+	}
+
+	/**
+	 * Cancels this future. Shared loading is cancelled if no other futures wait for it.
+	 *
+	 * @param mayInterruptIfRunning Isn't considered. Running loading is stopped at nearest check of its actuality.
+	 * @return <b>true</b> - if future was cancelled; <b>false</b> - if it's done already
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (!load.cancel(this)) return false;
+		cancelled = true;
+		fireDone();
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled || load.getState() == AsyncImageLoad.STATE_CANCELLED;
+	}
+
+	@Override
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	/**
+	 * Waits for loaded image.
+	 *
+	 * @return Loaded image. Can be <b>null</b> if image URI is empty.
+	 * @throws CancellationException if future or loading was cancelled
+	 * @throws ExecutionException    if loading was failed. Message of exception is name of {@linkplain
+	 *                               FailReason.FailType fail type}, cause is cause of {@linkplain #getFailReason()
+	 *                               fail reason}.
+	 */
+	@Override
+	public Bitmap get() throws InterruptedException, ExecutionException {
+		done.await();
+		return getResult();
+	}
+
+	@Override
+	public Bitmap get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!done.await(timeout, unit)) throw new TimeoutException();
+		return getResult();
+	}
+
+	/** Returns loaded image or <b>null</b> if loading isn't completed successfully (yet). Doesn't block. */
+	public Bitmap getBitmap() {
+		return cancelled ? null : load.getBitmap();
+	}
+
+	/** Returns reason of loading fail or <b>null</b> if loading isn't failed (yet). Doesn't block. */
+	public FailReason getFailReason() {
+		return cancelled ? null : load.getFailReason();
+	}
+
+	/** Adds listener which will be called when this future is done. Listener is called at once if it's done already. */
+	public ImageLoadFuture addListener(Listener listener) {
+		synchronized (this) {
+			if (!notified) {
+				if (listeners == null) {
+					listeners = new ArrayList<Listener>(1);
+				}
+				listeners.add(listener);
+				return this;
+			}
+		}
+		listener.onDone(this);
+		return this;
+	}
+
+	/** Runs <b>action</b> when all incoming futures are done (completed, failed or cancelled) */
+	public static void whenAll(Collection<ImageLoadFuture> futures, final Runnable action) {
+		if (futures.isEmpty()) {
+			action.run();
+			return;
+		}
+		final AtomicInteger remaining = new AtomicInteger(futures.size());
+		Listener listener = new Listener() {
+			@Override
+			public void onDone(ImageLoadFuture future) {
+				if (remaining.decrementAndGet() == 0) {
+					action.run();
+				}
+			}
+		};
+		for (ImageLoadFuture future : futures) {
+			future.addListener(listener);
+		}
+	}
+
+	void fireDone() {
+		List<Listener> listenersToNotify;
+		synchronized (this) {
+			if (notified) return;
+			notified = true;
+			listenersToNotify = listeners;
+			listeners = null;
+		}
+		done.countDown();
+		if (listenersToNotify != null) {
+			for (Listener listener : listenersToNotify) {
+				listener.onDone(this);
+			}
+		}
+	}
+
+	private Bitmap getResult() throws ExecutionException {
+		if (isCancelled()) throw new CancellationException();
+		FailReason failReason = load.getFailReason();
+		if (failReason != null) {
+			throw new ExecutionException(failReason.getType().name(), failReason.getCause());
+		}
+		return load.getBitmap();
+	}
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+
+/**
+ * Result of loading of one image by {@link ImageLoader#loadImagesSync(java.util.List, java.util.List,
+ * DisplayImageOptions, long, int) batch loading}.
+ *
+ * @since 1.9.5
+ */
+public final class ImageLoadResult {
+
+	/** Status of image loading */
+	public enum Status {
+		/** Image was loaded */
+		LOADED,
+		/** Image loading was failed, see {@link #getFailReason()} */
+		FAILED,
+		/** Image loading wasn't completed in time */
+		TIMED_OUT,
+		/** Image loading was cancelled (e.g. image loader was stopped or calling thread was interrupted) */
+		CANCELLED
+	}
+
+	private final String uri;
+	private final Status status;
+	private final Bitmap bitmap;
+	private final FailReason failReason;
+
+	ImageLoadResult(String uri, Status status, Bitmap bitmap, FailReason failReason) {
+		this.uri = uri;
+		this.status = status;
+		this.bitmap = bitmap;
+		this.failReason = failReason;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/** @return Loaded image or <b>null</b> if image wasn't loaded */
+	public Bitmap getBitmap() {
+		return bitmap;
+	}
+
+	/** @return Reason of fail if status is {@link Status#FAILED}; <b>null</b> - otherwise */
+	public FailReason getFailReason() {
+		return failReason;
+	}
+}
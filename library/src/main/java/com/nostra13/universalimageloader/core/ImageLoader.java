@@ -15,7 +15,9 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core;
 
+import android.app.Activity;
 import android.graphics.Bitmap;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
@@ -23,11 +25,14 @@ import android.view.View;
 import android.widget.ImageView;
 
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
+import com.nostra13.universalimageloader.core.assist.PrefetchTarget;
 import com.nostra13.universalimageloader.core.assist.ViewScaleType;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.imageaware.ImageViewAware;
@@ -39,6 +44,15 @@ import com.nostra13.universalimageloader.utils.ImageSizeUtils;
 import com.nostra13.universalimageloader.utils.L;
 import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Singletone for image loading and displaying at {@link ImageView ImageViews}<br />
  * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before any other method.
@@ -53,15 +67,25 @@ public class ImageLoader {
 	static final String LOG_INIT_CONFIG = "Initialize ImageLoader with configuration";
 	static final String LOG_DESTROY = "Destroy ImageLoader";
 	static final String LOG_LOAD_IMAGE_FROM_MEMORY_CACHE = "Load image from memory cache [%s]";
+	static final String LOG_PREFETCH_SKIPPED = "Network is denied or slow. Prefetch of %d images is skipped";
 
 	private static final String WARNING_RE_INIT_CONFIG = "Try to initialize ImageLoader which had already been initialized before. " + "To re-init ImageLoader with new configuration call ImageLoader.destroy() at first.";
 	private static final String ERROR_WRONG_ARGUMENTS = "Wrong arguments were passed to displayImage() method (ImageView reference must not be null)";
 	private static final String ERROR_NOT_INIT = "ImageLoader must be init with configuration before using";
 	private static final String ERROR_INIT_CONFIG_WITH_NULL = "ImageLoader configuration can not be initialized with null";
+	private static final String ERROR_LOAD_IMAGES_SYNC_ON_UI_THREAD = "loadImagesSync() must not be called on UI thread";
+	private static final String ERROR_PREFETCH_TARGET_NULL = "Prefetch target must not be null";
+	private static final String ERROR_TAG_NULL = "Tag must not be null";
+	private static final String ERROR_ACTIVITY_NULL = "Activity must not be null";
+	private static final String WARNING_TAG_BINDING_NOT_SUPPORTED = "Binding of tag to activity lifecycle requires API 14+. Tag isn't bound.";
 	//全局配置，有且只有一个，多次配置只以第一个为准
 	private ImageLoaderConfiguration configuration;
 	//这个其实是线程管理类，顾名思义就是引擎吧
 	private ImageLoaderEngine engine;
+	//loadImageAsync中正在进行的加载，相同内存缓存key的请求共享一个加载
+	private final Map<String, AsyncImageLoad> asyncLoads = new HashMap<String, AsyncImageLoad>();
+	//最近使用的内存缓存key，命中时不需要重新拼接key字符串
+	private final MemoryCacheKeyTable memoryCacheKeys = new MemoryCacheKeyTable();
 	//读取流程监听，默认是空实现
 	private ImageLoadingListener defaultListener = new SimpleImageLoadingListener();
 	//单例实现类，DCL结合volatile才可以真正实现完整单例
@@ -262,38 +286,47 @@ public class ImageLoader {
 			return;
 		}
 		//图片想要的尺寸，这个后期主要用于压缩处理的参数，默认都是null
+		MemoryCacheKeyTable.Entry cacheKey;
 		if (targetSize == null) {
 			//这里简单理解就是载体的宽度
 			//有几种情况比较特殊
 			//在ImageView是wrap_content或者测量没有完成的情况下getWidth/Height为0、并且没有设置maxWidth的情况下
 			//使用配置的值或者屏幕的宽高，总之最后一定会有值
-			targetSize = ImageSizeUtils.defineTargetSizeForView(imageAware, configuration.getMaxImageSize());
+			int width = ImageSizeUtils.defineTargetWidthForView(imageAware, configuration.getMaxImageWidth());
+			int height = ImageSizeUtils.defineTargetHeightForView(imageAware, configuration.getMaxImageHeight());
+			cacheKey = memoryCacheKeys.obtain(uri, width, height);
+			targetSize = cacheKey.targetSize;
+		} else {
+			cacheKey = memoryCacheKeys.obtain(uri, targetSize.getWidth(), targetSize.getHeight());
 		}
 		//获取缓存的key值，格式为链接_载体宽度x载体高度
 		//即同一个图片地址，对于不同大小的载体来说内存缓存是不同的，这点需要注意
-		String memoryCacheKey = MemoryCacheUtils.generateKey(uri, targetSize);
+		//重复展示同一个尺寸的图片时key直接从表中取出，内存缓存命中的流程不会创建对象
+		String memoryCacheKey = cacheKey.key;
 		//记录当前请求的载体及其对于的内存缓存key值
 		//这个主要用于标记当前载体对应的请求，可以有效防止重复或乱序加载
-		engine.prepareDisplayTaskFor(imageAware, memoryCacheKey);
+		int generation = engine.prepareDisplayTaskFor(imageAware, memoryCacheKey);
 		//回调开始加载状态
 		listener.onLoadingStarted(uri, imageAware.getWrappedView());
-		//首先从内存缓存中获取，默认配置的是LruMemoryCache，大小是当前可分配内存的1/8
+		//首先从内存缓存中获取，默认配置的是ConcurrentLruMemoryCache，大小是当前可分配内存的1/8
 		Bitmap bmp = configuration.memoryCache.get(memoryCacheKey);
-		if (bmp != null && !bmp.isRecycled()) {
+		//启用Bitmap复用的时候租用命中的Bitmap，避免它在展示之前被移出缓存并放入复用池
+		boolean bmpAcquired = bmp != null && !bmp.isRecycled() && engine.acquireBitmap(bmp);
+		if (bmp != null && !bmp.isRecycled()
+				&& (bmpAcquired || engine.isCachedBitmapUsable(memoryCacheKey, bmp))) {
 			//内存缓存命中
 			L.d(LOG_LOAD_IMAGE_FROM_MEMORY_CACHE, memoryCacheKey);
 			//如果需要对获得的Bitmap进行额外(拉伸之类的)操作，可以在DisplayOption中设置postProcessor
 			if (options.shouldPostProcess()) {
 				//初始化加载信息，就是设置一堆参数
-				//其中对每一个不同的URI都会拥有各自的ReentrantLock锁
 				ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
-						options, listener, progressListener, engine.getLockForUri(uri));
+						generation, options, listener, progressListener, false);
 				//内部分两步操作
 				//首先是获得对应的postProcess，并且执行对bitmap的操作
 				//然后就是开始执行展示bitmap的任务
 				//如果设置了syncLoading，即同步加载，那么整个流程都会在run的线程中进行
 				//否则会先进入子线程中执行postProcess，然后在指定的handler中执行展示任务（这个一般会有修改UI的操作，所以一般都是回到UI线程）
-				ProcessAndDisplayImageTask displayTask = new ProcessAndDisplayImageTask(engine, bmp, imageLoadingInfo,
+				ProcessAndDisplayImageTask displayTask = ProcessAndDisplayImageTask.obtain(engine, bmp, imageLoadingInfo,
 						defineHandler(options));
 				if (options.isSyncLoading()) {//同步执行，那么直接在displayImage的调用线程中运行任务
 					displayTask.run();
@@ -303,8 +336,13 @@ public class ImageLoader {
 			} else {
 				//不需要对获得的bitmap做什么操作，直接展示并进行对于状态回调即可
 				options.getDisplayer().display(bmp, imageAware, LoadedFrom.MEMORY_CACHE);
+				engine.onBitmapDisplayed(imageAware, bmp);
 				listener.onLoadingComplete(uri, imageAware.getWrappedView(), bmp);
 			}
+			//Bitmap已经展示或者交给了处理任务（它自己持有租用）
+			if (bmpAcquired) {
+				engine.releaseBitmap(bmp);
+			}
 			//可以看到，如果击中内存的话则不会显示Loading中图片，这样做有一个主要的好处就是在ListView中滑动加载已经加载的图片的时候不会抖动
 		} else {//没有击中内存缓存
 			if (options.shouldShowImageOnLoading()) {//如果在DisplayImageOptions中指定Loading中资源图片，则直接展示Loading图片
@@ -315,7 +353,7 @@ public class ImageLoader {
 			}
 			//设置加载中参数
 			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
-					options, listener, progressListener, engine.getLockForUri(uri));
+					generation, options, listener, progressListener, false);
 			//加载图片，并且展示图片的任务
 			LoadAndDisplayImageTask displayTask = new LoadAndDisplayImageTask(engine, imageLoadingInfo,
 					defineHandler(options));
@@ -618,6 +656,177 @@ public class ImageLoader {
 		return listener.getLoadedBitmap();
 	}
 
+	/**
+	 * Loads and decodes list of images of the same target size in parallel and waits for results.
+	 *
+	 * @see #loadImagesSync(List, List, DisplayImageOptions, long, int)
+	 */
+	public List<ImageLoadResult> loadImagesSync(List<String> uris, ImageSize targetImageSize,
+			DisplayImageOptions options, long timeoutMillis, int maxConcurrency) {
+		return loadImagesSync(uris, Collections.nCopies(uris.size(), targetImageSize), options, timeoutMillis,
+				maxConcurrency);
+	}
+
+	/**
+	 * Loads and decodes list of images in parallel using execution pools of ImageLoader and waits for results.
+	 * Memory and disk caches are used as usual. Repeated requests (the same URI and target size) are loaded once.
+	 * <br />
+	 * 批量同步加载，会阻塞调用线程，不能在UI线程中调用<br />
+	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
+	 *
+	 * @param uris             Image URIs
+	 * @param targetImageSizes Minimal sizes of images, in the same order as <b>uris</b>. Size can be <b>null</b> - then
+	 *                         max image size from configuration will be used.
+	 * @param options          {@linkplain DisplayImageOptions Options} for image decoding. If <b>null</b> - default
+	 *                         display image options from configuration will be used.
+	 * @param timeoutMillis    Max time (in milliseconds) of waiting for all images. Loadings which aren't completed
+	 *                         in time are cancelled. Non-positive value means no limit.
+	 * @param maxConcurrency   Max count of images which are loaded at the same time
+	 * @return Results in order of <b>uris</b>
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before or if this
+	 *                               method is called on UI thread
+	 */
+	public List<ImageLoadResult> loadImagesSync(List<String> uris, List<ImageSize> targetImageSizes,
+			DisplayImageOptions options, long timeoutMillis, int maxConcurrency) {
+		checkConfiguration();
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			throw new IllegalStateException(ERROR_LOAD_IMAGES_SYNC_ON_UI_THREAD);
+		}
+		if (uris.size() != targetImageSizes.size()) {
+			throw new IllegalArgumentException("uris and targetImageSizes must have the same size");
+		}
+		if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency must be a positive number");
+		if (options == null) {
+			options = configuration.defaultDisplayImageOptions;
+		}
+		if (options.isSyncLoading()) {
+			options = new DisplayImageOptions.Builder().cloneFrom(options).syncLoading(false).build();
+		}
+		List<ImageSize> sizes = new ArrayList<ImageSize>(targetImageSizes.size());
+		for (ImageSize targetImageSize : targetImageSizes) {
+			sizes.add(targetImageSize != null ? targetImageSize : configuration.getMaxImageSize());
+		}
+		return new ImageBatchLoad(this, uris, sizes, options).execute(timeoutMillis, maxConcurrency);
+	}
+
+	/**
+	 * Loads and decodes image asynchronously. Default display image options and max image size
+	 * {@linkplain ImageLoaderConfiguration from configuration} will be used.
+	 *
+	 * @see #loadImageAsync(String, ImageSize, DisplayImageOptions)
+	 */
+	public ImageLoadFuture loadImageAsync(String uri) {
+		return loadImageAsync(uri, null, null);
+	}
+
+	/**
+	 * Loads and decodes image asynchronously. Loading is done by the same execution pools as
+	 * {@link #displayImage(String, ImageAware)} does.<br />
+	 * Futures requested for the same URI and target size share one loading.<br />
+	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
+	 *
+	 * @param uri             Image URI (i.e. "http://site.com/image.png", "file:///mnt/sdcard/image.png")
+	 * @param targetImageSize Minimal size for {@link Bitmap} which will be returned. If <b>null</b> - max image size
+	 *                        {@linkplain ImageLoaderConfiguration.Builder#memoryCacheExtraOptions(int, int) from
+	 *                        configuration} will be used.
+	 * @param options         {@linkplain DisplayImageOptions Options} for image decoding. If <b>null</b> - default
+	 *                        display image options from configuration will be used. Options of the first request
+	 *                        are used by shared loading.
+	 * @return Cancellable future of loaded image
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public ImageLoadFuture loadImageAsync(String uri, ImageSize targetImageSize, DisplayImageOptions options) {
+		checkConfiguration();
+		if (targetImageSize == null) {
+			targetImageSize = configuration.getMaxImageSize();
+		}
+		if (options == null) {
+			options = configuration.defaultDisplayImageOptions;
+		}
+		String memoryCacheKey = MemoryCacheUtils.generateKey(TextUtils.isEmpty(uri) ? "" : uri, targetImageSize);
+		while (true) {
+			AsyncImageLoad load;
+			boolean newLoad = false;
+			synchronized (asyncLoads) {
+				load = asyncLoads.get(memoryCacheKey);
+				if (load == null) {
+					load = new AsyncImageLoad(this, asyncLoads, memoryCacheKey, targetImageSize);
+					asyncLoads.put(memoryCacheKey, load);
+					newLoad = true;
+				}
+			}
+			//已经结束或者被放弃的加载返回null，此时重新创建加载
+			ImageLoadFuture future = load.newFuture();
+			if (future != null) {
+				if (newLoad) {
+					displayImage(uri, load.imageAware, options, load, null);
+				}
+				return future;
+			}
+		}
+	}
+
+	/**
+	 * Warms cache with images for incoming URIs in background so they will be displayed quickly later. Prefetches are
+	 * executed with the lowest priority, after all other waiting tasks. If display task for the same URI is submitted
+	 * while image is prefetching then the prefetch is promoted to priority of display task.<br />
+	 * Prefetch is skipped if {@linkplain #denyNetworkDownloads(boolean) network downloads are denied} or
+	 * {@linkplain #handleSlowNetwork(boolean) network is slow}. Prefetch which reaches network when it's restricted is
+	 * cancelled.<br />
+	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
+	 *
+	 * @param uris            Image URIs (i.e. "http://site.com/image.png", "file:///mnt/sdcard/image.png")
+	 * @param target          Cache which should be warmed. {@link PrefetchTarget#DISK_ONLY} only saves image stream
+	 *                        in disk cache without decoding.
+	 * @param targetImageSize Size of {@link Bitmap} which is put in memory cache. If <b>null</b> - max image size
+	 *                        {@linkplain ImageLoaderConfiguration.Builder#memoryCacheExtraOptions(int, int) from
+	 *                        configuration} will be used. Use the same size as display requests so they hit memory
+	 *                        cache.
+	 * @return Group of prefetches which can be cancelled together
+	 * @throws IllegalStateException    if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @throws IllegalArgumentException if passed <b>target</b> is null
+	 */
+	public ImagePrefetch prefetch(Collection<String> uris, PrefetchTarget target, ImageSize targetImageSize) {
+		checkConfiguration();
+		if (target == null) {
+			throw new IllegalArgumentException(ERROR_PREFETCH_TARGET_NULL);
+		}
+		ImagePrefetch prefetch = new ImagePrefetch(engine);
+		if (engine.isNetworkDenied() || engine.isSlowNetwork()) {
+			L.d(LOG_PREFETCH_SKIPPED, uris.size());
+			return prefetch;
+		}
+		if (targetImageSize == null) {
+			targetImageSize = configuration.getMaxImageSize();
+		}
+		DisplayImageOptions options = new DisplayImageOptions.Builder()
+				.cloneFrom(configuration.defaultDisplayImageOptions)
+				.cacheInMemory(target == PrefetchTarget.MEMORY)
+				.cacheOnDisk(true)
+				.delayBeforeLoading(0)
+				.deadline(0)
+				.priority(ImagePrefetch.PRIORITY)
+				.syncLoading(false)
+				.build();
+		Set<String> uniqueUris = new LinkedHashSet<String>(uris);
+		for (String uri : uniqueUris) {
+			if (TextUtils.isEmpty(uri)) continue;
+			String memoryCacheKey = MemoryCacheUtils.generateKey(uri, targetImageSize);
+			if (target == PrefetchTarget.MEMORY) {
+				Bitmap bmp = configuration.memoryCache.get(memoryCacheKey);
+				if (bmp != null && !bmp.isRecycled()) continue; // already warmed
+			}
+			NonViewAware imageAware = new NonViewAware(targetImageSize, ViewScaleType.CROP);
+			int generation = engine.prepareDisplayTaskFor(imageAware, memoryCacheKey);
+			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetImageSize, memoryCacheKey,
+					generation, options, prefetch.listener, null, true);
+			//预加载的回调不需要回到UI线程，在engine的分发线程中执行即可
+			prefetch.addTask(new LoadAndDisplayImageTask(engine, imageLoadingInfo, null, target));
+		}
+		prefetch.start();
+		return prefetch;
+	}
+
 	/**
 	 * Checks if ImageLoader's configuration was initialized
 	 *
@@ -639,6 +848,18 @@ public class ImageLoader {
 		return configuration.memoryCache;
 	}
 
+	/**
+	 * Returns pool of reusable bitmaps or <b>null</b> if pool isn't set
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @see ImageLoaderConfiguration.Builder#bitmapPool(BitmapPool)
+	 * @since 1.9.5
+	 */
+	public BitmapPool getBitmapPool() {
+		checkConfiguration();
+		return configuration.bitmapPool;
+	}
+
 	/**
 	 * Returns disk cache
 	 *
@@ -730,6 +951,35 @@ public class ImageLoader {
 		engine.cancelDisplayTaskFor(imageAware);
 	}
 
+	/**
+	 * Changes priority of the task of loading and displaying image for passed
+	 * {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware}. Task which is waiting in
+	 * queue already is moved according to new priority.
+	 *
+	 * @param imageAware {@link com.nostra13.universalimageloader.core.imageaware.ImageAware ImageAware} which display
+	 *                   task priority will be changed
+	 * @param priority   New priority of the task. Greater value means more important task.
+	 * @return <b>true</b> - if task for passed ImageAware was found; <b>false</b> - otherwise
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @see DisplayImageOptions.Builder#priority(int)
+	 */
+	public boolean setPriority(ImageAware imageAware, int priority) {
+		checkConfiguration();
+		return engine.setPriorityFor(imageAware, priority);
+	}
+
+	/**
+	 * Changes priority of the task of loading and displaying image for passed
+	 * {@link android.widget.ImageView ImageView}.
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @see #setPriority(ImageAware, int)
+	 */
+	public boolean setPriority(ImageView imageView, int priority) {
+		checkConfiguration();
+		return engine.setPriorityFor(new ImageViewAware(imageView), priority);
+	}
+
 	/**
 	 * 拒绝或允许从网络上下载图片
 	 * <br />
@@ -766,6 +1016,87 @@ public class ImageLoader {
 		engine.resume();
 	}
 
+	/**
+	 * Pauses requests with incoming {@linkplain DisplayImageOptions.Builder#tag(Object) tag}. Tasks of the tag which
+	 * aren't started yet won't be executed until {@link #resumeTag(Object)}, started tasks are completed. Requests with
+	 * other tags aren't affected. Synchronous requests aren't paused by tag.<br />
+	 * 比如离开某个页面的时候暂停该页面的请求，不和下一个页面的请求竞争线程
+	 *
+	 * @throws IllegalArgumentException if <b>tag</b> is <b>null</b>
+	 */
+	public void pauseTag(Object tag) {
+		checkConfiguration();
+		if (tag == null) throw new IllegalArgumentException(ERROR_TAG_NULL);
+		engine.pauseTag(tag);
+	}
+
+	/**
+	 * Resumes requests with incoming {@linkplain DisplayImageOptions.Builder#tag(Object) tag} which were paused by
+	 * {@link #pauseTag(Object)}.
+	 *
+	 * @throws IllegalArgumentException if <b>tag</b> is <b>null</b>
+	 */
+	public void resumeTag(Object tag) {
+		checkConfiguration();
+		if (tag == null) throw new IllegalArgumentException(ERROR_TAG_NULL);
+		engine.resumeTag(tag);
+	}
+
+	/**
+	 * Cancels all requests with incoming {@linkplain DisplayImageOptions.Builder#tag(Object) tag}. Waiting tasks are
+	 * removed from execution queues at once, network downloads of started tasks are aborted.
+	 * {@link ImageLoadingListener#onLoadingCancelled(String, android.view.View)} is fired for cancelled requests.
+	 * Pause state of tag isn't changed.
+	 *
+	 * @throws IllegalArgumentException if <b>tag</b> is <b>null</b>
+	 */
+	public void cancelTag(Object tag) {
+		checkConfiguration();
+		if (tag == null) throw new IllegalArgumentException(ERROR_TAG_NULL);
+		engine.cancelTag(tag);
+	}
+
+	/**
+	 * Binds requests with incoming {@linkplain DisplayImageOptions.Builder#tag(Object) tag} to lifecycle of
+	 * <b>activity</b>: tag is {@linkplain #pauseTag(Object) paused} when activity is stopped,
+	 * {@linkplain #resumeTag(Object) resumed} when activity is started and {@linkplain #cancelTag(Object) cancelled}
+	 * when activity is destroyed. Works on API 14+, binding is ignored on older versions.
+	 *
+	 * @throws IllegalArgumentException if <b>tag</b> or <b>activity</b> is <b>null</b>
+	 */
+	public void bindTagToActivity(Object tag, Activity activity) {
+		if (tag == null) throw new IllegalArgumentException(ERROR_TAG_NULL);
+		if (activity == null) throw new IllegalArgumentException(ERROR_ACTIVITY_NULL);
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+			L.w(WARNING_TAG_BINDING_NOT_SUPPORTED);
+			return;
+		}
+		new ActivityTagBinding(this, tag, activity).bind();
+	}
+
+	/**
+	 * Returns count of tasks waiting in queue of incoming stage of
+	 * {@linkplain ImageLoaderConfiguration.Builder#stagedPipeline() staged pipeline}.<br />
+	 * 可以用于观察各个阶段的负载，不启用分阶段执行的时候始终返回0
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public int getPipelineQueueDepth(PipelineStage stage) {
+		checkConfiguration();
+		return engine.getQueueDepth(stage);
+	}
+
+	/**
+	 * Returns count of image URIs which are loading at this moment. Several display tasks for the same URI share one
+	 * loading so they are counted once.
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public int getInFlightUriCount() {
+		checkConfiguration();
+		return engine.getInFlightUriCount();
+	}
+
 	/**
 	 * 会尝试取消所有运行中或者等待运行的任务
 	 * 注意如果使用的是自定义的线程池，这个方法会导致自定义线程池shutdown
@@ -17,19 +17,22 @@ package com.nostra13.universalimageloader.core;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.util.DisplayMetrics;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.ObservableMemoryCache;
 import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
+import com.nostra13.universalimageloader.core.assist.PriorityTaskQueue;
 import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 import com.nostra13.universalimageloader.core.decode.ImageDecoder;
 import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.core.listener.DisplayBatchListener;
 import com.nostra13.universalimageloader.core.process.BitmapProcessor;
 import com.nostra13.universalimageloader.utils.L;
-import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -64,6 +67,10 @@ public final class ImageLoaderConfiguration {
 	final BitmapProcessor processorForDiskCache;
 	//队列模式，LIFO表示后进先出，默认是先进先出（默认使用的是双向队列）
 	final QueueProcessingType tasksProcessingType;
+	//加载任务的默认优先级，DisplayImageOptions中没有指定优先级的时候使用
+	final int defaultTaskPriority;
+	//任务在队列中等待超过这个时间（毫秒）之后会在优先级更高的任务之前执行，防止低优先级的任务被饿死
+	final long taskMaxWaitMillis;
 	//没有击中内存和硬盘缓存的时候，会通过该线程池尝试从网络等方向上加载并且处理图片
 	//基于threadPoolSize和threadPriority实现的一个fix线程池，也是Android常用的线程池
 	//有着固定的核心线程数和相同的最大线程数，并且队列长度无限
@@ -79,8 +86,27 @@ public final class ImageLoaderConfiguration {
 	final boolean customExecutor;
 	//当前taskExecutorForCachedImages是否使用了默认线程池
 	final boolean customExecutorForCachedImages;
-	//内存缓存，允许自定义，默认是LruMemoryCache，size为JVM为当前进程分配的总内存量的1/8（如果在Application中开启了large_heap的话会更大）
+	//是否启用分阶段的加载流水线，启用后网络加载、硬盘缓存查找、解码分别在各自的线程池中执行
+	final boolean stagedPipeline;
+	final int networkPoolSize;
+	final int diskPoolSize;
+	final int decodePoolSize;
+	//每一个阶段的线程池的队列长度，队列满的时候任务会回退到taskExecutor/taskExecutorForCachedImages中执行
+	final int stageQueueCapacity;
+	//进度回调的最小时间间隔（毫秒）和最小进度步长（百分比），用于减少发送到主线程的消息
+	final int progressUpdateInterval;
+	final int progressUpdateStep;
+	//被取消的任务的下载进度达到这个百分比的时候继续完成下载并保存到硬盘缓存中，否则立即中断下载
+	final int keepCancelledDownloadsFrom;
+	//是否将展示任务按帧分批在UI线程中执行，以及每一帧中执行展示任务的时间预算（毫秒）
+	final boolean batchedDisplay;
+	final int displayFrameBudget;
+	final DisplayBatchListener displayBatchListener;
+	//内存缓存，允许自定义，默认是ConcurrentLruMemoryCache，size为JVM为当前进程分配的总内存量的1/8（如果在Application中开启了large_heap的话会更大）
 	final MemoryCache memoryCache;
+	//可以复用的Bitmap池，默认为null（不复用），以及判断内存缓存中移除的Bitmap是否还在使用的登记表
+	final BitmapPool bitmapPool;
+	final BitmapReuseRegistry bitmapReuseRegistry;
 	//硬盘缓存，允许自定义，如果指定了最大的缓存大小或者缓存文件数目，默认是LruDiskCache，否则是UnlimitedDiskCache
 	final DiskCache diskCache;
 	//默认的加载图片的下载器
@@ -106,8 +132,18 @@ public final class ImageLoaderConfiguration {
 		threadPoolSize = builder.threadPoolSize;
 		threadPriority = builder.threadPriority;
 		tasksProcessingType = builder.tasksProcessingType;
+		defaultTaskPriority = builder.defaultTaskPriority;
+		taskMaxWaitMillis = builder.taskMaxWaitMillis;
 		diskCache = builder.diskCache;
 		memoryCache = builder.memoryCache;
+		bitmapPool = builder.bitmapPool;
+		if (builder.evictingMemoryCache != null) {
+			//内存缓存中移除的Bitmap没有被使用的时候放入池中
+			bitmapReuseRegistry = new BitmapReuseRegistry(bitmapPool);
+			builder.evictingMemoryCache.setEvictionListener(bitmapReuseRegistry);
+		} else {
+			bitmapReuseRegistry = null;
+		}
 		defaultDisplayImageOptions = builder.defaultDisplayImageOptions;
 		downloader = builder.downloader;
 		decoder = builder.decoder;
@@ -115,6 +151,18 @@ public final class ImageLoaderConfiguration {
 		customExecutor = builder.customExecutor;
 		customExecutorForCachedImages = builder.customExecutorForCachedImages;
 
+		stagedPipeline = builder.stagedPipeline;
+		networkPoolSize = builder.networkPoolSize;
+		diskPoolSize = builder.diskPoolSize;
+		decodePoolSize = builder.decodePoolSize;
+		stageQueueCapacity = builder.stageQueueCapacity;
+		progressUpdateInterval = builder.progressUpdateInterval;
+		progressUpdateStep = builder.progressUpdateStep;
+		keepCancelledDownloadsFrom = builder.keepCancelledDownloadsFrom;
+		batchedDisplay = builder.batchedDisplay;
+		displayFrameBudget = builder.displayFrameBudget;
+		displayBatchListener = builder.displayBatchListener;
+
 		networkDeniedDownloader = new NetworkDeniedImageDownloader(downloader);
 		slowNetworkDownloader = new SlowNetworkImageDownloader(downloader);
 
@@ -139,6 +187,12 @@ public final class ImageLoaderConfiguration {
 	 * <li>diskCacheFileNameGenerator = {@link DefaultConfigurationFactory#createFileNameGenerator()}</li>
 	 * <li>defaultDisplayImageOptions = {@link DisplayImageOptions#createSimple() Simple options}</li>
 	 * <li>tasksProcessingOrder = {@link QueueProcessingType#FIFO}</li>
+	 * <li>defaultTaskPriority = {@link Builder#DEFAULT_TASK_PRIORITY this}</li>
+	 * <li>taskMaxWaitTime = {@link Builder#DEFAULT_TASK_MAX_WAIT_MILLIS this}</li>
+	 * <li>keepCancelledDownloadsFrom = {@link Builder#DEFAULT_KEEP_CANCELLED_DOWNLOADS_FROM this}</li>
+	 * <li>staged pipeline disabled</li>
+	 * <li>batched display disabled</li>
+	 * <li>bitmap pool disabled</li>
 	 * <li>detailed logging disabled</li>
 	 * </ul>
 	 */
@@ -147,17 +201,42 @@ public final class ImageLoaderConfiguration {
 	}
 
 	ImageSize getMaxImageSize() {
-		DisplayMetrics displayMetrics = resources.getDisplayMetrics();
+		return new ImageSize(getMaxImageWidth(), getMaxImageHeight());
+	}
 
+	/** Same as {@link #getMaxImageSize()} width, but doesn't allocate objects */
+	int getMaxImageWidth() {
 		int width = maxImageWidthForMemoryCache;
 		if (width <= 0) {
-			width = displayMetrics.widthPixels;
+			width = resources.getDisplayMetrics().widthPixels;
 		}
+		return width;
+	}
+
+	/** Same as {@link #getMaxImageSize()} height, but doesn't allocate objects */
+	int getMaxImageHeight() {
 		int height = maxImageHeightForMemoryCache;
 		if (height <= 0) {
-			height = displayMetrics.heightPixels;
+			height = resources.getDisplayMetrics().heightPixels;
 		}
-		return new ImageSize(width, height);
+		return height;
+	}
+
+	/** Returns thread count of incoming pipeline stage */
+	int getStagePoolSize(PipelineStage stage) {
+		switch (stage) {
+			case NETWORK:
+				return networkPoolSize;
+			case DISK:
+				return diskPoolSize;
+			default:
+				return decodePoolSize;
+		}
+	}
+
+	/** Returns priority of loading task for incoming display options */
+	int getTaskPriority(DisplayImageOptions options) {
+		return options.hasPriority() ? options.getPriority() : defaultTaskPriority;
 	}
 
 	/**
@@ -179,6 +258,24 @@ public final class ImageLoaderConfiguration {
 		public static final int DEFAULT_THREAD_PRIORITY = Thread.NORM_PRIORITY - 2;
 		/** {@value} */
 		public static final QueueProcessingType DEFAULT_TASK_PROCESSING_TYPE = QueueProcessingType.FIFO;
+		/** {@value} */
+		public static final int DEFAULT_TASK_PRIORITY = PriorityTaskQueue.DEFAULT_PRIORITY;
+		/** {@value} */
+		public static final long DEFAULT_TASK_MAX_WAIT_MILLIS = PriorityTaskQueue.DEFAULT_MAX_WAIT_MILLIS;
+		/** {@value} */
+		public static final int DEFAULT_NETWORK_POOL_SIZE = 5;
+		/** {@value} */
+		public static final int DEFAULT_DISK_POOL_SIZE = 2;
+		/** {@value} */
+		public static final int DEFAULT_STAGE_QUEUE_CAPACITY = 128;
+		/** {@value} */
+		public static final int DEFAULT_PROGRESS_UPDATE_INTERVAL = 100;
+		/** {@value} */
+		public static final int DEFAULT_PROGRESS_UPDATE_STEP = 1;
+		/** {@value} */
+		public static final int DEFAULT_DISPLAY_FRAME_BUDGET = 8;
+		/** {@value} */
+		public static final int DEFAULT_KEEP_CANCELLED_DOWNLOADS_FROM = 75;
 
 		private Context context;
 
@@ -197,13 +294,29 @@ public final class ImageLoaderConfiguration {
 		private int threadPriority = DEFAULT_THREAD_PRIORITY;
 		private boolean denyCacheImageMultipleSizesInMemory = false;
 		private QueueProcessingType tasksProcessingType = DEFAULT_TASK_PROCESSING_TYPE;
-		//只有在不指定内存缓存的时候使用默认LruMemoryCache有效
+		private int defaultTaskPriority = DEFAULT_TASK_PRIORITY;
+		private long taskMaxWaitMillis = DEFAULT_TASK_MAX_WAIT_MILLIS;
+		private boolean stagedPipeline = false;
+		private int networkPoolSize = DEFAULT_NETWORK_POOL_SIZE;
+		private int diskPoolSize = DEFAULT_DISK_POOL_SIZE;
+		private int decodePoolSize = Runtime.getRuntime().availableProcessors();
+		private int stageQueueCapacity = DEFAULT_STAGE_QUEUE_CAPACITY;
+		private int progressUpdateInterval = DEFAULT_PROGRESS_UPDATE_INTERVAL;
+		private int progressUpdateStep = DEFAULT_PROGRESS_UPDATE_STEP;
+		private int keepCancelledDownloadsFrom = DEFAULT_KEEP_CANCELLED_DOWNLOADS_FROM;
+		private boolean batchedDisplay = false;
+		private int displayFrameBudget = DEFAULT_DISPLAY_FRAME_BUDGET;
+		private DisplayBatchListener displayBatchListener = null;
+		//只有在不指定内存缓存的时候使用默认ConcurrentLruMemoryCache有效
 		private int memoryCacheSize = 0;
 		//在不指定硬盘缓存的情况下，如果指定下面的任何一个参数，则采用LruDiskCache时有效
 		private long diskCacheSize = 0;
 		private int diskCacheFileCount = 0;
 
 		private MemoryCache memoryCache = null;
+		private BitmapPool bitmapPool = null;
+		//可以通知移除的Bitmap的内存缓存，只有设置了Bitmap池的时候有值
+		private ObservableMemoryCache evictingMemoryCache = null;
 		private DiskCache diskCache = null;
 		//硬盘缓存的时候将uri转码的操作者，默认是HashCode的方式，常用的可能是MD5的编码模式
 		private FileNameGenerator diskCacheFileNameGenerator = null;
@@ -267,6 +380,7 @@ public final class ImageLoaderConfiguration {
 		 * <li>{@link #threadPoolSize(int)}</li>
 		 * <li>{@link #threadPriority(int)}</li>
 		 * <li>{@link #tasksProcessingOrder(QueueProcessingType)}</li>
+		 * <li>{@link #taskMaxWaitTime(long)}</li>
 		 * </ul>
 		 *
 		 * @see #taskExecutorForCachedImages(Executor)
@@ -294,6 +408,7 @@ public final class ImageLoaderConfiguration {
 		 * <li>{@link #threadPoolSize(int)}</li>
 		 * <li>{@link #threadPriority(int)}</li>
 		 * <li>{@link #tasksProcessingOrder(QueueProcessingType)}</li>
+		 * <li>{@link #taskMaxWaitTime(long)}</li>
 		 * </ul>
 		 *
 		 * @see #taskExecutor(Executor)
@@ -356,7 +471,9 @@ public final class ImageLoaderConfiguration {
 		}
 
 		/**
-		 * Sets type of queue processing for tasks for loading and displaying images.<br />
+		 * Sets type of queue processing for tasks for loading and displaying images. Tasks are taken from queue by
+		 * {@linkplain DisplayImageOptions.Builder#priority(int) priority} first, so this type defines order of tasks
+		 * of equal priority.<br />
 		 * Default value - {@link QueueProcessingType#FIFO}
 		 */
 		public Builder tasksProcessingOrder(QueueProcessingType tasksProcessingType) {
@@ -368,13 +485,152 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets priority of image loading tasks which {@linkplain DisplayImageOptions display options} don't define
+		 * {@linkplain DisplayImageOptions.Builder#priority(int) priority}. Tasks with greater priority are executed
+		 * first.<br />
+		 * Default value - {@link #DEFAULT_TASK_PRIORITY this}
+		 */
+		public Builder defaultTaskPriority(int defaultTaskPriority) {
+			this.defaultTaskPriority = defaultTaskPriority;
+			return this;
+		}
+
+		/**
+		 * Sets max time (in milliseconds) which task can wait in queue behind tasks of greater
+		 * {@linkplain DisplayImageOptions.Builder#priority(int) priority}. Task which waits longer is executed before
+		 * them, so tasks of low priority aren't starved. Order of tasks of equal priority
+		 * ({@linkplain #tasksProcessingOrder(QueueProcessingType) FIFO or LIFO}) doesn't depend on this time.<br />
+		 * Default value - {@link #DEFAULT_TASK_MAX_WAIT_MILLIS this}
+		 */
+		public Builder taskMaxWaitTime(long taskMaxWaitMillis) {
+			if (taskMaxWaitMillis <= 0) {
+				throw new IllegalArgumentException("taskMaxWaitMillis must be a positive number");
+			}
+			if (taskExecutor != null || taskExecutorForCachedImages != null) {
+				L.w(WARNING_OVERLAP_EXECUTOR);
+			}
+
+			this.taskMaxWaitMillis = taskMaxWaitMillis;
+			return this;
+		}
+
+		/**
+		 * Enables staged pipeline with default pool sizes: {@link #DEFAULT_NETWORK_POOL_SIZE} threads for network stage,
+		 * {@link #DEFAULT_DISK_POOL_SIZE} threads for disk stage, count of available processors for decode stage. Queue
+		 * of every stage can hold {@link #DEFAULT_STAGE_QUEUE_CAPACITY} tasks.
+		 *
+		 * @see #stagedPipeline(int, int, int, int)
+		 */
+		public Builder stagedPipeline() {
+			return stagedPipeline(DEFAULT_NETWORK_POOL_SIZE, DEFAULT_DISK_POOL_SIZE,
+					Runtime.getRuntime().availableProcessors(), DEFAULT_STAGE_QUEUE_CAPACITY);
+		}
+
+		/**
+		 * Enables staged pipeline. Every {@linkplain PipelineStage stage} of image loading is executed in its own thread
+		 * pool so slow network loadings don't hold threads needed for decoding of cached images. Task is handed off to
+		 * next stage's pool when its stage is completed. If stage's queue is full then task is executed in
+		 * {@linkplain #taskExecutor(Executor) common executors} instead.<br />
+		 * Staged pipeline is disabled by default.
+		 *
+		 * @param networkPoolSize    Thread count for loading of images from network (and other sources) and saving them
+		 *                           on disk
+		 * @param diskPoolSize       Thread count for lookup of images in disk cache
+		 * @param decodePoolSize     Thread count for decoding and processing of images
+		 * @param stageQueueCapacity Max count of tasks waiting in queue of every stage
+		 */
+		public Builder stagedPipeline(int networkPoolSize, int diskPoolSize, int decodePoolSize, int stageQueueCapacity) {
+			if (networkPoolSize <= 0 || diskPoolSize <= 0 || decodePoolSize <= 0) {
+				throw new IllegalArgumentException("pool size must be a positive number");
+			}
+			if (stageQueueCapacity <= 0) {
+				throw new IllegalArgumentException("stageQueueCapacity must be a positive number");
+			}
+			this.stagedPipeline = true;
+			this.networkPoolSize = networkPoolSize;
+			this.diskPoolSize = diskPoolSize;
+			this.decodePoolSize = decodePoolSize;
+			this.stageQueueCapacity = stageQueueCapacity;
+			return this;
+		}
+
+		/**
+		 * Sets min time (in milliseconds) between two
+		 * {@linkplain com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListener progress updates}
+		 * of one task. First and final updates are always delivered. Pass 0 to deliver updates regardless of time.<br />
+		 * Default value - {@link #DEFAULT_PROGRESS_UPDATE_INTERVAL this}
+		 */
+		public Builder progressUpdateInterval(int progressUpdateInterval) {
+			if (progressUpdateInterval < 0) {
+				throw new IllegalArgumentException("progressUpdateInterval must be a non-negative number");
+			}
+			this.progressUpdateInterval = progressUpdateInterval;
+			return this;
+		}
+
+		/**
+		 * Sets min progress step (in percents of image size) between two
+		 * {@linkplain com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListener progress updates}
+		 * of one task. Step isn't considered if image size is unknown. Pass 0 to deliver updates regardless of step.<br />
+		 * Default value - {@link #DEFAULT_PROGRESS_UPDATE_STEP this}
+		 */
+		public Builder progressUpdateStep(int progressUpdateStep) {
+			if (progressUpdateStep < 0 || progressUpdateStep > 100) {
+				throw new IllegalArgumentException("progressUpdateStep must be in range [0, 100]");
+			}
+			this.progressUpdateStep = progressUpdateStep;
+			return this;
+		}
+
+		/**
+		 * Sets progress (in percents of image size) starting from which download of cancelled task is completed and
+		 * saved in disk cache. Download which has less progress is aborted at once: its stream and network connection
+		 * are closed. Pass 0 to always complete downloads, pass 100 to always abort them. Download of image of unknown
+		 * size is always aborted.<br />
+		 * Default value - {@link #DEFAULT_KEEP_CANCELLED_DOWNLOADS_FROM this}
+		 */
+		public Builder keepCancelledDownloadsFrom(int percentage) {
+			if (percentage < 0 || percentage > 100) {
+				throw new IllegalArgumentException("percentage must be in range [0, 100]");
+			}
+			this.keepCancelledDownloadsFrom = percentage;
+			return this;
+		}
+
+		/**
+		 * Enables batched display with {@link #DEFAULT_DISPLAY_FRAME_BUDGET default} frame time budget.
+		 *
+		 * @see #batchedDisplay(int, DisplayBatchListener)
+		 */
+		public Builder batchedDisplay() {
+			return batchedDisplay(DEFAULT_DISPLAY_FRAME_BUDGET, null);
+		}
+
+		/**
+		 * Enables batched display. Loaded images which should be displayed on UI thread are collected and displayed in
+		 * one batch per frame instead of separate UI thread message per image. Displays which don't fit in
+		 * <b>frameBudgetMillis</b> are deferred to next frame.<br />
+		 * Batched display is disabled by default.
+		 *
+		 * @param frameBudgetMillis Max time (in milliseconds) of displaying images in one frame
+		 * @param listener          Listener for displayed batches. Can be <b>null</b>.
+		 */
+		public Builder batchedDisplay(int frameBudgetMillis, DisplayBatchListener listener) {
+			if (frameBudgetMillis <= 0) throw new IllegalArgumentException("frameBudgetMillis must be a positive number");
+			this.batchedDisplay = true;
+			this.displayFrameBudget = frameBudgetMillis;
+			this.displayBatchListener = listener;
+			return this;
+		}
+
 		/**
 		 * Sets maximum memory cache size for {@link android.graphics.Bitmap bitmaps} (in bytes).<br />
 		 * Default value - 1/8 of available app memory.<br />
 		 * <b>NOTE:</b> If you use this method then
-		 * {@link com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache LruMemoryCache} will be used as
-		 * memory cache. You can use {@link #memoryCache(MemoryCache)} method to set your own implementation of
-		 * {@link MemoryCache}.
+		 * {@link com.nostra13.universalimageloader.cache.memory.impl.ConcurrentLruMemoryCache
+		 * ConcurrentLruMemoryCache} will be used as memory cache. You can use {@link #memoryCache(MemoryCache)} method
+		 * to set your own implementation of {@link MemoryCache}.
 		 */
 		public Builder memoryCacheSize(int memoryCacheSize) {
 			if (memoryCacheSize <= 0) throw new IllegalArgumentException("memoryCacheSize must be a positive number");
@@ -392,9 +648,9 @@ public final class ImageLoaderConfiguration {
 		 * bitmaps}.<br />
 		 * Default value - 1/8 of available app memory.<br />
 		 * <b>NOTE:</b> If you use this method then
-		 * {@link com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache LruMemoryCache} will be used as
-		 * memory cache. You can use {@link #memoryCache(MemoryCache)} method to set your own implementation of
-		 * {@link MemoryCache}.
+		 * {@link com.nostra13.universalimageloader.cache.memory.impl.ConcurrentLruMemoryCache
+		 * ConcurrentLruMemoryCache} will be used as memory cache. You can use {@link #memoryCache(MemoryCache)} method
+		 * to set your own implementation of {@link MemoryCache}.
 		 */
 		public Builder memoryCacheSizePercentage(int availableMemoryPercent) {
 			if (availableMemoryPercent <= 0 || availableMemoryPercent >= 100) {
@@ -412,8 +668,8 @@ public final class ImageLoaderConfiguration {
 
 		/**
 		 * Sets memory cache for {@link android.graphics.Bitmap bitmaps}.<br />
-		 * Default value - {@link com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache LruMemoryCache}
-		 * with limited memory cache size (size = 1/8 of available app memory)<br />
+		 * Default value - {@link com.nostra13.universalimageloader.cache.memory.impl.ConcurrentLruMemoryCache
+		 * ConcurrentLruMemoryCache} with limited memory cache size (size = 1/8 of available app memory)<br />
 		 * <br />
 		 * <b>NOTE:</b> If you set custom memory cache then following configuration option will not be considered:
 		 * <ul>
@@ -429,6 +685,25 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets pool of bitmaps which will be reused as targets of decoding and transformation of images (on API 11+).
+		 * Default value - <b>null</b> (bitmaps aren't reused).<br />
+		 * Bitmaps evicted from memory cache are put into pool if memory cache is {@link ObservableMemoryCache} (e.g.
+		 * default cache) and bitmap isn't used anymore: bitmap which is displayed in a view by ImageLoader is pooled only after other
+		 * image is displayed in this view, bitmap which was returned to caller (e.g. by
+		 * {@link ImageLoader#loadImageSync(String) loadImageSync()}) is never pooled.<br />
+		 * <b>NOTE:</b> If you enable pool then bitmaps passed to
+		 * {@link com.nostra13.universalimageloader.core.listener.ImageLoadingListener#onLoadingComplete(String, android.view.View, android.graphics.Bitmap)
+		 * onLoadingComplete()} of display requests mustn't be kept or displayed anywhere else.<br />
+		 * <b>NOTE:</b> Pool is used by default {@linkplain #imageDecoder(ImageDecoder) image decoder} only.
+		 *
+		 * @see com.nostra13.universalimageloader.cache.memory.impl.SizeClassBitmapPool
+		 */
+		public Builder bitmapPool(BitmapPool bitmapPool) {
+			this.bitmapPool = bitmapPool;
+			return this;
+		}
+
 		/** @deprecated Use {@link #diskCacheSize(int)} instead */
 		@Deprecated
 		public Builder discCacheSize(int maxCacheSize) {
@@ -584,13 +859,13 @@ public final class ImageLoaderConfiguration {
 		private void initEmptyFieldsWithDefaultValues() {
 			if (taskExecutor == null) {
 				taskExecutor = DefaultConfigurationFactory
-						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType);
+						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType, taskMaxWaitMillis);
 			} else {
 				customExecutor = true;
 			}
 			if (taskExecutorForCachedImages == null) {
 				taskExecutorForCachedImages = DefaultConfigurationFactory
-						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType);
+						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType, taskMaxWaitMillis);
 			} else {
 				customExecutorForCachedImages = true;
 			}
@@ -604,14 +879,17 @@ public final class ImageLoaderConfiguration {
 			if (memoryCache == null) {
 				memoryCache = DefaultConfigurationFactory.createMemoryCache(context, memoryCacheSize);
 			}
+			if (bitmapPool != null && memoryCache instanceof ObservableMemoryCache) {
+				evictingMemoryCache = (ObservableMemoryCache) memoryCache;
+			}
 			if (denyCacheImageMultipleSizesInMemory) {
-				memoryCache = new FuzzyKeyMemoryCache(memoryCache, MemoryCacheUtils.createFuzzyKeyComparator());
+				memoryCache = new FuzzyKeyMemoryCache(memoryCache);
 			}
 			if (downloader == null) {
 				downloader = DefaultConfigurationFactory.createImageDownloader(context);
 			}
 			if (decoder == null) {
-				decoder = DefaultConfigurationFactory.createImageDecoder(writeLogs);
+				decoder = DefaultConfigurationFactory.createImageDecoder(writeLogs, bitmapPool);
 			}
 			if (defaultDisplayImageOptions == null) {
 				defaultDisplayImageOptions = DisplayImageOptions.createSimple();
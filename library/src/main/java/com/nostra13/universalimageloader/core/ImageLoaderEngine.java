@@ -15,21 +15,39 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core;
 
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
+import com.nostra13.universalimageloader.cache.disc.DiskCache;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiskCache;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
+import com.nostra13.universalimageloader.core.assist.PriorityTaskQueue;
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
 
 import java.io.File;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link ImageLoader} engine which responsible for {@linkplain LoadAndDisplayImageTask display task} execution.
@@ -39,6 +57,9 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 class ImageLoaderEngine {
 
+	/** Number of cancelled deadline timers after which scheduler's queue is purged (before API 21): {@value} */
+	private static final int DEADLINE_PURGE_INTERVAL = 64;
+
 	final ImageLoaderConfiguration configuration;
 
 	private Executor taskExecutor;
@@ -47,17 +68,36 @@ class ImageLoaderEngine {
 	//内部主要是处理从硬盘中获取图片以及后续操作
 	//当有任务进入的时候，立刻新建或者复用线程
 	private Executor taskDistributor;
+	//分阶段执行时各个阶段的线程池，按照PipelineStage的顺序排列，不启用分阶段执行时为null
+	private Executor[] stageExecutors;
+	//延时加载的任务在这里等待，延时结束后才进入线程池队列
+	//stop之后由提交任务的线程重新创建，通过schedulerLock保证只创建一个
+	private volatile ScheduledExecutorService taskScheduler;
+	private final Object schedulerLock = new Object();
+	//取消的截止时间定时器个数，定时器不能在取消时移出队列的时候（API 21以下）每隔一段时间清理一次队列
+	private final AtomicInteger cancelledDeadlines = new AtomicInteger();
+	//按帧分批展示图片，不启用时为null
+	private final DisplayDispatcher displayDispatcher;
 
-	private final Map<Integer, String> cacheKeysForImageAwares = Collections
-			.synchronizedMap(new HashMap<Integer, String>());
-	private final Map<String, ReentrantLock> uriLocks = new WeakHashMap<String, ReentrantLock>();
-	//暂停标记，如果当前标记为true，则后续所有任务的线程都会处于wait中
+	//载体对应的最新请求：内存缓存key、请求的代数以及最新提交的加载任务
+	//代数用于快速判断载体是否被复用，任务用于调整还在队列中等待执行的任务的优先级
+	//以及在载体被复用或者取消的时候直接将过时的任务从队列中移除
+	private final ViewRequestMap viewRequests = new ViewRequestMap();
+	//同一个链接同一时刻只有一个任务在加载，其余任务挂在这个任务上等待结果，不会占用线程
+	private final UriLoadingRegistry uriLoadingRegistry = new UriLoadingRegistry();
+	//还没有结束的预加载任务，按照链接索引，相同链接的正式请求到来的时候提升对应预加载任务的优先级，通过自身同步
+	private final Map<String, LoadAndDisplayImageTask> prefetchTasks = new HashMap<String, LoadAndDisplayImageTask>();
+	//按照请求的tag分组的还没有完成的任务，用于按分组暂停、继续和取消请求
+	private final TaskTagRegistry taggedTasks = new TaskTagRegistry();
+	//暂停标记，如果当前标记为true，则后续所有异步任务都会停放在pausedTasks中，不占用线程
 	private final AtomicBoolean paused = new AtomicBoolean(false);
+	//暂停期间停放的任务，按照停放的顺序排列，resume的时候重新分发，通过pauseLock同步
+	private final Set<LoadAndDisplayImageTask> pausedTasks = new LinkedHashSet<LoadAndDisplayImageTask>();
 	//标记当前是否拒绝从网络上加载图片
 	private final AtomicBoolean networkDenied = new AtomicBoolean(false);
 	//标记当前是否处于弱网状态
 	private final AtomicBoolean slowNetwork = new AtomicBoolean(false);
-	//暂停锁，当ImageLoader暂停的时候，新的任务都会在当前锁中wait
+	//暂停锁，保护pausedTasks，同时当ImageLoader暂停的时候，同步加载的任务会在当前锁中wait
 	private final Object pauseLock = new Object();
 
 	ImageLoaderEngine(ImageLoaderConfiguration configuration) {
@@ -67,11 +107,190 @@ class ImageLoaderEngine {
 		taskExecutorForCachedImages = configuration.taskExecutorForCachedImages;
 
 		taskDistributor = DefaultConfigurationFactory.createTaskDistributor();
+		taskScheduler = DefaultConfigurationFactory.createTaskScheduler();
+		if (configuration.stagedPipeline) {
+			stageExecutors = new Executor[PipelineStage.values().length];
+			for (PipelineStage stage : PipelineStage.values()) {
+				stageExecutors[stage.ordinal()] = createStageExecutor(stage);
+			}
+		}
+		displayDispatcher = configuration.batchedDisplay
+				? new DisplayDispatcher(configuration.displayFrameBudget, configuration.displayBatchListener) : null;
 	}
 
 	/** Submits task to execution pool */
-	void submit(final LoadAndDisplayImageTask task) {
+	void submit(LoadAndDisplayImageTask task) {
+		viewRequests.setTask(task.imageAware.getId(), task);
+		taggedTasks.register(task);
+		if (!task.isPrefetch()) {
+			promotePrefetch(task);
+		}
+		if (task.takeDeadlineTimer()) {
+			scheduleDeadline(task);
+		}
+		if (task.takeDelay()) {
+			schedule(task);
+			return;
+		}
+		if (parkIfPaused(task)) return;
+		dispatch(task);
+	}
+
+	/**
+	 * Submits prefetch task to execution pool. The task is promoted if display task for the same URI is submitted
+	 * before the prefetch is finished.
+	 */
+	void submitPrefetch(LoadAndDisplayImageTask task) {
+		synchronized (prefetchTasks) {
+			prefetchTasks.put(task.uri, task);
+		}
+		submit(task);
+	}
+
+	/**
+	 * Raises priority of prefetch task for the same URI as incoming display task up to priority of display task. So
+	 * image which is needed right now isn't waiting behind other prefetches. Promoted prefetch isn't cancelled with
+	 * its {@linkplain ImagePrefetch group} anymore.
+	 */
+	private void promotePrefetch(LoadAndDisplayImageTask task) {
+		LoadAndDisplayImageTask prefetch;
+		synchronized (prefetchTasks) {
+			if (prefetchTasks.isEmpty()) return;
+			prefetch = prefetchTasks.remove(task.uri);
+			if (prefetch == null) return;
+			//在锁中标记，这样同时取消预加载的线程不会把已经提升的任务取消掉
+			prefetch.setPromoted();
+		}
+		if (prefetch.getPriority() < task.getPriority()) {
+			prefetch.setPriority(task.getPriority());
+			updatePriorityInQueues(prefetch);
+		}
+	}
+
+	/** Forgets prefetch task which was finished */
+	void finishPrefetch(LoadAndDisplayImageTask task) {
+		forgetPrefetch(task);
+		viewRequests.remove(task.imageAware.getId());
+	}
+
+	/**
+	 * Cancels prefetch task if it wasn't promoted by display task. Request of promoted task is released by
+	 * {@link #finishPrefetch(LoadAndDisplayImageTask)} when the task is finished.
+	 *
+	 * @return <b>true</b> - if task was cancelled; <b>false</b> - if task was promoted and keeps working
+	 */
+	boolean cancelPrefetch(LoadAndDisplayImageTask task) {
+		boolean promoted;
+		synchronized (prefetchTasks) {
+			forgetPrefetch(task);
+			promoted = task.isPromoted();
+		}
+		if (promoted) return false;
+		cancelDisplayTaskFor(task.imageAware);
+		return true;
+	}
+
+	private void forgetPrefetch(LoadAndDisplayImageTask task) {
+		synchronized (prefetchTasks) {
+			if (prefetchTasks.get(task.uri) == task) {
+				prefetchTasks.remove(task.uri);
+			}
+		}
+	}
+
+	/**
+	 * Keeps the task on timer during {@linkplain DisplayImageOptions.Builder#delayBeforeLoading(int) delay before
+	 * loading}. The task is dispatched when delay expires. If the task isn't actual at that moment then it's evicted
+	 * without dispatching.
+	 */
+	private void schedule(final LoadAndDisplayImageTask task) {
+		getTaskScheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				//延时期间载体被复用或者任务被取消，直接丢弃，不会进入线程池
+				if (!task.isActual()) {
+					evict(task);
+					return;
+				}
+				if (parkIfPaused(task)) return;
+				dispatch(task);
+			}
+		}, task.options.getDelayBeforeLoading(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns scheduler for delayed tasks. Scheduler which was shut down by {@link #stop()} is recreated once even if
+	 * tasks are submitted from several threads concurrently.
+	 */
+	private ScheduledExecutorService getTaskScheduler() {
+		ScheduledExecutorService scheduler = taskScheduler;
+		if (scheduler.isShutdown()) {
+			synchronized (schedulerLock) {
+				scheduler = taskScheduler;
+				if (scheduler.isShutdown()) {
+					scheduler = DefaultConfigurationFactory.createTaskScheduler();
+					taskScheduler = scheduler;
+				}
+			}
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Schedules expiration of the task at {@linkplain DisplayImageOptions.Builder#deadline(int) deadline} of its
+	 * request. If the task isn't started at that moment (it's waiting in execution queue, on timer, in parked tasks or
+	 * for loading of the same URI) then it's dropped and fail event is fired. Started task checks deadline by itself.
+	 */
+	private void scheduleDeadline(final LoadAndDisplayImageTask task) {
+		ScheduledFuture<?> timer = getTaskScheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (!task.evict()) return;
+				removeEvicted(task);
+				task.fireExpiredEvent();
+			}
+		}, Math.max(0, task.getTimeToDeadline()), TimeUnit.MILLISECONDS);
+		if (!task.setDeadlineFuture(timer)) {
+			//任务在定时器创建期间已经开始或者被移出
+			cancelDeadline(task);
+		}
+	}
+
+	/**
+	 * Cancels deadline timer of the task which was started or evicted, so the scheduler doesn't keep the task until its
+	 * deadline
+	 */
+	void cancelDeadline(LoadAndDisplayImageTask task) {
+		ScheduledFuture<?> timer = task.takeDeadlineFuture();
+		if (timer == null || !timer.cancel(false)) return;
+		ScheduledExecutorService scheduler = taskScheduler;
+		if (Build.VERSION.SDK_INT < 21 && scheduler instanceof ScheduledThreadPoolExecutor
+				&& cancelledDeadlines.incrementAndGet() % DEADLINE_PURGE_INTERVAL == 0) {
+			((ScheduledThreadPoolExecutor) scheduler).purge();
+		}
+	}
+
+	private void dispatch(final LoadAndDisplayImageTask task) {
 		//执行到这里，意味着当前请求没能击中内存缓存
+		if (stageExecutors != null) {
+			//分阶段执行，硬盘缓存的查找也在单独的线程池中进行，索引中没有的图片直接进入网络加载阶段
+			boolean mayBeCachedOnDisk = mayBeCachedOnDisk(task.getLoadingUri());
+			PipelineStage startStage = mayBeCachedOnDisk ? PipelineStage.DISK : PipelineStage.NETWORK;
+			task.setStage(startStage);
+			if (!executeStage(task, startStage)) {
+				//当前阶段的队列已满，在通用的线程池中执行整个加载
+				task.setStage(null);
+				execute(task, mayBeCachedOnDisk);
+			}
+			return;
+		}
+		if (configuration.diskCache instanceof IndexedDiskCache
+				&& ((IndexedDiskCache) configuration.diskCache).isIndexLoaded()) {
+			//硬盘缓存在内存中有索引，不需要访问文件系统就可以判断是否命中硬盘缓存，直接在当前线程分发任务即可
+			//索引还在后台加载的时候仍然在taskDistributor中检查文件
+			execute(task, ((IndexedDiskCache) configuration.diskCache).contains(task.getLoadingUri()));
+			return;
+		}
 		//该线程池的主要工作就是从硬盘缓存中获取图片
 		taskDistributor.execute(new Runnable() {
 			@Override
@@ -79,31 +298,187 @@ class ImageLoaderEngine {
 				//从硬盘缓存中获取对应的图片缓存文件
 				File image = configuration.diskCache.get(task.getLoadingUri());
 				boolean isImageCachedOnDisk = image != null && image.exists();
-				initExecutorsIfNeed();//如果ImageLoader之前进行了stop，那么这里要尝试使用可用的线程池
-				if (isImageCachedOnDisk) {//当前命中硬盘缓存，通过专门处理缓存的线程池执行任务
-					taskExecutorForCachedImages.execute(task);
-				} else {//当前没有命中硬盘缓存，通过专门处理从流（网络等来源）中获取图片的线程池执行任务
-					taskExecutor.execute(task);
-				}
+				execute(task, isImageCachedOnDisk);
 			}
 		});
 	}
 
+	private void execute(LoadAndDisplayImageTask task, boolean isImageCachedOnDisk) {
+		initExecutorsIfNeed();//如果ImageLoader之前进行了stop，那么这里要尝试使用可用的线程池
+		if (isImageCachedOnDisk) {//当前命中硬盘缓存，通过专门处理缓存的线程池执行任务
+			taskExecutorForCachedImages.execute(task);
+		} else {//当前没有命中硬盘缓存，通过专门处理从流（网络等来源）中获取图片的线程池执行任务
+			taskExecutor.execute(task);
+		}
+	}
+
+	/**
+	 * Returns <b>false</b> if image for incoming URI definitely isn't cached on disk according to
+	 * {@linkplain IndexedDiskCache disk cache index}; <b>true</b> - otherwise (image can be cached).
+	 */
+	boolean mayBeCachedOnDisk(String uri) {
+		DiskCache diskCache = configuration.diskCache;
+		return !(diskCache instanceof IndexedDiskCache) || ((IndexedDiskCache) diskCache).contains(uri);
+	}
+
 	/**
-	 * 暂停后续的图片加载任务，当前已经进行中的任务无法暂停
-	 * 只能通过resume恢复暂停后添加的新任务（重复的任务会不断的覆盖）
+	 * 暂停后续的图片加载任务，当前已经进行中的任务无法暂停，会继续执行完成（比如把图片下载到硬盘缓存中）
+	 * 暂停期间提交的任务以及从线程池队列中取出的任务都会停放在engine中，不占用线程，直到resume
 	 */
 	void pause() {
 		paused.set(true);//实际上就是标记一下当前ImageLoaderEngine暂停
 	}
 
 	/**
-	 * 继续图片的加载任务，并且会尝试唤醒之前暂停的任务
+	 * 继续图片的加载任务，停放的任务中仍然有效的会被重新分发，最新的任务最先执行
+	 * 已经无效的任务（载体被回收或者复用）直接取消
 	 */
 	void resume() {
-		paused.set(false);//标记当前ImageLoaderEngine可以运行
+		List<LoadAndDisplayImageTask> tasks;
 		synchronized (pauseLock) {
-			pauseLock.notifyAll();//尝试唤醒之前因为pause而处于wait状态的加载线程，从而开始之前的任务
+			paused.set(false);//标记当前ImageLoaderEngine可以运行
+			tasks = new ArrayList<LoadAndDisplayImageTask>(pausedTasks);
+			pausedTasks.clear();
+			pauseLock.notifyAll();//尝试唤醒之前因为pause而处于wait状态的同步加载任务
+		}
+		redispatch(tasks);
+	}
+
+	/**
+	 * Dispatches parked tasks again. Tasks which aren't actual anymore are evicted.
+	 *
+	 * @param tasks Parked tasks in order of parking
+	 */
+	private void redispatch(List<LoadAndDisplayImageTask> tasks) {
+		// FIFO queue executes first dispatched task first so newest tasks are dispatched first, LIFO - vice versa
+		boolean lifo = configuration.tasksProcessingType == QueueProcessingType.LIFO;
+		for (int i = 0, size = tasks.size(); i < size; i++) {
+			LoadAndDisplayImageTask task = tasks.get(lifo ? i : size - 1 - i);
+			if (task.isActual()) {
+				if (parkIfPaused(task)) continue;
+				dispatch(task);
+			} else {
+				evict(task);
+			}
+		}
+	}
+
+	/**
+	 * Parks incoming task if engine or tag of the task is paused. Parked task doesn't occupy any thread, it's
+	 * dispatched again on {@linkplain #resume() resume} (or {@linkplain #resumeTag(Object) resume of tag}).
+	 *
+	 * @return <b>true</b> - if task was parked; <b>false</b> - if engine and tag of the task aren't paused
+	 */
+	boolean parkIfPaused(LoadAndDisplayImageTask task) {
+		if (parkIfTagPaused(task)) return true;
+		if (!paused.get()) return false;
+		synchronized (pauseLock) {
+			if (!paused.get()) return false;
+			pausedTasks.add(task);
+			return true;
+		}
+	}
+
+	/**
+	 * Parks incoming task if its {@linkplain DisplayImageOptions.Builder#tag(Object) tag} is paused.
+	 *
+	 * @return <b>true</b> - if task was parked; <b>false</b> - if task isn't tagged or its tag isn't paused
+	 */
+	boolean parkIfTagPaused(LoadAndDisplayImageTask task) {
+		return taggedTasks.parkIfPaused(task);
+	}
+
+	/**
+	 * Pauses tasks of incoming tag. Tasks which weren't started yet are parked (including tasks which are waiting in
+	 * execution queue, they are parked when they are taken from queue). Started tasks are completed.
+	 */
+	void pauseTag(Object tag) {
+		taggedTasks.pause(tag);
+	}
+
+	/** Resumes tasks of incoming tag. Parked tasks which are still actual are dispatched again. */
+	void resumeTag(Object tag) {
+		redispatch(taggedTasks.resume(tag));
+	}
+
+	/**
+	 * Cancels all tasks of incoming tag. Tasks which weren't started yet are removed from execution queues (or from
+	 * parked tasks, timers, loadings they are attached to), downloads of started tasks are aborted. Cancel event is
+	 * fired for every cancelled task.
+	 */
+	void cancelTag(Object tag) {
+		for (LoadAndDisplayImageTask task : taggedTasks.takeTasks(tag)) {
+			//只有载体当前的请求仍然是这个任务的时候才移除，否则载体已经被复用于其他请求，任务本身已经失效
+			viewRequests.remove(task.imageAware.getId(), task.generation);
+			evict(task);
+		}
+	}
+
+	/** Removes completed task from group of its tag */
+	void unregisterTagged(LoadAndDisplayImageTask task) {
+		taggedTasks.unregister(task);
+	}
+
+	/**
+	 * Registers bitmap which is going to be put into memory cache as owned by cache (if bitmap pool is enabled). Must
+	 * be called before putting. If the cache refuses the bitmap then registration should be undone by
+	 * {@link #unregisterCachedBitmap(Bitmap)}.
+	 */
+	void registerCachedBitmap(Bitmap bitmap) {
+		BitmapReuseRegistry registry = configuration.bitmapReuseRegistry;
+		if (registry != null) {
+			registry.registerCached(bitmap);
+		}
+	}
+
+	/** Undoes registration of bitmap which wasn't put into memory cache */
+	void unregisterCachedBitmap(Bitmap bitmap) {
+		BitmapReuseRegistry registry = configuration.bitmapReuseRegistry;
+		if (registry != null) {
+			registry.unregisterCached(bitmap);
+		}
+	}
+
+	/**
+	 * Takes in-flight lease of bitmap (if bitmap pool is enabled) so the bitmap isn't pooled until it's displayed. Lease
+	 * must be released by {@link #releaseBitmap(Bitmap)}.
+	 *
+	 * @return <b>true</b> - if lease was taken; <b>false</b> - if bitmap isn't tracked for reuse
+	 */
+	boolean acquireBitmap(Bitmap bitmap) {
+		BitmapReuseRegistry registry = configuration.bitmapReuseRegistry;
+		return registry != null && bitmap != null && registry.acquireInFlight(bitmap);
+	}
+
+	/** Releases in-flight lease of bitmap which was taken by {@link #acquireBitmap(Bitmap)} */
+	void releaseBitmap(Bitmap bitmap) {
+		BitmapReuseRegistry registry = configuration.bitmapReuseRegistry;
+		if (registry != null) {
+			registry.releaseInFlight(bitmap);
+		}
+	}
+
+	/**
+	 * Checks bitmap which was read from memory cache but which {@linkplain #acquireBitmap(Bitmap) lease} wasn't taken.
+	 * Such bitmap could be evicted and pooled right after reading, so it can be used only if it's still cached.
+	 *
+	 * @return <b>true</b> - if bitmap can be displayed; <b>false</b> - if bitmap should be considered as cache miss
+	 */
+	boolean isCachedBitmapUsable(String memoryCacheKey, Bitmap bitmap) {
+		return configuration.bitmapReuseRegistry == null || configuration.memoryCache.get(memoryCacheKey) == bitmap;
+	}
+
+	/** Registers bitmap which was just displayed in image aware as used by it (if bitmap pool is enabled) */
+	void onBitmapDisplayed(ImageAware imageAware, Bitmap bitmap) {
+		BitmapReuseRegistry registry = configuration.bitmapReuseRegistry;
+		if (registry != null) {
+			registry.onDisplayed(imageAware, bitmap);
+		}
+	}
+
+	private boolean unpark(LoadAndDisplayImageTask task) {
+		synchronized (pauseLock) {
+			return pausedTasks.remove(task);
 		}
 	}
 
@@ -112,10 +487,40 @@ class ImageLoaderEngine {
 	 * 击中内存缓存后,用于处理从内存中获取的bitmap和展示任务
 	 *  */
 	void submit(ProcessAndDisplayImageTask task) {
+		if (stageExecutors != null && executeStage(task, PipelineStage.DECODE)) return;
 		initExecutorsIfNeed();
 		taskExecutorForCachedImages.execute(task);
 	}
 
+	/**
+	 * Passes the task which completed its current stage to executor of the next pipeline stage.
+	 *
+	 * @return <b>true</b> - if task was passed; <b>false</b> - if staged pipeline is disabled or the stage's queue is
+	 * full, task should continue in current thread then
+	 */
+	boolean handOff(LoadAndDisplayImageTask task, PipelineStage nextStage) {
+		return stageExecutors != null && executeStage(task, nextStage);
+	}
+
+	private boolean executeStage(Runnable task, PipelineStage stage) {
+		initStageExecutorsIfNeed();
+		try {
+			stageExecutors[stage.ordinal()].execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns count of tasks waiting in queue of incoming pipeline stage. Returns 0 if staged pipeline is disabled.
+	 */
+	int getQueueDepth(PipelineStage stage) {
+		if (stageExecutors == null) return 0;
+		Executor executor = stageExecutors[stage.ordinal()];
+		return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+	}
+
 	/**
 	 * 如果采用的是自定义线程池，需要进行检查，避免自定义线程池已经关闭
 	 * 如果关闭，则采用默认线程池
@@ -133,33 +538,149 @@ class ImageLoaderEngine {
 	private Executor createTaskExecutor() {
 		return DefaultConfigurationFactory
 				.createExecutor(configuration.threadPoolSize, configuration.threadPriority,
-				configuration.tasksProcessingType);
+				configuration.tasksProcessingType, configuration.taskMaxWaitMillis);
+	}
+
+	/** 如果ImageLoader之前进行了stop，各个阶段的线程池都已经关闭，需要重新创建 */
+	private void initStageExecutorsIfNeed() {
+		for (PipelineStage stage : PipelineStage.values()) {
+			if (((ExecutorService) stageExecutors[stage.ordinal()]).isShutdown()) {
+				stageExecutors[stage.ordinal()] = createStageExecutor(stage);
+			}
+		}
+	}
+
+	private Executor createStageExecutor(PipelineStage stage) {
+		return DefaultConfigurationFactory.createStageExecutor(stage, configuration.getStagePoolSize(stage),
+				configuration.stageQueueCapacity, configuration.threadPriority, configuration.tasksProcessingType,
+				configuration.taskMaxWaitMillis);
 	}
 
 	/**
 	 * Returns URI of image which is loading at this moment into passed {@link com.nostra13.universalimageloader.core.imageaware.ImageAware}
 	 */
 	String getLoadingUriForView(ImageAware imageAware) {
-		return cacheKeysForImageAwares.get(imageAware.getId());
+		return viewRequests.getCacheKey(imageAware.getId());
 	}
 
 	/**
 	 * Associates <b>memoryCacheKey</b> with <b>imageAware</b>. Then it helps to define image URI is loaded into View at
 	 * exact moment.
+	 *
+	 * @return Generation of display request for <b>imageAware</b>. It's changed when <b>imageAware</b> is reused for
+	 * another memory cache key.
+	 */
+	int prepareDisplayTaskFor(ImageAware imageAware, String memoryCacheKey) {
+		int viewId = imageAware.getId();
+		int generation = viewRequests.prepare(viewId, memoryCacheKey);
+		//载体被复用于其他图片，之前的任务已经过时，直接从队列中移除
+		LoadAndDisplayImageTask staleTask = viewRequests.takeStaleTask(viewId, generation);
+		if (staleTask != null) {
+			evict(staleTask);
+		}
+		return generation;
+	}
+
+	/**
+	 * Returns <b>true</b> if <b>imageAware</b> was reused for another image (or its display task was cancelled) after
+	 * display request of incoming generation.
 	 */
-	void prepareDisplayTaskFor(ImageAware imageAware, String memoryCacheKey) {
-		cacheKeysForImageAwares.put(imageAware.getId(), memoryCacheKey);
+	boolean isViewReused(ImageAware imageAware, int generation) {
+		return viewRequests.getGeneration(imageAware.getId()) != generation;
 	}
 
 	/**
 	 * Cancels the task of loading and displaying image for incoming <b>imageAware</b>.
 	 * 每一个请求本身都有一个缓存，主要是用于check当前请求的载体和链接是否最新的
 	 * 一般不是最新的都会直接不通过检查，并且cancel
+	 * 如果任务还在队列中等待执行，则直接从队列中移除
 	 * @param imageAware {@link com.nostra13.universalimageloader.core.imageaware.ImageAware} for which display task
 	 *                   will be cancelled
 	 */
 	void cancelDisplayTaskFor(ImageAware imageAware) {
-		cacheKeysForImageAwares.remove(imageAware.getId());
+		LoadAndDisplayImageTask task = viewRequests.remove(imageAware.getId());
+		if (task != null) {
+			evict(task);
+		}
+	}
+
+	/**
+	 * Removes incoming task from execution queue (or from parked tasks or from loading in progress it's attached to) if
+	 * the task isn't started yet. Cancel event is fired for removed task. Task which was started already will be
+	 * cancelled by itself, its download is {@linkplain LoadAndDisplayImageTask#abortDownload() aborted} at once unless
+	 * other tasks for the same URI wait for it.
+	 */
+	private void evict(final LoadAndDisplayImageTask task) {
+		if (!task.evict()) {
+			//任务已经开始，如果正在下载则立即中断，不必等到下一次进度回调
+			//关闭连接可能涉及网络操作（比如SSL），不在调用线程（一般是UI线程）中进行
+			if (task.isDownloading()) {
+				taskDistributor.execute(new Runnable() {
+					@Override
+					public void run() {
+						task.abortDownload();
+					}
+				});
+			}
+			return;
+		}
+		removeEvicted(task);
+		task.fireEvictedEvent();
+	}
+
+	/** Removes evicted task from the place where it's waiting to be executed */
+	private void removeEvicted(LoadAndDisplayImageTask task) {
+		taggedTasks.unregister(task);
+		//任务已经标记为移出，即使之后从队列中取出也不会执行，这里只是尽早释放队列中的位置
+		if (!removeFromQueue(taskExecutor, task) && !removeFromQueue(taskExecutorForCachedImages, task)
+				&& !removeFromStageQueues(task) && !unpark(task)) {
+			uriLoadingRegistry.detachAttached(task);
+		}
+	}
+
+	private boolean removeFromStageQueues(Runnable task) {
+		if (stageExecutors == null) return false;
+		for (Executor executor : stageExecutors) {
+			if (removeFromQueue(executor, task)) return true;
+		}
+		return false;
+	}
+
+	private static boolean removeFromQueue(Executor executor, Runnable task) {
+		return executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).remove(task);
+	}
+
+	/**
+	 * Changes priority of the task of loading and displaying image for incoming <b>imageAware</b>. If the task is
+	 * waiting in executor queue then it's moved according to new priority.
+	 *
+	 * @return <b>true</b> - if task for <b>imageAware</b> was found; <b>false</b> - otherwise
+	 */
+	boolean setPriorityFor(ImageAware imageAware, int priority) {
+		LoadAndDisplayImageTask task = viewRequests.getTask(imageAware.getId());
+		if (task == null) return false;
+		task.setPriority(priority);
+		updatePriorityInQueues(task);
+		return true;
+	}
+
+	private void updatePriorityInQueues(LoadAndDisplayImageTask task) {
+		updatePriorityInQueue(taskExecutor, task);
+		updatePriorityInQueue(taskExecutorForCachedImages, task);
+		if (stageExecutors != null) {
+			for (Executor executor : stageExecutors) {
+				updatePriorityInQueue(executor, task);
+			}
+		}
+	}
+
+	private static void updatePriorityInQueue(Executor executor, Runnable task) {
+		if (executor instanceof ThreadPoolExecutor) {
+			BlockingQueue<Runnable> queue = ((ThreadPoolExecutor) executor).getQueue();
+			if (queue instanceof PriorityTaskQueue) {
+				((PriorityTaskQueue) queue).updatePriority(task);
+			}
+		}
 	}
 
 	/**
@@ -199,9 +720,25 @@ class ImageLoaderEngine {
 		if (!configuration.customExecutorForCachedImages) {
 			((ExecutorService) taskExecutorForCachedImages).shutdownNow();
 		}
+		if (stageExecutors != null) {
+			for (Executor executor : stageExecutors) {
+				((ExecutorService) executor).shutdownNow();
+			}
+		}
+		taskScheduler.shutdownNow();
 
-		cacheKeysForImageAwares.clear();
-		uriLocks.clear();
+		viewRequests.clear();
+		synchronized (prefetchTasks) {
+			prefetchTasks.clear();
+		}
+		synchronized (pauseLock) {
+			pausedTasks.clear();
+		}
+		taggedTasks.clear();
+		uriLoadingRegistry.clear();
+		if (configuration.bitmapReuseRegistry != null) {
+			configuration.bitmapReuseRegistry.clear();
+		}
 	}
 
 	void fireCallback(Runnable r) {
@@ -209,16 +746,25 @@ class ImageLoaderEngine {
 	}
 
 	/**
-	 * 每一个链接都会有一个锁，主要是用于对于当前链接的任务的锁
-     */
-	ReentrantLock getLockForUri(String uri) {
-		//这里进行了缓存
-		ReentrantLock lock = uriLocks.get(uri);
-		if (lock == null) {
-			lock = new ReentrantLock();
-			uriLocks.put(uri, lock);
-		}
-		return lock;
+	 * Passes display task to {@linkplain DisplayDispatcher batched display} if it's enabled and the task should be run
+	 * on UI thread.
+	 *
+	 * @return <b>true</b> - if task was passed; <b>false</b> - otherwise
+	 */
+	boolean dispatchDisplay(DisplayBitmapTask task, Handler handler) {
+		if (displayDispatcher == null || handler.getLooper() != Looper.getMainLooper()) return false;
+		displayDispatcher.post(task);
+		return true;
+	}
+
+	/** Returns count of image URIs which are loading at this moment */
+	int getInFlightUriCount() {
+		return uriLoadingRegistry.getInFlightCount();
+	}
+
+	/** Returns registry of image loadings which are in progress at this moment */
+	UriLoadingRegistry getUriLoadingRegistry() {
+		return uriLoadingRegistry;
 	}
 
 	AtomicBoolean getPause() {
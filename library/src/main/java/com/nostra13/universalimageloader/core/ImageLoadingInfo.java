@@ -15,13 +15,12 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core;
 
+import android.os.SystemClock;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListener;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 
-import java.util.concurrent.locks.ReentrantLock;
-
 /**
  * Information for load'n'display image task
  *
@@ -41,18 +40,35 @@ final class ImageLoadingInfo {
 	final DisplayImageOptions options;
 	final ImageLoadingListener listener;
 	final ImageLoadingProgressListener progressListener;
-	final ReentrantLock loadFromUriLock;
+	//载体的请求代数，载体被复用之后代数会改变
+	final int generation;
+	//请求的截止时间（SystemClock.uptimeMillis()），从displayImage开始计算，0表示没有截止时间
+	final long deadlineTime;
+	//是否是预加载请求，预加载的结果不交给调用者
+	final boolean prefetch;
 
 	public ImageLoadingInfo(String uri, ImageAware imageAware, ImageSize targetSize, String memoryCacheKey,
-			DisplayImageOptions options, ImageLoadingListener listener,
-			ImageLoadingProgressListener progressListener, ReentrantLock loadFromUriLock) {
+			int generation, DisplayImageOptions options, ImageLoadingListener listener,
+			ImageLoadingProgressListener progressListener, boolean prefetch) {
+		this.generation = generation;
 		this.uri = uri;
 		this.imageAware = imageAware;
 		this.targetSize = targetSize;
 		this.options = options;
 		this.listener = listener;
 		this.progressListener = progressListener;
-		this.loadFromUriLock = loadFromUriLock;
 		this.memoryCacheKey = memoryCacheKey;
+		this.prefetch = prefetch;
+		deadlineTime = options.hasDeadline() ? SystemClock.uptimeMillis() + options.getDeadline() : 0;
+	}
+
+	/** @return <b>true</b> - if {@linkplain DisplayImageOptions.Builder#deadline(int) deadline} of request is passed */
+	boolean isExpired() {
+		return deadlineTime > 0 && SystemClock.uptimeMillis() >= deadlineTime;
+	}
+
+	/** @return Time (in milliseconds) left to deadline of request; {@link Long#MAX_VALUE} if request has no deadline */
+	long getTimeToDeadline() {
+		return deadlineTime > 0 ? deadlineTime - SystemClock.uptimeMillis() : Long.MAX_VALUE;
 	}
 }
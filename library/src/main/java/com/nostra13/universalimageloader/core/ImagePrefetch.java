@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.PrefetchTarget;
+import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Group of images which are prefetched by one
+ * {@linkplain ImageLoader#prefetch(Collection, PrefetchTarget, ImageSize) prefetch} call. Prefetches of the group can be
+ * cancelled together.
+ *
+ * @since 1.9.5
+ */
+public final class ImagePrefetch {
+
+	/** Priority of prefetch task. Prefetches are executed after all other waiting tasks. */
+	static final int PRIORITY = Integer.MIN_VALUE;
+
+	private final ImageLoaderEngine engine;
+	//还没有结束的预加载任务，按照链接索引，任务结束或者取消之后移除
+	private final Map<String, LoadAndDisplayImageTask> tasks = new ConcurrentHashMap<String, LoadAndDisplayImageTask>();
+	//请求还没有在引擎中释放的任务，包括取消了分组但是已经被提升的任务，任务结束的时候释放
+	private final Map<String, LoadAndDisplayImageTask> requests = new ConcurrentHashMap<String, LoadAndDisplayImageTask>();
+	final ImageLoadingListener listener = new PrefetchListener();
+
+	ImagePrefetch(ImageLoaderEngine engine) {
+		this.engine = engine;
+	}
+
+	/** Adds prefetch task to this group. All tasks should be added before the group is {@linkplain #start() started}. */
+	void addTask(LoadAndDisplayImageTask task) {
+		tasks.put(task.uri, task);
+		requests.put(task.uri, task);
+	}
+
+	/** Submits all tasks of this group to execution pool */
+	void start() {
+		for (LoadAndDisplayImageTask task : tasks.values()) {
+			engine.submitPrefetch(task);
+		}
+	}
+
+	/**
+	 * Cancels all unfinished prefetches of this group. Prefetch which was promoted by display task isn't cancelled, it
+	 * belongs to display task then (but it isn't pending in this group anymore).
+	 */
+	public void cancel() {
+		for (LoadAndDisplayImageTask task : tasks.values()) {
+			if (tasks.remove(task.uri) != null && engine.cancelPrefetch(task)) {
+				//取消的时候请求已经释放了
+				requests.remove(task.uri);
+			}
+		}
+	}
+
+	/** Returns count of images which are still prefetching */
+	public int getPendingCount() {
+		return tasks.size();
+	}
+
+	/** Returns <b>true</b> if all prefetches of this group are finished or cancelled */
+	public boolean isDone() {
+		return tasks.isEmpty();
+	}
+
+	/** Releases request of finished task even if the task was promoted and its group was cancelled already */
+	private void finish(String imageUri) {
+		tasks.remove(imageUri);
+		LoadAndDisplayImageTask task = requests.remove(imageUri);
+		if (task != null) {
+			engine.finishPrefetch(task);
+		}
+	}
+
+	private final class PrefetchListener implements ImageLoadingListener {
+
+		@Override
+		public void onLoadingStarted(String imageUri, View view) {
+		}
+
+		@Override
+		public void onLoadingFailed(String imageUri, View view, FailReason failReason) {
+			finish(imageUri);
+		}
+
+		@Override
+		public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
+			finish(imageUri);
+		}
+
+		@Override
+		public void onLoadingCancelled(String imageUri, View view) {
+			finish(imageUri);
+		}
+	}
+}
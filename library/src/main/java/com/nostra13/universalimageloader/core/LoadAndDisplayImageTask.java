@@ -17,11 +17,15 @@ package com.nostra13.universalimageloader.core;
 
 import android.graphics.Bitmap;
 import android.os.Handler;
+import android.os.SystemClock;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
+import com.nostra13.universalimageloader.core.assist.PrefetchTarget;
+import com.nostra13.universalimageloader.core.assist.PrioritizedTask;
 import com.nostra13.universalimageloader.core.assist.ViewScaleType;
 import com.nostra13.universalimageloader.core.decode.ImageDecoder;
 import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
@@ -36,8 +40,10 @@ import com.nostra13.universalimageloader.utils.L;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Presents load'n'display image task. Used to load image from Internet or file system, decode it to {@link Bitmap}, and
@@ -48,7 +54,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @see ImageLoadingInfo
  * @since 1.3.1
  */
-final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
+final class LoadAndDisplayImageTask implements PrioritizedTask, IoUtils.CopyListener {
 
 	private static final String LOG_WAITING_FOR_RESUME = "ImageLoader is paused. Waiting...  [%s]";
 	private static final String LOG_RESUME_AFTER_PAUSE = ".. Resume loading [%s]";
@@ -67,6 +73,17 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_REUSED = "ImageAware is reused for another image. Task is cancelled. [%s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED = "ImageAware was collected by GC. Task is cancelled. [%s]";
 	private static final String LOG_TASK_INTERRUPTED = "Task was interrupted [%s]";
+	private static final String LOG_TASK_EVICTED = "Task was removed from execution queue. Task is cancelled. [%s]";
+	private static final String LOG_PREFETCH_NETWORK_RESTRICTED = "Network is denied or slow. Prefetch is cancelled. [%s]";
+	private static final String LOG_PREFETCHED_ON_DISK = "Image is prefetched on disk [%s]";
+	private static final String LOG_ABORT_DOWNLOAD = "Task is cancelled. Abort download [%s]";
+	private static final String LOG_TASK_EXPIRED = "Deadline of request is exceeded. Task is dropped. [%s]";
+	private static final String LOG_KEEP_DOWNLOAD = "Task is cancelled but download is almost complete. Keep downloading [%s]";
+	private static final String LOG_KEEP_DOWNLOAD_FOR_WAITING_TASKS = "Task is cancelled but other tasks wait for its download. Keep downloading [%s]";
+
+	private static final int STATE_NEW = 0;
+	private static final int STATE_STARTED = 1;
+	private static final int STATE_EVICTED = 2;
 
 	private static final String ERROR_NO_IMAGE_STREAM = "No stream for image [%s]";
 	private static final String ERROR_PRE_PROCESSOR_NULL = "Pre-processor returned null [%s]";
@@ -85,17 +102,47 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	private final ImageDecoder decoder;
 	final String uri;
 	private final String memoryCacheKey;
+	final int generation;
 	final ImageAware imageAware;
 	private final ImageSize targetSize;
 	final DisplayImageOptions options;
 	final ImageLoadingListener listener;
 	final ImageLoadingProgressListener progressListener;
 	private final boolean syncLoading;
+	//预加载任务要预热的缓存，null表示普通的展示任务
+	private final PrefetchTarget prefetchTarget;
 
 	// State vars
 	private LoadedFrom loadedFrom = LoadedFrom.NETWORK;
+	private volatile FailReason failReason;
+	private volatile int priority;
+	//任务状态，任务只能被开始执行或者被移出队列其中之一，保证不会在开始执行之后再回调onLoadingCancelled
+	private final AtomicInteger state = new AtomicInteger(STATE_NEW);
+	//分阶段执行时当前任务所处的阶段，null表示不分阶段（在一个线程中完成整个加载）
+	private PipelineStage stage;
+	private String imageUriForDecoding;
+	private boolean delayed;
+	private boolean deadlineScheduled;
+	//截止时间的定时器，任务开始或者被移出之后就没有用了，需要取消，否则定时器会一直持有任务直到截止时间
+	private volatile ScheduledFuture<?> deadlineFuture;
+	//进度回调的节流状态，只在加载线程中访问
+	private final ProgressUpdate progressUpdate;
+	private long lastProgressTime;
+	private int lastProgressBytes = -1;
+	//预加载任务被相同链接的正式请求提升了优先级，此时不再随着预加载分组一起取消
+	private volatile boolean promoted;
+	//正在下载的图片流以及下载进度，任务被取消的时候其他线程通过关闭该流立即中断下载
+	private volatile InputStream downloadStream;
+	private volatile int downloadedBytes;
+	private volatile int downloadTotalBytes;
 
 	public LoadAndDisplayImageTask(ImageLoaderEngine engine, ImageLoadingInfo imageLoadingInfo, Handler handler) {
+		this(engine, imageLoadingInfo, handler, null);
+	}
+
+	/** @param prefetchTarget Cache which is warmed by prefetch task; <b>null</b> - for display task */
+	LoadAndDisplayImageTask(ImageLoaderEngine engine, ImageLoadingInfo imageLoadingInfo, Handler handler,
+			PrefetchTarget prefetchTarget) {
 		this.engine = engine;
 		this.imageLoadingInfo = imageLoadingInfo;
 		this.handler = handler;
@@ -107,46 +154,64 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		decoder = configuration.decoder;
 		uri = imageLoadingInfo.uri;
 		memoryCacheKey = imageLoadingInfo.memoryCacheKey;
+		generation = imageLoadingInfo.generation;
 		imageAware = imageLoadingInfo.imageAware;
 		targetSize = imageLoadingInfo.targetSize;
 		options = imageLoadingInfo.options;
 		listener = imageLoadingInfo.listener;
 		progressListener = imageLoadingInfo.progressListener;
 		syncLoading = options.isSyncLoading();
+		priority = configuration.getTaskPriority(options);
+		progressUpdate = progressListener != null ? new ProgressUpdate() : null;
+		this.prefetchTarget = prefetchTarget;
 	}
 
 	@Override
 	public void run() {
-		//ImageLoaderEngine是否被暂停，如果暂停，则当前任务直接结束
-		//不过还是可以从内存缓存中获取图片，这个在列表页滑动加载还是很有意义的
-		//因为线程池默认是fixed类型的线程池，那么pause的时候最多会导致核心线程数的等待
-		//后续任务进入都会进行线程池的队列中等待执行
-		if (waitIfPaused()) return;
-		//如果配置了当前任务需要延时读取，则当前线程会沉睡指定毫秒后唤醒，如果任务有效则继续执行
-		if (delayIfNeed()) return;
-		//这个是当前链接对应的线程锁
-		//一个连接对应有一个ReentrantLock
-		ReentrantLock loadFromUriLock = imageLoadingInfo.loadFromUriLock;
-		L.d(LOG_START_DISPLAY_IMAGE_TASK, memoryCacheKey);
-		if (loadFromUriLock.isLocked()) {
-			L.d(LOG_WAITING_FOR_IMAGE_LOADED, memoryCacheKey);
+		int currentState = state.get();
+		if (currentState == STATE_EVICTED) return; // cancel event was fired on eviction already
+		//任务已经开始，说明当前任务是从上一个阶段的线程池中交接过来的，继续执行即可
+		boolean resumed = currentState == STATE_STARTED;
+		if (!resumed) {
+			//ImageLoaderEngine是否被暂停，如果暂停，则当前任务停放到engine中，线程直接释放，resume的时候重新分发
+			//不过还是可以从内存缓存中获取图片，这个在列表页滑动加载还是很有意义的
+			//已经开始执行的任务不受暂停的影响，线程池可以在暂停期间继续完成这些任务
+			if (waitIfPaused()) return;
+			//如果配置了当前任务需要延时读取，同步任务会在当前线程沉睡指定毫秒，异步任务已经在engine的定时器中延时过了
+			if (delayIfNeed()) return;
+			L.d(LOG_START_DISPLAY_IMAGE_TASK, memoryCacheKey);
+			//同一个链接同一时刻只允许一个任务进行加载
+			//如果已经有任务在加载该链接，当前任务会挂到那个任务上，线程直接释放，等那个任务完成之后再把结果分发过来
+			if (!attachToUriLoading()) return;
+			if (!start()) {
+				//任务在此期间被移出，挂在当前任务上的任务需要自己加载
+				completeAttachedTasks(null);
+				return;
+			}
 		}
-		//假设此时对于同一个链接不同的载体的不同的线程中的任务
-		//如果已经发起过一个请求，则该链接的请求将会加锁，之后如果有重复的请求发生，会一直等待直到锁释放
-		//同一个链接的请求同一时刻只能有一个
-		//等第一个请求完成之后，可能在硬盘缓存或者内存缓存中存在缓存
-		//从而后续的操作就可以从缓存中获取图片再进行操作
-		loadFromUriLock.lock();
-		Bitmap bmp;
+
+		Bitmap bmp = null;
+		Bitmap loadedBmp = null; // bitmap which can be shared with tasks attached to this loading
+		Bitmap acquiredBmp = null; // bitmap which is leased by this task so it isn't pooled until it's displayed
+		DisplayBitmapTask displayBitmapTask = null;
+		boolean handedOff = false;
 		try {
-			//对于同一个链接的任务，有的任务在等待后重新执行，此时可能过了一段时间
-			//需要检查任务的有效性，如果无效直接进入catch
+			//任务开始执行的时候可能已经过了一段时间，需要检查任务的有效性，如果无效直接进入catch
 			checkTaskNotActual();
+			//每一个阶段开始的时候都会检查请求是否已经超过截止时间
+			checkDeadline();
 			//再次尝试从内存缓存中获取
-			//主要场景就是当多个相同链接的请求发生的时候，只有一个任务正常执行，其余任务阻塞
-			//那么当第一个任务完成之后，下一个任务唤醒之后，此时可能因为第一个任务的成功而导致内存缓存中有值
+			//主要场景就是相同链接的前一个任务刚刚完成，此时可能因为前一个任务的成功而导致内存缓存中有值
 			//此时从内存缓存中获取即可，不必要再次进行多余操作
 			bmp = configuration.memoryCache.get(memoryCacheKey);
+			if (bmp != null && !bmp.isRecycled()) {
+				//租用命中的bitmap，避免它在展示之前被移出缓存并放入复用池
+				if (engine.acquireBitmap(bmp)) {
+					acquiredBmp = bmp;
+				} else if (!engine.isCachedBitmapUsable(memoryCacheKey, bmp)) {
+					bmp = null;
+				}
+			}
 			if (bmp == null || bmp.isRecycled()) {//内存缓存中还是没有数据
 				//从硬盘或者网络上尝试获取Bitmap
 				bmp = tryLoadBitmap();
@@ -170,12 +235,20 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 				if (bmp != null && options.isCacheInMemory()) {
 					L.d(LOG_CACHE_IMAGE_IN_MEMORY, memoryCacheKey);
 					//进行内存缓存
-					configuration.memoryCache.put(memoryCacheKey, bmp);
+					//先登记再放入，放入之后立即被移出的时候也能找到登记
+					engine.registerCachedBitmap(bmp);
+					if (engine.acquireBitmap(bmp)) {
+						acquiredBmp = bmp;
+					}
+					if (!configuration.memoryCache.put(memoryCacheKey, bmp)) {
+						engine.unregisterCachedBitmap(bmp);
+					}
 				}
 			} else {
 				loadedFrom = LoadedFrom.MEMORY_CACHE;
 				L.d(LOG_GET_IMAGE_FROM_MEMORY_CACHE_AFTER_WAITING, memoryCacheKey);
 			}
+			loadedBmp = bmp;
 			//这里的bitmap可以看做从内存缓存中获取的，
 			if (bmp != null && options.shouldPostProcess()) {
 				L.d(LOG_POSTPROCESS_IMAGE, memoryCacheKey);
@@ -187,31 +260,131 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			//在进行展示任务之前，检查任务的有效性
 			checkTaskNotActual();
 			checkTaskInterrupted();
+			checkDeadline();
+			displayBitmapTask = DisplayBitmapTask.obtain(bmp, imageLoadingInfo, engine, loadedFrom);
 		} catch (TaskCancelledException e) {
 			fireCancelEvent();//这个异常仅对应与任务取消异常，会回调onLoadingCancelled
 			return;
-		} finally {//注意ReentrantLock的基础，必须在try/catch/finally模块中，否则可能出现锁无法释放的情况
-			loadFromUriLock.unlock();
+		} catch (TaskExpiredException e) {
+			fireExpiredEvent();
+			return;
+		} catch (TaskHandedOffException e) {
+			//当前阶段完成，任务已经交给下一个阶段的线程池继续执行
+			handedOff = true;
+			return;
+		} finally {
+			//将结果分发给加载过程中挂到当前任务上的相同链接的任务
+			if (!handedOff) {
+				completeAttachedTasks(loadedBmp);
+				engine.unregisterTagged(this);
+			}
+			//展示任务和挂在当前任务上的任务已经各自租用了bitmap
+			if (acquiredBmp != null) {
+				engine.releaseBitmap(acquiredBmp);
+			}
 		}
 		//进行展示任务
-		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(bmp, imageLoadingInfo, engine, loadedFrom);
-		runTask(displayBitmapTask, syncLoading, handler, engine);
+		runDisplayTask(displayBitmapTask, syncLoading, handler, engine);
 	}
 
 	/**
-	 * 如果有必要，wait当前线程
+	 * Registers this task as the only loading task for its URI or attaches it to loading which is already in progress.
+	 *
+	 * @return <b>true</b> - if this task should load image itself; <b>false</b> - if task was attached to loading in
+	 * progress (or it was interrupted) and shouldn't be continued now
+	 */
+	private boolean attachToUriLoading() {
+		UriLoadingRegistry registry = engine.getUriLoadingRegistry();
+		while (!registry.attach(this)) {
+			L.d(LOG_WAITING_FOR_IMAGE_LOADED, memoryCacheKey);
+			if (!syncLoading) {
+				return false; // the leading task will complete this task
+			}
+			if (imageLoadingInfo.isExpired()) {
+				fireExpiredEvent();
+				return false;
+			}
+			//同步加载运行在调用者的线程中，直接等待正在加载的任务完成即可，最多等到请求的截止时间
+			try {
+				registry.awaitCompletion(uri, imageLoadingInfo.getTimeToDeadline());
+			} catch (InterruptedException e) {
+				L.e(LOG_TASK_INTERRUPTED, memoryCacheKey);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Completes tasks which were attached to this task while it was loading image for the same URI.
+	 *
+	 * @param bitmap Loaded bitmap (before post-processing); <b>null</b> - if loading was failed or cancelled
+	 */
+	private void completeAttachedTasks(Bitmap bitmap) {
+		List<LoadAndDisplayImageTask> attachedTasks = engine.getUriLoadingRegistry().detach(this);
+		for (LoadAndDisplayImageTask task : attachedTasks) {
+			if (bitmap != null && memoryCacheKey.equals(task.memoryCacheKey)) {
+				if (task.start()) {
+					engine.unregisterTagged(task);
+					task.displayLoadedBitmap(bitmap, loadedFrom);
+				}
+			} else if (bitmap == null && failReason != null && failReason.getType() != FailType.DEADLINE_EXCEEDED) {
+				if (task.start()) {
+					engine.unregisterTagged(task);
+					task.fireFailEvent(failReason.getType(), failReason.getCause());
+				}
+			} else if (task.state.get() == STATE_NEW) {
+				// Image of another size is needed or this task was cancelled (or expired) so attached task loads image
+				// itself.
+				// Image is most likely cached on disk already.
+				engine.submit(task);
+			}
+		}
+	}
+
+	/** Displays bitmap which was loaded by another task for the same memory cache key */
+	private void displayLoadedBitmap(Bitmap bitmap, LoadedFrom loadedFrom) {
+		if (options.shouldPostProcess()) {
+			engine.submit(ProcessAndDisplayImageTask.obtain(engine, bitmap, imageLoadingInfo, handler));
+		} else {
+			DisplayBitmapTask displayBitmapTask = DisplayBitmapTask.obtain(bitmap, imageLoadingInfo, engine, loadedFrom);
+			runDisplayTask(displayBitmapTask, false, handler, engine);
+		}
+	}
+
+	/**
+	 * 如果ImageLoader被暂停，异步任务停放到engine中，同步任务wait当前线程
 	 * */
 	private boolean waitIfPaused() {
+		//请求所属的分组被暂停，异步任务同样停放到engine中，同步任务不受分组暂停的影响
+		if (!syncLoading && engine.parkIfTagPaused(this)) {
+			L.d(LOG_WAITING_FOR_RESUME, memoryCacheKey);
+			return true;
+		}
 		AtomicBoolean pause = engine.getPause();
 		if (pause.get()) {//获取当前线程池是否暂停的标志
-			//如果当前线程池被暂停
+			//异步任务不在线程中等待，直接停放到engine中
+			if (!syncLoading) {
+				if (engine.parkIfPaused(this)) {
+					L.d(LOG_WAITING_FOR_RESUME, memoryCacheKey);
+					return true;
+				}
+				return isTaskNotActual();
+			}
+			//同步任务运行在调用者的线程中，只能在这里等待
 			synchronized (engine.getPauseLock()) {//暂停锁
 				if (pause.get()) {//因为锁的原因，可能会导致阻塞了一些时间，这里需要进行二次检查
 					L.d(LOG_WAITING_FOR_RESUME, memoryCacheKey);
 					try {
 						//如果当前线程池需要暂停，释放engine.getPauseLock()的锁，并且当前线程等待执行
 						//ImageLoaderEngine在resume中通过engine.getPauseLock().notifyAll即可唤醒当前所有在等待中的线程
-						engine.getPauseLock().wait();
+						//有截止时间的请求最多等到截止时间
+						long timeout = imageLoadingInfo.getTimeToDeadline();
+						if (timeout == Long.MAX_VALUE) {
+							engine.getPauseLock().wait();
+						} else if (timeout > 0) {
+							engine.getPauseLock().wait(timeout);
+						}
 					} catch (InterruptedException e) {
 						L.e(LOG_TASK_INTERRUPTED, memoryCacheKey);
 						return true;
@@ -226,10 +399,11 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	/**
 	 * 如果需要，尝试延时当前线程的执行
+	 * 只用于同步任务，异步任务在提交的时候由engine的定时器延时，不占用工作线程
 	 * */
 	private boolean delayIfNeed() {
 		//如果在DisplayOption中配置了延时读取的毫秒
-		if (options.shouldDelayBeforeLoading()) {
+		if (syncLoading && options.shouldDelayBeforeLoading()) {
 			L.d(LOG_DELAY_BEFORE_LOADING, options.getDelayBeforeLoading(), memoryCacheKey);
 			try {//线程沉睡指定毫秒
 				Thread.sleep(options.getDelayBeforeLoading());
@@ -245,42 +419,82 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	/**
 	 * 尝试从硬盘和网络上获取Bitmap
+	 * 分阶段执行的时候，每一个阶段完成之后任务会交给下一个阶段的线程池，从当前阶段继续执行
 	 * @return 获取的bitmap
 	 * @throws TaskCancelledException 当前任务已经无效异常
+	 * @throws TaskHandedOffException 当前任务已经交给下一个阶段的线程池
+	 * @throws TaskExpiredException 请求已经超过截止时间
      */
-	private Bitmap tryLoadBitmap() throws TaskCancelledException {
+	private Bitmap tryLoadBitmap() throws TaskCancelledException, TaskHandedOffException, TaskExpiredException {
 		Bitmap bitmap = null;
 		try {
-			//从硬盘缓存中根据链接获取指定文件
-			File imageFile = configuration.diskCache.get(uri);
-			//该文件是可读性质的，同时要求长度>0
-			if (imageFile != null && imageFile.exists() && imageFile.length() > 0) {//击中硬盘缓存
+			if (stage == null || stage == PipelineStage.DISK) {
+				//从硬盘缓存中根据链接获取指定文件，如果硬盘缓存的索引中没有该链接，则不需要访问文件系统
+				File imageFile = engine.mayBeCachedOnDisk(uri) ? configuration.diskCache.get(uri) : null;
+				//该文件是可读性质的，同时要求长度>0
+				if (imageFile != null && imageFile.exists() && imageFile.length() > 0) {//击中硬盘缓存
+					if (prefetchTarget == PrefetchTarget.DISK_ONLY) {
+						//只预热硬盘缓存的预加载任务已经完成，不需要解析图片
+						firePrefetchedOnDiskEvent();
+						return null;
+					}
+					loadedFrom = LoadedFrom.DISC_CACHE;
+					//根据uri解析bitmap，这个Scheme中定义了ImageLoader可以识别的前缀，具体看Scheme类
+					imageUriForDecoding = Scheme.FILE.wrap(imageFile.getAbsolutePath());
+					handOff(PipelineStage.DECODE);
+				} else {
+					handOff(PipelineStage.NETWORK);
+				}
+			}
+			if (loadedFrom == LoadedFrom.DISC_CACHE) {
 				L.d(LOG_LOAD_IMAGE_FROM_DISK_CACHE, memoryCacheKey);
-				loadedFrom = LoadedFrom.DISC_CACHE;
 				//即将进行图片的压缩等处理，先检查任务的有效性
 				checkTaskNotActual();
-				//根据uri解析bitmap，这个Scheme中定义了ImageLoader可以识别的前缀，具体看Scheme类
-				bitmap = decodeImage(Scheme.FILE.wrap(imageFile.getAbsolutePath()));
+				checkDeadline();
+				bitmap = decodeImage(imageUriForDecoding);
+				if (bitmap == null || bitmap.getWidth() <= 0 || bitmap.getHeight() <= 0) {
+					//硬盘缓存中的文件无法解析，重新加载
+					loadedFrom = LoadedFrom.NETWORK;
+					handOff(PipelineStage.NETWORK);
+				}
 			}
 			//未击中硬盘缓存
-			if (bitmap == null || bitmap.getWidth() <= 0 || bitmap.getHeight() <= 0) {
-				L.d(LOG_LOAD_IMAGE_FROM_NETWORK, memoryCacheKey);
-				loadedFrom = LoadedFrom.NETWORK;
-
-				String imageUriForDecoding = uri;
-				//DisplayOptions中设置允许缓存在硬盘中的话，尝试从网络上加载图片并且缓存在硬盘中
-				if (options.isCacheOnDisk() && tryCacheImageOnDisk()) {
-					//尝试从硬盘中获取刚刚通过网络等方式获取的图片
-					//这里除非在ImageLoaderConfiguration中指定硬盘缓存中的最大宽高
-					//否则一般来说就是原图
-					imageFile = configuration.diskCache.get(uri);
-					if (imageFile != null) {
-						//获取成功后需要添加file的Scheme
-						imageUriForDecoding = Scheme.FILE.wrap(imageFile.getAbsolutePath());
+			if (loadedFrom == LoadedFrom.NETWORK) {
+				if (stage != PipelineStage.DECODE) {
+					//网络受限的时候预加载不应该占用流量
+					if (prefetchTarget != null && isNetworkRestricted()) {
+						L.d(LOG_PREFETCH_NETWORK_RESTRICTED, memoryCacheKey);
+						throw new TaskCancelledException();
+					}
+					checkDeadline();
+					L.d(LOG_LOAD_IMAGE_FROM_NETWORK, memoryCacheKey);
+					imageUriForDecoding = uri;
+					if (prefetchTarget == PrefetchTarget.DISK_ONLY) {
+						//只把图片流保存到硬盘缓存中，不进行解析
+						if (tryCacheImageOnDisk()) {
+							firePrefetchedOnDiskEvent();
+						} else {
+							fireFailEvent(FailType.IO_ERROR, null);
+						}
+						return null;
+					}
+					//DisplayOptions中设置允许缓存在硬盘中的话，尝试从网络上加载图片并且缓存在硬盘中
+					if (options.isCacheOnDisk() && tryCacheImageOnDisk()) {
+						//尝试从硬盘中获取刚刚通过网络等方式获取的图片
+						//这里除非在ImageLoaderConfiguration中指定硬盘缓存中的最大宽高
+						//否则一般来说就是原图
+						File imageFile = configuration.diskCache.get(uri);
+						if (imageFile != null) {
+							//获取成功后需要添加file的Scheme
+							imageUriForDecoding = Scheme.FILE.wrap(imageFile.getAbsolutePath());
+							handOff(PipelineStage.DECODE);
+						}
 					}
+					//不缓存在硬盘中的时候直接从流中解析，仍然在当前阶段进行
 				}
 				//准备进行拉伸压缩等操作，先检查任务的有效性
 				checkTaskNotActual();
+				checkDeadline();
 				//如果允许硬盘缓存的话，再次解析文件，压缩等操作（之前进行过压缩，所以这里基本上就是过一遍判断）
 				//否则就是从网络上获取流，然后压缩等操作，不会进行硬盘缓存
 				bitmap = decodeImage(imageUriForDecoding);
@@ -295,6 +509,10 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			fireFailEvent(FailType.NETWORK_DENIED, null);
 		} catch (TaskCancelledException e) {
 			throw e;
+		} catch (TaskHandedOffException e) {
+			throw e;
+		} catch (TaskExpiredException e) {
+			throw e;
 		} catch (IOException e) {
 			L.e(e);
 			fireFailEvent(FailType.IO_ERROR, e);
@@ -308,6 +526,19 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return bitmap;
 	}
 
+	/**
+	 * Passes this task to executor of the next pipeline stage if staged pipeline is enabled. Otherwise (or if the
+	 * stage's queue is full) the task continues next stage in current thread.
+	 *
+	 * @throws TaskHandedOffException if the task was passed to the stage's executor
+	 */
+	private void handOff(PipelineStage nextStage) throws TaskHandedOffException {
+		stage = nextStage;
+		if (!syncLoading && engine.handOff(this, nextStage)) {
+			throw new TaskHandedOffException();
+		}
+	}
+
 	/**
 	 * 根据uri解析图片（uri可能是http、drawable、content等，具体看Scheme类）
 	 * @param imageUri 当前要处理的图片URI
@@ -317,10 +548,14 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		//获取压缩类型CROP或FIT_INSIDE
 		ViewScaleType viewScaleType = imageAware.getScaleType();
 		//创建解析Bitmap所需要的参数
-		ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey, imageUri, uri, targetSize, viewScaleType,
-				getDownloader(), options);
-		//默认decoder在ImageLoaderConfiguration中创建BaseImageDecoder
-		return decoder.decode(decodingInfo);
+		ImageDecodingInfo decodingInfo = ImageDecodingInfo.obtain(memoryCacheKey, imageUri, uri, targetSize,
+				viewScaleType, getDownloader(), options);
+		try {
+			//默认decoder在ImageLoaderConfiguration中创建BaseImageDecoder
+			return decoder.decode(decodingInfo);
+		} finally {
+			decodingInfo.recycle();
+		}
 	}
 
 	/**
@@ -361,9 +596,13 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			L.e(ERROR_NO_IMAGE_STREAM, memoryCacheKey);
 			return false;
 		} else {
+			downloadedBytes = 0;
+			downloadTotalBytes = 0;
+			downloadStream = is;
 			try {//将图片缓存到硬盘中，这里明显是原图
 				return configuration.diskCache.save(uri, is, this);
 			} finally {
+				downloadStream = null;
 				IoUtils.closeSilently(is);
 			}
 		}
@@ -384,11 +623,16 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			//指定IN_SAMPLE_INT的时候，只会进行压缩处理，不会拉伸
 			DisplayImageOptions specialOptions = new DisplayImageOptions.Builder().cloneFrom(options)
 					.imageScaleType(ImageScaleType.IN_SAMPLE_INT).build();
-			ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey,
+			ImageDecodingInfo decodingInfo = ImageDecodingInfo.obtain(memoryCacheKey,
 					Scheme.FILE.wrap(targetFile.getAbsolutePath()), uri, targetImageSize, ViewScaleType.FIT_INSIDE,
 					getDownloader(), specialOptions);
-			//根据给定的新的宽高重新拉伸压缩等操作
-			Bitmap bmp = decoder.decode(decodingInfo);
+			Bitmap bmp;
+			try {
+				//根据给定的新的宽高重新拉伸压缩等操作
+				bmp = decoder.decode(decodingInfo);
+			} finally {
+				decodingInfo.recycle();
+			}
 			if (bmp != null && configuration.processorForDiskCache != null) {
 				L.d(LOG_PROCESS_IMAGE_BEFORE_CACHE_ON_DISK, memoryCacheKey);
 				bmp = configuration.processorForDiskCache.process(bmp);
@@ -398,7 +642,10 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			}
 			if (bmp != null) {//将处理后的bitmap重新写入硬盘缓存中进行覆盖
 				saved = configuration.diskCache.save(uri, bmp);
-				bmp.recycle();
+				//Bitmap只用于写入硬盘缓存，之后可以复用
+				if (configuration.bitmapPool == null || !configuration.bitmapPool.put(bmp)) {
+					bmp.recycle();
+				}
 			}
 		}
 		return saved;
@@ -406,21 +653,91 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	@Override
 	public boolean onBytesCopied(int current, int total) {
-		return syncLoading || fireProgressEvent(current, total);
+		downloadedBytes = current;
+		downloadTotalBytes = total;
+		//请求已经超过截止时间，下载没有意义了，直接中断
+		if (imageLoadingInfo.isExpired()) return false;
+		//任务被取消的时候（同步加载也一样）根据配置的策略决定是中断下载还是完成快要结束的下载
+		//还有其他任务挂在当前下载上的话，下载继续进行，完成后它们可以直接从硬盘缓存中加载
+		if (isTaskInterrupted() || isTaskNotActual()) {
+			return hasWaitingTasks() || shouldKeepDownload(current, total);
+		}
+		if (!syncLoading) {
+			fireProgressEvent(current, total);
+		}
+		return true;
 	}
 
-	/** @return <b>true</b> - if loading should be continued; <b>false</b> - if loading should be interrupted */
-	private boolean fireProgressEvent(final int current, final int total) {
-		if (isTaskInterrupted() || isTaskNotActual()) return false;
-		if (progressListener != null) {
-			Runnable r = new Runnable() {
-				@Override
-				public void run() {
-					progressListener.onProgressUpdate(uri, imageAware.getWrappedView(), current, total);
-				}
-			};
-			runTask(r, false, handler, engine);
+	private void fireProgressEvent(int current, int total) {
+		if (progressUpdate != null && shouldPublishProgress(current, total)) {
+			//之前的进度消息还没有执行的话不需要再次发送，它会带上最新的进度
+			if (progressUpdate.update(current, total)) {
+				runTask(progressUpdate, false, handler, engine);
+			}
 		}
+	}
+
+	/**
+	 * Returns <b>true</b> if download of cancelled task has reached
+	 * {@linkplain ImageLoaderConfiguration.Builder#keepCancelledDownloadsFrom(int) configured progress} and should be
+	 * completed for disk cache
+	 */
+	private boolean shouldKeepDownload(int current, int total) {
+		if (total <= 0 || 100L * current < (long) configuration.keepCancelledDownloadsFrom * total) {
+			L.d(LOG_ABORT_DOWNLOAD, memoryCacheKey);
+			return false;
+		}
+		L.d(LOG_KEEP_DOWNLOAD, memoryCacheKey);
+		return true;
+	}
+
+	/** @return <b>true</b> - if image stream of this task is downloading at this moment */
+	boolean isDownloading() {
+		return downloadStream != null;
+	}
+
+	/**
+	 * Aborts download of this cancelled task at once by closing of its stream (network connection is closed too).
+	 * Blocked read of loading thread is interrupted so the thread and the socket are released. Download isn't aborted
+	 * if other tasks are attached to this loading and wait for the image or if it's almost complete according to
+	 * {@linkplain ImageLoaderConfiguration.Builder#keepCancelledDownloadsFrom(int) configuration}.
+	 */
+	void abortDownload() {
+		InputStream stream = downloadStream;
+		if (stream != null && !hasWaitingTasks() && !shouldKeepDownload(downloadedBytes, downloadTotalBytes)) {
+			IoUtils.closeSilently(stream);
+		}
+	}
+
+	/**
+	 * @return <b>true</b> - if other tasks for the same URI are attached to this task and wait for its download, so it
+	 * shouldn't be aborted even if this task is cancelled
+	 */
+	private boolean hasWaitingTasks() {
+		if (engine.getUriLoadingRegistry().hasAttached(this)) {
+			L.d(LOG_KEEP_DOWNLOAD_FOR_WAITING_TASKS, memoryCacheKey);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Throttles progress updates by {@linkplain ImageLoaderConfiguration.Builder#progressUpdateInterval(int) time} and
+	 * by {@linkplain ImageLoaderConfiguration.Builder#progressUpdateStep(int) step}. First and final updates are
+	 * always published.
+	 */
+	private boolean shouldPublishProgress(int current, int total) {
+		long now = SystemClock.uptimeMillis();
+		boolean first = lastProgressBytes < 0;
+		boolean last = total > 0 && current >= total;
+		if (!first && !last) {
+			if (now - lastProgressTime < configuration.progressUpdateInterval) return false;
+			if (total > 0 && (long) (current - lastProgressBytes) * 100 < (long) configuration.progressUpdateStep * total) {
+				return false;
+			}
+		}
+		lastProgressTime = now;
+		lastProgressBytes = current;
 		return true;
 	}
 
@@ -428,6 +745,7 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	 * 回调加载图片失败
      */
 	private void fireFailEvent(final FailType failType, final Throwable failCause) {
+		failReason = new FailReason(failType, failCause);
 		if (syncLoading || isTaskInterrupted() || isTaskNotActual()) return;
 		Runnable r = new Runnable() {
 			@Override
@@ -435,14 +753,43 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 				if (options.shouldShowImageOnFail()) {
 					imageAware.setImageDrawable(options.getImageOnFail(configuration.resources));
 				}
-				listener.onLoadingFailed(uri, imageAware.getWrappedView(), new FailReason(failType, failCause));
+				listener.onLoadingFailed(uri, imageAware.getWrappedView(), failReason);
+			}
+		};
+		runTask(r, false, handler, engine);
+	}
+
+	/** Fires complete event (without bitmap) for prefetch task which saved image in disk cache */
+	private void firePrefetchedOnDiskEvent() {
+		L.d(LOG_PREFETCHED_ON_DISK, memoryCacheKey);
+		if (isTaskInterrupted() || isTaskNotActual()) return;
+		Runnable r = new Runnable() {
+			@Override
+			public void run() {
+				listener.onLoadingComplete(uri, imageAware.getWrappedView(), null);
 			}
 		};
 		runTask(r, false, handler, engine);
 	}
 
+	/** Fires fail event with {@link FailType#DEADLINE_EXCEEDED} for this task */
+	void fireExpiredEvent() {
+		L.d(LOG_TASK_EXPIRED, memoryCacheKey);
+		fireFailEvent(FailType.DEADLINE_EXCEEDED, null);
+	}
+
 	private void fireCancelEvent() {
 		if (syncLoading || isTaskInterrupted()) return;
+		postCancelEvent();
+	}
+
+	/** Fires cancel event for this task which was {@linkplain #evict() evicted} before it started */
+	void fireEvictedEvent() {
+		L.d(LOG_TASK_EVICTED, memoryCacheKey);
+		postCancelEvent();
+	}
+
+	private void postCancelEvent() {
 		Runnable r = new Runnable() {
 			@Override
 			public void run() {
@@ -468,6 +815,13 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return d;
 	}
 
+	/** @return <b>true</b> - if network downloads are denied or network is slow for URI of this task */
+	private boolean isNetworkRestricted() {
+		if (!engine.isNetworkDenied() && !engine.isSlowNetwork()) return false;
+		Scheme scheme = Scheme.ofUri(uri);
+		return scheme == Scheme.HTTP || scheme == Scheme.HTTPS;
+	}
+
 	/**
 	 * @throws TaskCancelledException if task is not actual (target ImageAware is collected by GC or the image URI of
 	 *                                this task doesn't match to image URI which is actual for current ImageAware at
@@ -478,6 +832,19 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		checkViewReused();
 	}
 
+	/** @return <b>true</b> - if target ImageAware is still waiting for this task's image; <b>false</b> - otherwise */
+	boolean isActual() {
+		return !isTaskNotActual();
+	}
+
+	/**
+	 * @return <b>true</b> - if task was evicted or its request isn't actual anymore (the task won't display anything);
+	 * <b>false</b> - otherwise. Unlike {@link #isActual()} it doesn't write logs.
+	 */
+	boolean isObsolete() {
+		return state.get() == STATE_EVICTED || imageAware.isCollected() || engine.isViewReused(imageAware, generation);
+	}
+
 	/**
 	 * @return <b>true</b> - if task is not actual (target ImageAware is collected by GC or the image URI of this task
 	 * doesn't match to image URI which is actual for current ImageAware at this moment)); <b>false</b> - otherwise
@@ -514,17 +881,22 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	/** @return <b>true</b> - if current ImageAware is reused for displaying another image; <b>false</b> - otherwise */
 	private boolean isViewReused() {
-		String currentCacheKey = engine.getLoadingUriForView(imageAware);
-		// Check whether memory cache key (image URI) for current ImageAware is actual.
+		// Check whether display request of this task is still actual for current ImageAware.
 		// If ImageAware is reused for another task then current task should be cancelled.
-		boolean imageAwareWasReused = !memoryCacheKey.equals(currentCacheKey);
-		if (imageAwareWasReused) {
+		if (engine.isViewReused(imageAware, generation)) {
 			L.d(LOG_TASK_CANCELLED_IMAGEAWARE_REUSED, memoryCacheKey);
 			return true;
 		}
 		return false;
 	}
 
+	/** @throws TaskExpiredException if deadline of request is passed */
+	private void checkDeadline() throws TaskExpiredException {
+		if (imageLoadingInfo.isExpired()) {
+			throw new TaskExpiredException();
+		}
+	}
+
 	/** @throws TaskCancelledException if current task was interrupted */
 	private void checkTaskInterrupted() throws TaskCancelledException {
 		if (isTaskInterrupted()) {
@@ -545,6 +917,106 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return uri;
 	}
 
+	/**
+	 * Marks this task as evicted if it isn't started yet. Evicted task does nothing when it's run.
+	 *
+	 * @return <b>true</b> - if task was evicted; <b>false</b> - if task was started or evicted already
+	 */
+	boolean evict() {
+		if (state.compareAndSet(STATE_NEW, STATE_EVICTED)) {
+			engine.cancelDeadline(this);
+			return true;
+		}
+		return false;
+	}
+
+	/** @return <b>true</b> - if task was started; <b>false</b> - if task was started or evicted already */
+	private boolean start() {
+		if (state.compareAndSet(STATE_NEW, STATE_STARTED)) {
+			engine.cancelDeadline(this);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns <b>true</b> if loading of this task should be delayed by
+	 * {@linkplain DisplayImageOptions.Builder#delayBeforeLoading(int) display options} and it wasn't delayed yet.
+	 * Delay is consumed by this call.
+	 */
+	boolean takeDelay() {
+		if (syncLoading || delayed || !options.shouldDelayBeforeLoading()) return false;
+		delayed = true;
+		return true;
+	}
+
+	/**
+	 * Returns <b>true</b> if request of this task has {@linkplain DisplayImageOptions.Builder#deadline(int) deadline}
+	 * and timer for it wasn't scheduled yet. Timer is considered scheduled after this call.
+	 */
+	boolean takeDeadlineTimer() {
+		if (syncLoading || deadlineScheduled || !options.hasDeadline()) return false;
+		deadlineScheduled = true;
+		return true;
+	}
+
+	/**
+	 * Keeps deadline timer of this task so it can be cancelled when the task is started or evicted.
+	 *
+	 * @return <b>false</b> - if the task was started or evicted already and timer should be cancelled by caller
+	 */
+	boolean setDeadlineFuture(ScheduledFuture<?> deadlineFuture) {
+		this.deadlineFuture = deadlineFuture;
+		return state.get() == STATE_NEW;
+	}
+
+	/** Returns deadline timer of this task (or <b>null</b>) and forgets it */
+	ScheduledFuture<?> takeDeadlineFuture() {
+		ScheduledFuture<?> future = deadlineFuture;
+		deadlineFuture = null;
+		return future;
+	}
+
+	/** @return Time (in milliseconds) left to deadline of request */
+	long getTimeToDeadline() {
+		return imageLoadingInfo.getTimeToDeadline();
+	}
+
+	/** Sets pipeline stage which the task will start from */
+	void setStage(PipelineStage stage) {
+		this.stage = stage;
+	}
+
+	@Override
+	public int getPriority() {
+		return priority;
+	}
+
+	/** Changes priority of this task. Queue which contains this task should be notified about the change by caller. */
+	void setPriority(int priority) {
+		this.priority = priority;
+	}
+
+	/** @return <b>true</b> - if this task warms cache by {@link ImagePrefetch}; <b>false</b> - for display task */
+	boolean isPrefetch() {
+		return prefetchTarget != null;
+	}
+
+	/** Marks prefetch task as promoted by display task for the same URI */
+	void setPromoted() {
+		promoted = true;
+	}
+
+	boolean isPromoted() {
+		return promoted;
+	}
+
+	static void runDisplayTask(DisplayBitmapTask task, boolean sync, Handler handler, ImageLoaderEngine engine) {
+		//启用按帧分批展示的时候，UI线程中的展示任务交给DisplayDispatcher在下一帧统一执行
+		if (!sync && handler != null && engine.dispatchDisplay(task, handler)) return;
+		runTask(task, sync, handler, engine);
+	}
+
 	static void runTask(Runnable r, boolean sync, Handler handler, ImageLoaderEngine engine) {
 		if (sync) {//如果同步进行，直接在当前线程执行
 			r.run();
@@ -555,6 +1027,38 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		}
 	}
 
+	/**
+	 * Reusable progress message of the task. Only one message is posted at a time, it delivers the latest progress
+	 * values when it's executed.
+	 */
+	private final class ProgressUpdate implements Runnable {
+
+		private int current;
+		private int total;
+		private boolean posted;
+
+		/** @return <b>true</b> - if message should be posted; <b>false</b> - if it's posted already */
+		synchronized boolean update(int current, int total) {
+			this.current = current;
+			this.total = total;
+			if (posted) return false;
+			posted = true;
+			return true;
+		}
+
+		@Override
+		public void run() {
+			int current;
+			int total;
+			synchronized (this) {
+				current = this.current;
+				total = this.total;
+				posted = false;
+			}
+			progressListener.onProgressUpdate(uri, imageAware.getWrappedView(), current, total);
+		}
+	}
+
 	/**
 	 * Exceptions for case when task is cancelled (thread is interrupted, image view is reused for another task, view is
 	 * collected by GC).
@@ -564,4 +1068,19 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	 */
 	class TaskCancelledException extends Exception {
 	}
+
+	/** Exception for case when deadline of request is passed */
+	class TaskExpiredException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/** Exception for case when task is passed to executor of the next pipeline stage. */
+	class TaskHandedOffException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this; // stack trace isn't needed, task is just unwound from current thread
+		}
+	}
 }
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Direct-mapped table of recently used {@linkplain MemoryCacheUtils#generateKey(String, ImageSize) memory cache keys}.
+ * Key is looked up by URI and target size without building of key string, so repeated display of the same image in
+ * the same view size (e.g. list scrolling over cached images) doesn't allocate objects.<br />
+ * Every slot keeps one immutable entry, entry is replaced when other key falls into the same slot. So table never
+ * grows and needs no locks.
+ *
+ * @since 1.9.5
+ */
+final class MemoryCacheKeyTable {
+
+	static final int DEFAULT_CAPACITY = 512; // must be power of 2
+
+	private final AtomicReferenceArray<Entry> slots;
+	private final int mask;
+
+	MemoryCacheKeyTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/** @param capacity Count of slots, must be power of 2 */
+	MemoryCacheKeyTable(int capacity) {
+		slots = new AtomicReferenceArray<Entry>(capacity);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Returns entry of memory cache key for incoming URI and target size. Entry is created only if table doesn't keep
+	 * it already.
+	 */
+	Entry obtain(String imageUri, int width, int height) {
+		int hash = hash(imageUri, width, height);
+		int index = hash & mask;
+		Entry entry = slots.get(index);
+		if (entry != null && entry.matches(hash, imageUri, width, height)) {
+			return entry;
+		}
+		entry = new Entry(hash, imageUri, new ImageSize(width, height));
+		slots.set(index, entry);
+		return entry;
+	}
+
+	private static int hash(String imageUri, int width, int height) {
+		//String缓存了自己的hashCode，这里的计算不会分配对象
+		int hash = imageUri.hashCode();
+		hash = 31 * hash + width;
+		hash = 31 * hash + height;
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/** Memory cache key with URI and target size it was generated for */
+	static final class Entry {
+
+		final int hash;
+		final String imageUri;
+		final ImageSize targetSize;
+		final String key;
+
+		Entry(int hash, String imageUri, ImageSize targetSize) {
+			this.hash = hash;
+			this.imageUri = imageUri;
+			this.targetSize = targetSize;
+			key = MemoryCacheUtils.generateKey(imageUri, targetSize);
+		}
+
+		boolean matches(int hash, String imageUri, int width, int height) {
+			return this.hash == hash && targetSize.getWidth() == width && targetSize.getHeight() == height
+					&& this.imageUri.equals(imageUri);
+		}
+	}
+}
@@ -19,44 +19,84 @@ import android.graphics.Bitmap;
 import android.os.Handler;
 import android.widget.ImageView;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.assist.PrioritizedTask;
 import com.nostra13.universalimageloader.core.process.BitmapProcessor;
 import com.nostra13.universalimageloader.utils.L;
+import com.nostra13.universalimageloader.utils.ObjectPool;
 
 /**
  * Presents process'n'display image task. Processes image {@linkplain Bitmap} and display it in {@link ImageView} using
- * {@link DisplayBitmapTask}.
+ * {@link DisplayBitmapTask}. Task is returned to pool after it's run.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.8.0
  */
-final class ProcessAndDisplayImageTask implements Runnable {
+final class ProcessAndDisplayImageTask implements PrioritizedTask {
 
 	private static final String LOG_POSTPROCESS_IMAGE = "PostProcess image before displaying [%s]";
 
-	private final ImageLoaderEngine engine;
-	private final Bitmap bitmap;
-	private final ImageLoadingInfo imageLoadingInfo;
-	private final Handler handler;
+	private static final int MAX_POOL_SIZE = 16;
 
-	public ProcessAndDisplayImageTask(ImageLoaderEngine engine, Bitmap bitmap, ImageLoadingInfo imageLoadingInfo,
+	static final ObjectPool<ProcessAndDisplayImageTask> POOL = new ObjectPool<ProcessAndDisplayImageTask>(MAX_POOL_SIZE) {
+		@Override
+		protected ProcessAndDisplayImageTask create() {
+			return new ProcessAndDisplayImageTask();
+		}
+	};
+
+	private ImageLoaderEngine engine;
+	private Bitmap bitmap;
+	//是否持有bitmap的租用，处理完成之前bitmap不会被放入复用池
+	private boolean bitmapAcquired;
+	private ImageLoadingInfo imageLoadingInfo;
+	private Handler handler;
+
+	private ProcessAndDisplayImageTask() {
+	}
+
+	static ProcessAndDisplayImageTask obtain(ImageLoaderEngine engine, Bitmap bitmap, ImageLoadingInfo imageLoadingInfo,
 			Handler handler) {
-		this.engine = engine;
-		this.bitmap = bitmap;
-		this.imageLoadingInfo = imageLoadingInfo;
-		this.handler = handler;
+		ProcessAndDisplayImageTask task = POOL.acquire();
+		task.engine = engine;
+		task.bitmap = bitmap;
+		task.bitmapAcquired = engine.acquireBitmap(bitmap);
+		task.imageLoadingInfo = imageLoadingInfo;
+		task.handler = handler;
+		return task;
 	}
 
 	@Override
 	public void run() {
+		try {
+			processAndDisplay();
+		} finally {
+			if (bitmapAcquired) {
+				engine.releaseBitmap(bitmap);
+				bitmapAcquired = false;
+			}
+			engine = null;
+			bitmap = null;
+			imageLoadingInfo = null;
+			handler = null;
+			POOL.release(this);
+		}
+	}
+
+	private void processAndDisplay() {
 		L.d(LOG_POSTPROCESS_IMAGE, imageLoadingInfo.memoryCacheKey);
 
 		BitmapProcessor processor = imageLoadingInfo.options.getPostProcessor();
 		//进行自定义的bitmap操作
 		Bitmap processedBitmap = processor.process(bitmap);
 		//开始展示bitmap的任务
-		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(processedBitmap, imageLoadingInfo, engine,
+		DisplayBitmapTask displayBitmapTask = DisplayBitmapTask.obtain(processedBitmap, imageLoadingInfo, engine,
 				LoadedFrom.MEMORY_CACHE);
 		//如果同步执行，则在当前线程执行，否则，如果指定了Handler，在Handler中执行，否则在ImageLoaderEngine的子线程中执行
-		LoadAndDisplayImageTask.runTask(displayBitmapTask, imageLoadingInfo.options.isSyncLoading(), handler, engine);
+		LoadAndDisplayImageTask.runDisplayTask(displayBitmapTask, imageLoadingInfo.options.isSyncLoading(), handler, engine);
+	}
+
+	@Override
+	public int getPriority() {
+		return engine.configuration.getTaskPriority(imageLoadingInfo.options);
 	}
 }
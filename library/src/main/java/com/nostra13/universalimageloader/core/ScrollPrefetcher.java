@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.PrefetchTarget;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Predictive {@linkplain ImageLoader#prefetch(java.util.Collection, PrefetchTarget, ImageSize) prefetcher} for
+ * scrollable lists. It watches visible positions of the list, defines scroll direction and velocity and prefetches
+ * images of next positions which will be scrolled into view soon. Prefetches of positions which left predicted window
+ * are cancelled. Nothing is prefetched during very fast fling, when the window is outdated before images are loaded.
+ * <br />
+ * Call {@link #onScroll(int, int, int)} on every scroll and {@link #onScrollIdle()} when scroll is stopped. For
+ * {@link android.widget.AbsListView AbsListView} use
+ * {@link com.nostra13.universalimageloader.core.listener.PrefetchOnScrollListener PrefetchOnScrollListener} which
+ * does it. For other scrollable views (e.g. RecyclerView) call these methods from their scroll listener with
+ * positions reported by their layout manager.<br />
+ * Methods of prefetcher should be called on UI thread.
+ *
+ * @see ImagePrefetch
+ * @since 1.9.5
+ */
+public class ScrollPrefetcher {
+
+	/** Default count of positions which are prefetched ahead of visible positions: {@value} */
+	public static final int DEFAULT_PREFETCH_COUNT = 6;
+	/** Default scroll velocity (positions per second) above which nothing is prefetched: {@value} */
+	public static final int DEFAULT_MAX_VELOCITY = 40;
+
+	private static final String ERROR_WRONG_PREFETCH_COUNT = "prefetchCount must be a positive number";
+	private static final String ERROR_WRONG_MAX_VELOCITY = "maxVelocity must be a positive number";
+
+	// Weight of previous velocity in smoothed velocity
+	private static final float VELOCITY_SMOOTHING = 0.5f;
+
+	private final ImageLoader imageLoader;
+	private final UriProvider uriProvider;
+	private final PrefetchTarget target;
+	private final ImageSize targetSize;
+	private final int prefetchCount;
+	private final int maxVelocity;
+
+	//当前预测窗口中的预加载，按照链接索引
+	private final Map<String, ImagePrefetch> prefetches = new HashMap<String, ImagePrefetch>();
+	private int lastFirstPosition = -1;
+	private long lastPositionTime;
+	private int lastVisibleCount;
+	private int lastItemCount;
+	private int direction = 1;
+	private float velocity;
+
+	/**
+	 * Creates prefetcher with {@link #DEFAULT_PREFETCH_COUNT default prefetch count} and
+	 * {@link #DEFAULT_MAX_VELOCITY default max velocity}.
+	 *
+	 * @param imageLoader {@linkplain ImageLoader} instance which prefetches images
+	 * @param uriProvider Provider of image URI for adapter position
+	 * @param target      Cache which should be warmed
+	 * @param targetSize  Size of prefetched bitmaps. Should be equal to size of views so displayed images hit memory
+	 *                    cache. If <b>null</b> - max image size from configuration will be used.
+	 */
+	public ScrollPrefetcher(ImageLoader imageLoader, UriProvider uriProvider, PrefetchTarget target,
+			ImageSize targetSize) {
+		this(imageLoader, uriProvider, target, targetSize, DEFAULT_PREFETCH_COUNT, DEFAULT_MAX_VELOCITY);
+	}
+
+	/**
+	 * @param imageLoader   {@linkplain ImageLoader} instance which prefetches images
+	 * @param uriProvider   Provider of image URI for adapter position
+	 * @param target        Cache which should be warmed
+	 * @param targetSize    Size of prefetched bitmaps. Should be equal to size of views so displayed images hit
+	 *                      memory cache. If <b>null</b> - max image size from configuration will be used.
+	 * @param prefetchCount Count of positions which are prefetched ahead of visible positions in scroll direction
+	 * @param maxVelocity   Scroll velocity (positions per second) above which nothing is prefetched
+	 * @throws IllegalArgumentException if <b>prefetchCount</b> or <b>maxVelocity</b> isn't positive
+	 */
+	public ScrollPrefetcher(ImageLoader imageLoader, UriProvider uriProvider, PrefetchTarget target,
+			ImageSize targetSize, int prefetchCount, int maxVelocity) {
+		if (prefetchCount <= 0) throw new IllegalArgumentException(ERROR_WRONG_PREFETCH_COUNT);
+		if (maxVelocity <= 0) throw new IllegalArgumentException(ERROR_WRONG_MAX_VELOCITY);
+		this.imageLoader = imageLoader;
+		this.uriProvider = uriProvider;
+		this.target = target;
+		this.targetSize = targetSize;
+		this.prefetchCount = prefetchCount;
+		this.maxVelocity = maxVelocity;
+	}
+
+	/**
+	 * Should be called when list is scrolled.
+	 *
+	 * @param firstVisiblePosition Adapter position of the first visible item
+	 * @param visibleCount         Count of visible items
+	 * @param itemCount            Count of items in adapter
+	 */
+	public void onScroll(int firstVisiblePosition, int visibleCount, int itemCount) {
+		long now = SystemClock.uptimeMillis();
+		lastVisibleCount = visibleCount;
+		lastItemCount = itemCount;
+		if (lastFirstPosition >= 0) {
+			if (firstVisiblePosition == lastFirstPosition) return; // predicted window isn't changed
+			int delta = firstVisiblePosition - lastFirstPosition;
+			direction = delta > 0 ? 1 : -1;
+			long elapsed = Math.max(1, now - lastPositionTime);
+			float instantVelocity = Math.abs(delta) * 1000f / elapsed;
+			velocity = velocity * VELOCITY_SMOOTHING + instantVelocity * (1 - VELOCITY_SMOOTHING);
+		}
+		lastFirstPosition = firstVisiblePosition;
+		lastPositionTime = now;
+		updateWindow();
+	}
+
+	/** Should be called when scroll is stopped. Images ahead of visible positions are prefetched then. */
+	public void onScrollIdle() {
+		velocity = 0;
+		if (lastFirstPosition >= 0) {
+			updateWindow();
+		}
+	}
+
+	/** Cancels all prefetches started by this prefetcher */
+	public void cancel() {
+		for (ImagePrefetch prefetch : prefetches.values()) {
+			prefetch.cancel();
+		}
+		prefetches.clear();
+	}
+
+	private void updateWindow() {
+		if (velocity > maxVelocity) {
+			//快速滑动的时候预测的位置很快就会过时，取消所有的预加载
+			cancel();
+			return;
+		}
+		int start = direction > 0 ? lastFirstPosition + lastVisibleCount : lastFirstPosition - prefetchCount;
+		int end = Math.min(start + prefetchCount, lastItemCount);
+		start = Math.max(start, 0);
+
+		Set<String> windowUris = new HashSet<String>();
+		for (int position = start; position < end; position++) {
+			String uri = uriProvider.getImageUri(position);
+			if (!TextUtils.isEmpty(uri)) {
+				windowUris.add(uri);
+			}
+		}
+		//离开预测窗口的预加载直接取消，已经开始展示的图片不会受影响
+		Iterator<Map.Entry<String, ImagePrefetch>> iterator = prefetches.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, ImagePrefetch> entry = iterator.next();
+			if (!windowUris.contains(entry.getKey())) {
+				entry.getValue().cancel();
+				iterator.remove();
+			}
+		}
+		for (String uri : windowUris) {
+			if (!prefetches.containsKey(uri)) {
+				prefetches.put(uri, imageLoader.prefetch(Collections.singleton(uri), target, targetSize));
+			}
+		}
+	}
+
+	/**
+	 * Provider of image URIs for adapter positions
+	 *
+	 * @since 1.9.5
+	 */
+	public interface UriProvider {
+		/**
+		 * Returns URI of image which is displayed at incoming adapter position or <b>null</b> if there is no image at
+		 * this position
+		 */
+		String getImageUri(int position);
+	}
+}
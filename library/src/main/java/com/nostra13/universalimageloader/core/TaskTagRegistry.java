@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of {@link LoadAndDisplayImageTask tasks} grouped by {@linkplain DisplayImageOptions.Builder#tag(Object)
+ * tag} of their requests. Keeps tasks which aren't completed yet for every tag, pause state of tag and tasks which are
+ * parked while tag is paused. So requests of a tag can be cancelled or resumed in O(number of tasks of the tag).<br />
+ * Group of a tag exists while it has tasks or while tag is paused. Tasks which are completed are removed by their
+ * owner, tasks which were dropped silently (e.g. view was reused) are pruned from time to time when new tasks are
+ * registered.
+ *
+ * @see ImageLoaderEngine
+ * @since 1.9.5
+ */
+final class TaskTagRegistry {
+
+	private static final int MIN_PRUNE_THRESHOLD = 16;
+
+	private final Map<Object, TagGroup> groups = new HashMap<Object, TagGroup>();
+
+	/** Registers task in group of its tag. Untagged tasks are ignored. */
+	void register(LoadAndDisplayImageTask task) {
+		Object tag = task.options.getTag();
+		if (tag == null) return;
+		synchronized (this) {
+			TagGroup group = groups.get(tag);
+			if (group == null) {
+				group = new TagGroup();
+				groups.put(tag, group);
+			}
+			group.add(task);
+		}
+	}
+
+	/** Removes completed or evicted task from group of its tag */
+	void unregister(LoadAndDisplayImageTask task) {
+		Object tag = task.options.getTag();
+		if (tag == null) return;
+		synchronized (this) {
+			TagGroup group = groups.get(tag);
+			if (group == null) return;
+			group.tasks.remove(task);
+			group.parkedTasks.remove(task);
+			removeIfUnused(tag, group);
+		}
+	}
+
+	/**
+	 * Parks incoming task if its tag is paused. Parked task doesn't occupy any thread, it's returned on
+	 * {@linkplain #resume(Object) resume} of the tag.
+	 *
+	 * @return <b>true</b> - if task was parked; <b>false</b> - if task isn't tagged or its tag isn't paused
+	 */
+	boolean parkIfPaused(LoadAndDisplayImageTask task) {
+		Object tag = task.options.getTag();
+		if (tag == null) return false;
+		synchronized (this) {
+			TagGroup group = groups.get(tag);
+			if (group == null || !group.paused) return false;
+			group.tasks.add(task);
+			group.parkedTasks.add(task);
+			return true;
+		}
+	}
+
+	/** Pauses tag. Tasks of the tag which aren't started yet will be parked. */
+	synchronized void pause(Object tag) {
+		TagGroup group = groups.get(tag);
+		if (group == null) {
+			group = new TagGroup();
+			groups.put(tag, group);
+		}
+		group.paused = true;
+	}
+
+	/**
+	 * Resumes tag
+	 *
+	 * @return Tasks which were parked while tag was paused, in order of parking
+	 */
+	synchronized List<LoadAndDisplayImageTask> resume(Object tag) {
+		TagGroup group = groups.get(tag);
+		if (group == null) return Collections.emptyList();
+		group.paused = false;
+		List<LoadAndDisplayImageTask> parkedTasks = new ArrayList<LoadAndDisplayImageTask>(group.parkedTasks);
+		group.parkedTasks.clear();
+		removeIfUnused(tag, group);
+		return parkedTasks;
+	}
+
+	/**
+	 * Removes all tasks of tag from registry. Pause state of tag is kept.
+	 *
+	 * @return Removed tasks (including parked ones)
+	 */
+	synchronized List<LoadAndDisplayImageTask> takeTasks(Object tag) {
+		TagGroup group = groups.get(tag);
+		if (group == null) return Collections.emptyList();
+		List<LoadAndDisplayImageTask> tasks = new ArrayList<LoadAndDisplayImageTask>(group.tasks);
+		group.tasks.clear();
+		group.parkedTasks.clear();
+		removeIfUnused(tag, group);
+		return tasks;
+	}
+
+	/** Returns count of registered tasks of incoming tag */
+	synchronized int getTaskCount(Object tag) {
+		TagGroup group = groups.get(tag);
+		return group == null ? 0 : group.tasks.size();
+	}
+
+	synchronized void clear() {
+		groups.clear();
+	}
+
+	private void removeIfUnused(Object tag, TagGroup group) {
+		if (!group.paused && group.tasks.isEmpty()) {
+			groups.remove(tag);
+		}
+	}
+
+	/** Tasks and pause state of one tag. Parked tasks are registered in {@link #tasks} too. */
+	private static class TagGroup {
+
+		final Set<LoadAndDisplayImageTask> tasks = new LinkedHashSet<LoadAndDisplayImageTask>();
+		final Set<LoadAndDisplayImageTask> parkedTasks = new LinkedHashSet<LoadAndDisplayImageTask>();
+		boolean paused;
+		int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+		void add(LoadAndDisplayImageTask task) {
+			tasks.add(task);
+			//被静默丢弃的任务（比如载体已经被复用）不会主动移除，分组变大的时候清理一次，均摊下来是O(1)
+			if (tasks.size() >= pruneThreshold) {
+				for (Iterator<LoadAndDisplayImageTask> it = tasks.iterator(); it.hasNext(); ) {
+					LoadAndDisplayImageTask t = it.next();
+					if (t.isObsolete() && !parkedTasks.contains(t)) {
+						it.remove();
+					}
+				}
+				pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, tasks.size() * 2);
+			}
+		}
+	}
+}
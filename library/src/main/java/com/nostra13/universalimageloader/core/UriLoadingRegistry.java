@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of in-flight image loadings keyed by image URI. Only one {@link LoadAndDisplayImageTask task} (leader)
+ * loads image for an URI at a moment. Other tasks for the same URI are attached to the leader and don't occupy any
+ * thread until the leader completes and hands its result over to them.<br />
+ * Entry for an URI exists exactly while its loading is in progress. Registry is split into lock stripes by URI hash so
+ * loadings of different URIs rarely contend for the same lock.
+ *
+ * @see LoadAndDisplayImageTask
+ * @since 1.9.5
+ */
+final class UriLoadingRegistry {
+
+	private static final int STRIPE_COUNT = 16; // must be power of 2
+
+	private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+	//当前正在加载的链接数目
+	private final AtomicInteger inFlightCount = new AtomicInteger();
+
+	UriLoadingRegistry() {
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Registers incoming task as a leader of loading for its URI if there is no loading in progress for this URI.
+	 * Otherwise attaches the task to loading in progress. Tasks with {@linkplain DisplayImageOptions#isSyncLoading()
+	 * sync loading} are never attached, they should {@linkplain #awaitCompletion(String) wait} for the leader instead.
+	 *
+	 * @return <b>true</b> - if task became a leader and should load image itself; <b>false</b> - otherwise
+	 */
+	boolean attach(LoadAndDisplayImageTask task) {
+		Stripe stripe = stripeFor(task.uri);
+		synchronized (stripe) {
+			UriLoading loading = stripe.loadings.get(task.uri);
+			if (loading == null) {
+				stripe.loadings.put(task.uri, new UriLoading(task));
+				inFlightCount.incrementAndGet();
+				return true;
+			}
+			if (!task.options.isSyncLoading()) {
+				loading.attachedTasks.add(task);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Blocks current thread until loading in progress for incoming URI (if it exists) is completed or timeout (in
+	 * milliseconds) is expired. {@link Long#MAX_VALUE} means no timeout.
+	 */
+	void awaitCompletion(String uri, long timeoutMillis) throws InterruptedException {
+		Stripe stripe = stripeFor(uri);
+		UriLoading loading;
+		synchronized (stripe) {
+			loading = stripe.loadings.get(uri);
+		}
+		if (loading != null) {
+			if (timeoutMillis == Long.MAX_VALUE) {
+				loading.completion.await();
+			} else if (timeoutMillis > 0) {
+				loading.completion.await(timeoutMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Unregisters loading led by incoming task.
+	 *
+	 * @return Tasks which were attached to the loading. They should be completed by the leader.
+	 */
+	List<LoadAndDisplayImageTask> detach(LoadAndDisplayImageTask leader) {
+		Stripe stripe = stripeFor(leader.uri);
+		UriLoading loading;
+		synchronized (stripe) {
+			loading = stripe.loadings.get(leader.uri);
+			if (loading == null || loading.leader != leader) {
+				return Collections.emptyList();
+			}
+			stripe.loadings.remove(leader.uri);
+			inFlightCount.decrementAndGet();
+		}
+		loading.completion.countDown();
+		return loading.attachedTasks;
+	}
+
+	/**
+	 * Detaches incoming task from loading in progress so the leader won't complete it.
+	 *
+	 * @return <b>true</b> - if task was attached to loading; <b>false</b> - otherwise
+	 */
+	boolean detachAttached(LoadAndDisplayImageTask task) {
+		Stripe stripe = stripeFor(task.uri);
+		synchronized (stripe) {
+			UriLoading loading = stripe.loadings.get(task.uri);
+			return loading != null && loading.attachedTasks.remove(task);
+		}
+	}
+
+	/**
+	 * @return <b>true</b> - if incoming task leads loading for its URI and other tasks are attached to this loading and
+	 * wait for its result; <b>false</b> - otherwise
+	 */
+	boolean hasAttached(LoadAndDisplayImageTask leader) {
+		Stripe stripe = stripeFor(leader.uri);
+		synchronized (stripe) {
+			UriLoading loading = stripe.loadings.get(leader.uri);
+			return loading != null && loading.leader == leader && !loading.attachedTasks.isEmpty();
+		}
+	}
+
+	/** Returns count of URIs which are loading at this moment */
+	int getInFlightCount() {
+		return inFlightCount.get();
+	}
+
+	/** Forgets all loadings in progress. Attached tasks won't be completed. */
+	void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				for (UriLoading loading : stripe.loadings.values()) {
+					loading.completion.countDown();
+				}
+				inFlightCount.addAndGet(-stripe.loadings.size());
+				stripe.loadings.clear();
+			}
+		}
+	}
+
+	private Stripe stripeFor(String uri) {
+		int hash = uri.hashCode();
+		hash ^= hash >>> 16; // spread higher bits, URIs often differ only in the tail
+		return stripes[hash & (STRIPE_COUNT - 1)];
+	}
+
+	private static class Stripe {
+		final Map<String, UriLoading> loadings = new HashMap<String, UriLoading>();
+	}
+
+	private static class UriLoading {
+
+		final LoadAndDisplayImageTask leader;
+		final List<LoadAndDisplayImageTask> attachedTasks = new ArrayList<LoadAndDisplayImageTask>();
+		final CountDownLatch completion = new CountDownLatch(1);
+
+		UriLoading(LoadAndDisplayImageTask leader) {
+			this.leader = leader;
+		}
+	}
+}
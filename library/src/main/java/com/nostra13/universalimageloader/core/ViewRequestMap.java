@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+/**
+ * Concurrent map of display requests keyed by {@linkplain com.nostra13.universalimageloader.core.imageaware.ImageAware#getId()
+ * view ID}. Keeps memory cache key, generation and the latest submitted task of the request which is actual for a view.
+ * <br />
+ * Generation of view's request is changed every time when view is prepared for another memory cache key. So a task can
+ * check whether its view was reused by comparison of two ints.<br />
+ * Map is split into lock stripes by view ID, every stripe is open-addressing hash table of primitive IDs, so
+ * operations don't allocate objects and don't contend for one global lock.
+ *
+ * @see ImageLoaderEngine
+ * @since 1.9.5
+ */
+final class ViewRequestMap {
+
+	/** Generation which is never assigned to a request */
+	static final int NO_GENERATION = 0;
+
+	private static final int STRIPE_COUNT = 16; // must be power of 2
+	private static final int INITIAL_STRIPE_CAPACITY = 16; // must be power of 2
+
+	private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+	ViewRequestMap() {
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Associates memory cache key with view. New generation is assigned if view isn't associated with the same key
+	 * already.
+	 *
+	 * @return Generation of view's request
+	 */
+	int prepare(int viewId, String memoryCacheKey) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			return stripe.prepare(viewId, memoryCacheKey);
+		}
+	}
+
+	/** Returns generation of view's request or {@link #NO_GENERATION} if view isn't associated with any request */
+	int getGeneration(int viewId) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			int index = stripe.indexOf(viewId);
+			return stripe.keys[index] == null ? NO_GENERATION : stripe.generations[index];
+		}
+	}
+
+	/** Returns memory cache key of view's request or <b>null</b> if view isn't associated with any request */
+	String getCacheKey(int viewId) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			return stripe.keys[stripe.indexOf(viewId)];
+		}
+	}
+
+	/** Remembers task of view's request. Task isn't remembered if view isn't associated with its generation. */
+	void setTask(int viewId, LoadAndDisplayImageTask task) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			int index = stripe.indexOf(viewId);
+			if (stripe.keys[index] != null && stripe.generations[index] == task.generation) {
+				stripe.tasks[index] = task;
+			}
+		}
+	}
+
+	/** Returns task of view's request or <b>null</b> if task wasn't submitted */
+	LoadAndDisplayImageTask getTask(int viewId) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			return stripe.tasks[stripe.indexOf(viewId)];
+		}
+	}
+
+	/**
+	 * Forgets task of view which isn't of incoming generation.
+	 *
+	 * @return Forgotten task or <b>null</b> if view has no task of other generation
+	 */
+	LoadAndDisplayImageTask takeStaleTask(int viewId, int generation) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			int index = stripe.indexOf(viewId);
+			LoadAndDisplayImageTask task = stripe.tasks[index];
+			if (task == null || task.generation == generation) return null;
+			stripe.tasks[index] = null;
+			return task;
+		}
+	}
+
+	/**
+	 * Removes view's request.
+	 *
+	 * @return Task of removed request or <b>null</b> if there was no task
+	 */
+	LoadAndDisplayImageTask remove(int viewId) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			return stripe.remove(viewId);
+		}
+	}
+
+	/**
+	 * Removes view's request if it's of incoming generation.
+	 *
+	 * @return <b>true</b> - if request was removed; <b>false</b> - if view is associated with request of other
+	 * generation or isn't associated with any request
+	 */
+	boolean remove(int viewId, int generation) {
+		Stripe stripe = stripeFor(viewId);
+		synchronized (stripe) {
+			int index = stripe.indexOf(viewId);
+			if (stripe.keys[index] == null || stripe.generations[index] != generation) return false;
+			stripe.remove(viewId);
+			return true;
+		}
+	}
+
+	void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	private Stripe stripeFor(int viewId) {
+		return stripes[mix(viewId) & (STRIPE_COUNT - 1)];
+	}
+
+	/** Spreads bits of hash code. IDs of views are hash codes, so low bits may be poorly distributed. */
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/** Open-addressing hash table with linear probing. Slot is empty when its key is <b>null</b>. */
+	private static class Stripe {
+
+		int[] viewIds = new int[INITIAL_STRIPE_CAPACITY];
+		String[] keys = new String[INITIAL_STRIPE_CAPACITY];
+		int[] generations = new int[INITIAL_STRIPE_CAPACITY];
+		LoadAndDisplayImageTask[] tasks = new LoadAndDisplayImageTask[INITIAL_STRIPE_CAPACITY];
+		int size;
+		int lastGeneration = NO_GENERATION;
+
+		int prepare(int viewId, String memoryCacheKey) {
+			int index = indexOf(viewId);
+			if (keys[index] == null) {
+				viewIds[index] = viewId;
+				keys[index] = memoryCacheKey;
+				int generation = nextGeneration();
+				generations[index] = generation;
+				if (++size * 2 > keys.length) {
+					resize(keys.length * 2);
+				}
+				return generation;
+			}
+			if (!keys[index].equals(memoryCacheKey)) {
+				keys[index] = memoryCacheKey;
+				generations[index] = nextGeneration();
+			}
+			return generations[index];
+		}
+
+		LoadAndDisplayImageTask remove(int viewId) {
+			int index = indexOf(viewId);
+			if (keys[index] == null) return null;
+			LoadAndDisplayImageTask task = tasks[index];
+
+			// Backward shift deletion keeps probe sequences unbroken without tombstones
+			int mask = keys.length - 1;
+			int hole = index;
+			int next = (hole + 1) & mask;
+			while (keys[next] != null) {
+				int home = mix(viewIds[next]) >>> 4 & mask;
+				if (((next - home) & mask) >= ((next - hole) & mask)) {
+					move(next, hole);
+					hole = next;
+				}
+				next = (next + 1) & mask;
+			}
+			keys[hole] = null;
+			tasks[hole] = null;
+			size--;
+			return task;
+		}
+
+		void clear() {
+			viewIds = new int[INITIAL_STRIPE_CAPACITY];
+			keys = new String[INITIAL_STRIPE_CAPACITY];
+			generations = new int[INITIAL_STRIPE_CAPACITY];
+			tasks = new LoadAndDisplayImageTask[INITIAL_STRIPE_CAPACITY];
+			size = 0;
+		}
+
+		/** Returns index of slot which contains incoming view ID or index of empty slot where it should be placed */
+		int indexOf(int viewId) {
+			int mask = keys.length - 1;
+			// low bits of mixed hash select stripe, so next bits are used inside of stripe
+			int index = mix(viewId) >>> 4 & mask;
+			while (keys[index] != null && viewIds[index] != viewId) {
+				index = (index + 1) & mask;
+			}
+			return index;
+		}
+
+		private int nextGeneration() {
+			if (++lastGeneration == NO_GENERATION) {
+				++lastGeneration;
+			}
+			return lastGeneration;
+		}
+
+		private void move(int from, int to) {
+			viewIds[to] = viewIds[from];
+			keys[to] = keys[from];
+			generations[to] = generations[from];
+			tasks[to] = tasks[from];
+		}
+
+		private void resize(int capacity) {
+			int[] oldViewIds = viewIds;
+			String[] oldKeys = keys;
+			int[] oldGenerations = generations;
+			LoadAndDisplayImageTask[] oldTasks = tasks;
+			viewIds = new int[capacity];
+			keys = new String[capacity];
+			generations = new int[capacity];
+			tasks = new LoadAndDisplayImageTask[capacity];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					int index = indexOf(oldViewIds[i]);
+					viewIds[index] = oldViewIds[i];
+					keys[index] = oldKeys[i];
+					generations[index] = oldGenerations[i];
+					tasks[index] = oldTasks[i];
+				}
+			}
+		}
+	}
+}
@@ -59,6 +59,11 @@ public class FailReason {
 		NETWORK_DENIED,
 		/** Not enough memory to create needed Bitmap for image */
 		OUT_OF_MEMORY,
+		/**
+		 * Request wasn't completed before its
+		 * {@linkplain com.nostra13.universalimageloader.core.DisplayImageOptions.Builder#deadline(int) deadline}
+		 */
+		DEADLINE_EXCEEDED,
 		/** Unknown error was occurred while loading image */
 		UNKNOWN
 	}
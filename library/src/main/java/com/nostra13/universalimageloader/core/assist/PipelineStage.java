@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.assist;
+
+/**
+ * Stage of image loading in {@linkplain com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#stagedPipeline()
+ * staged pipeline} mode. Every stage has its own thread pool and queue.
+ *
+ * @since 1.9.5
+ */
+public enum PipelineStage {
+	/** Loading of image stream (from network, file, content provider, etc.) and saving it in disk cache */
+	NETWORK,
+	/** Lookup of image in disk cache */
+	DISK,
+	/** Decoding of image file, pre-processing and post-processing of bitmap */
+	DECODE
+}
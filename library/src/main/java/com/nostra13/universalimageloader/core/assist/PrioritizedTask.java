@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.assist;
+
+/**
+ * Task which has priority of execution. Tasks with greater priority are taken from {@link PriorityTaskQueue} first.
+ *
+ * @see PriorityTaskQueue
+ * @since 1.9.5
+ */
+public interface PrioritizedTask extends Runnable {
+
+	/** Returns current priority of task. Greater value means more important task. */
+	int getPriority();
+}
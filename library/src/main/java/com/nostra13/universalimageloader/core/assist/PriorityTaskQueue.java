@@ -0,0 +1,508 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.assist;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optionally bounded blocking queue of tasks ordered by {@linkplain PrioritizedTask#getPriority() priority}. Tasks which don't
+ * implement {@link PrioritizedTask} have {@linkplain #DEFAULT_PRIORITY default priority}. Tasks of equal priority are
+ * taken in {@linkplain QueueProcessingType FIFO or LIFO} order.<br />
+ * <br />
+ * Queue is starvation-safe: if the oldest task in queue waits longer than <b>maxWaitMillis</b> then it's taken before
+ * any task of greater priority. Order of tasks of equal priority isn't changed by waiting time, so LIFO queue stays
+ * LIFO under sustained load.<br />
+ * <br />
+ * Priority of queued task can be changed by {@link #updatePriority(Runnable)}. Removal of arbitrary task (e.g. by
+ * {@link java.util.concurrent.ThreadPoolExecutor#remove(Runnable)}) takes O(1) time: removed task is only marked in
+ * heap and is dropped when it reaches the top of heap or when heap is compacted.
+ *
+ * @see PrioritizedTask
+ * @since 1.9.5
+ */
+public class PriorityTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	/** {@value} */
+	public static final int DEFAULT_PRIORITY = 0;
+	/** {@value} */
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 3000;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final boolean lifo;
+	private final long maxWaitNanos;
+	private final int capacity;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	//用于O(1)时间内根据任务找到对应的节点，调整优先级和移除任务都需要
+	private final Map<Runnable, Node> nodes = new IdentityHashMap<Runnable, Node>();
+	//按照优先级排列的二叉堆，被移除的任务只做标记，等到了堆顶或者压缩堆的时候再真正移除
+	private Node[] heap = new Node[INITIAL_CAPACITY];
+	private int heapSize;
+	//队列中有效任务的数量
+	private int size;
+	//按照入队顺序排列的链表，用于找到等待最久的任务，避免低优先级的任务被饿死
+	private Node oldest;
+	private Node newest;
+	private long sequence;
+
+	/** Creates FIFO queue with {@linkplain #DEFAULT_MAX_WAIT_MILLIS default} max wait time */
+	public PriorityTaskQueue() {
+		this(QueueProcessingType.FIFO, DEFAULT_MAX_WAIT_MILLIS);
+	}
+
+	/**
+	 * Creates unbounded queue
+	 *
+	 * @param processingType Order of taking tasks of equal priority
+	 * @param maxWaitMillis  Max time (in milliseconds) which the oldest task can wait before it will be taken before
+	 *                       tasks of greater priority
+	 */
+	public PriorityTaskQueue(QueueProcessingType processingType, long maxWaitMillis) {
+		this(processingType, maxWaitMillis, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param processingType Order of taking tasks of equal priority
+	 * @param maxWaitMillis  Max time (in milliseconds) which the oldest task can wait before it will be taken before
+	 *                       tasks of greater priority
+	 * @param capacity       Max count of tasks in queue
+	 */
+	public PriorityTaskQueue(QueueProcessingType processingType, long maxWaitMillis, int capacity) {
+		if (maxWaitMillis <= 0) throw new IllegalArgumentException("maxWaitMillis must be a positive number");
+		if (capacity <= 0) throw new IllegalArgumentException("capacity must be a positive number");
+		this.lifo = processingType == QueueProcessingType.LIFO;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Inserts task into queue if queue isn't full. If the same task instance is queued already then its position is
+	 * updated according to its current priority instead.
+	 *
+	 * @return <b>true</b> - if task is in queue; <b>false</b> - if queue is full
+	 */
+	@Override
+	public boolean offer(Runnable task) {
+		if (task == null) throw new NullPointerException();
+		lock.lock();
+		try {
+			return tryEnqueue(task);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+		if (task == null) throw new NullPointerException();
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (!tryEnqueue(task)) {
+				if (nanos <= 0) return false;
+				nanos = notFull.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(Runnable task) throws InterruptedException {
+		if (task == null) throw new NullPointerException();
+		lock.lockInterruptibly();
+		try {
+			while (!tryEnqueue(task)) {
+				notFull.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll() {
+		lock.lock();
+		try {
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (nanos <= 0) return null;
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable peek() {
+		lock.lock();
+		try {
+			Node node = nextNode();
+			return node == null ? null : node.task;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves queued task according to its current {@linkplain PrioritizedTask#getPriority() priority}. Should be
+	 * called after priority of queued task was changed.
+	 *
+	 * @return <b>true</b> - if task is in queue; <b>false</b> - otherwise
+	 */
+	public boolean updatePriority(Runnable task) {
+		lock.lock();
+		try {
+			Node node = nodes.get(task);
+			if (node == null) return false;
+			reorder(node);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object task) {
+		lock.lock();
+		try {
+			Node node = nodes.get(task);
+			if (node == null) return false;
+			unlink(node);
+			notFull.signal();
+			if (heapSize > INITIAL_CAPACITY && size < heapSize >>> 1) {
+				compact();
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(Object task) {
+		lock.lock();
+		try {
+			return nodes.containsKey(task);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return capacity - size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		if (c == null) throw new NullPointerException();
+		if (c == this) throw new IllegalArgumentException();
+		lock.lock();
+		try {
+			int n = 0;
+			while (n < maxElements && size > 0) {
+				c.add(dequeue());
+				n++;
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns iterator over snapshot of queued tasks. Tasks are iterated in order of insertion. */
+	@Override
+	public Iterator<Runnable> iterator() {
+		final Runnable[] snapshot;
+		lock.lock();
+		try {
+			snapshot = new Runnable[size];
+			int i = 0;
+			for (Node node = oldest; node != null; node = node.newer) {
+				snapshot[i++] = node.task;
+			}
+		} finally {
+			lock.unlock();
+		}
+		return new Iterator<Runnable>() {
+			private int cursor;
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < snapshot.length;
+			}
+
+			@Override
+			public Runnable next() {
+				if (cursor >= snapshot.length) throw new NoSuchElementException();
+				last = cursor++;
+				return snapshot[last];
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) throw new IllegalStateException();
+				PriorityTaskQueue.this.remove(snapshot[last]);
+				last = -1;
+			}
+		};
+	}
+
+	private boolean tryEnqueue(Runnable task) {
+		Node node = nodes.get(task);
+		if (node != null) {
+			reorder(node);
+			return true;
+		}
+		if (size >= capacity) return false;
+		enqueue(task);
+		notEmpty.signal();
+		return true;
+	}
+
+	private void enqueue(Runnable task) {
+		Node node = new Node(task, priorityOf(task), sequence++, System.nanoTime());
+		nodes.put(task, node);
+		if (newest == null) {
+			oldest = node;
+		} else {
+			newest.newer = node;
+			node.older = newest;
+		}
+		newest = node;
+
+		if (heapSize == heap.length) {
+			Node[] newHeap = new Node[heapSize * 2];
+			System.arraycopy(heap, 0, newHeap, 0, heapSize);
+			heap = newHeap;
+		}
+		node.index = heapSize;
+		heap[heapSize++] = node;
+		siftUp(node);
+		size++;
+	}
+
+	private Runnable dequeue() {
+		Node node = nextNode();
+		if (node == null) return null;
+		unlink(node);
+		removeFromHeap(node);
+		notFull.signal();
+		return node.task;
+	}
+
+	/**
+	 * Returns node which should be taken next: the oldest one if it waits too long behind tasks of greater priority, the
+	 * most prior one otherwise
+	 */
+	private Node nextNode() {
+		if (size == 0) return null;
+		while (heap[0].removed) {
+			removeFromHeap(heap[0]);
+		}
+		Node node = heap[0];
+		//只在不同优先级之间防止饿死，相同优先级的任务保持FIFO/LIFO顺序，否则LIFO在持续负载下会变成最旧的先执行
+		if (oldest.priority < node.priority && System.nanoTime() - oldest.enqueueTime >= maxWaitNanos) {
+			node = oldest;
+		}
+		return node;
+	}
+
+	/** Removes node from index and from list of insertion order. Node stays in heap marked as removed. */
+	private void unlink(Node node) {
+		nodes.remove(node.task);
+		node.removed = true;
+		size--;
+
+		if (node.older == null) {
+			oldest = node.newer;
+		} else {
+			node.older.newer = node.newer;
+		}
+		if (node.newer == null) {
+			newest = node.older;
+		} else {
+			node.newer.older = node.older;
+		}
+		node.older = null;
+		node.newer = null;
+	}
+
+	private void removeFromHeap(Node node) {
+		int index = node.index;
+		Node last = heap[--heapSize];
+		heap[heapSize] = null;
+		if (last != node) {
+			last.index = index;
+			heap[index] = last;
+			siftDown(last);
+			siftUp(last);
+		}
+	}
+
+	/** Drops all removed nodes from heap and restores heap order */
+	private void compact() {
+		int n = 0;
+		for (int i = 0; i < heapSize; i++) {
+			Node node = heap[i];
+			if (!node.removed) {
+				node.index = n;
+				heap[n++] = node;
+			}
+		}
+		for (int i = n; i < heapSize; i++) {
+			heap[i] = null;
+		}
+		heapSize = n;
+		for (int i = (n >>> 1) - 1; i >= 0; i--) {
+			siftDown(heap[i]);
+		}
+	}
+
+	private void reorder(Node node) {
+		int priority = priorityOf(node.task);
+		if (priority != node.priority) {
+			node.priority = priority;
+			siftUp(node);
+			siftDown(node);
+		}
+	}
+
+	private void siftUp(Node node) {
+		int index = node.index;
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			Node parent = heap[parentIndex];
+			if (!takenBefore(node, parent)) break;
+			parent.index = index;
+			heap[index] = parent;
+			index = parentIndex;
+		}
+		node.index = index;
+		heap[index] = node;
+	}
+
+	private void siftDown(Node node) {
+		int index = node.index;
+		int half = heapSize >>> 1;
+		while (index < half) {
+			int childIndex = (index << 1) + 1;
+			Node child = heap[childIndex];
+			int rightIndex = childIndex + 1;
+			if (rightIndex < heapSize && takenBefore(heap[rightIndex], child)) {
+				childIndex = rightIndex;
+				child = heap[childIndex];
+			}
+			if (!takenBefore(child, node)) break;
+			child.index = index;
+			heap[index] = child;
+			index = childIndex;
+		}
+		node.index = index;
+		heap[index] = node;
+	}
+
+	private boolean takenBefore(Node a, Node b) {
+		if (a.priority != b.priority) {
+			return a.priority > b.priority;
+		}
+		return lifo ? a.sequence > b.sequence : a.sequence < b.sequence;
+	}
+
+	private static int priorityOf(Runnable task) {
+		return task instanceof PrioritizedTask ? ((PrioritizedTask) task).getPriority() : DEFAULT_PRIORITY;
+	}
+
+	private static final class Node {
+
+		final Runnable task;
+		final long sequence;
+		final long enqueueTime;
+		int priority;
+		int index;
+		boolean removed;
+		Node older;
+		Node newer;
+
+		Node(Runnable task, int priority, long sequence, long enqueueTime) {
+			this.task = task;
+			this.priority = priority;
+			this.sequence = sequence;
+			this.enqueueTime = enqueueTime;
+		}
+	}
+}
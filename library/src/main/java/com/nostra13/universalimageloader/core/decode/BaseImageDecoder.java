@@ -15,12 +15,18 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core.decode;
 
+import android.annotation.TargetApi;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapFactory.Options;
+import android.graphics.Canvas;
 import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
 import android.media.ExifInterface;
+import android.os.Build;
 
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
@@ -47,8 +53,11 @@ public class BaseImageDecoder implements ImageDecoder {
 	protected static final String LOG_FLIP_IMAGE = "Flip image horizontally [%s]";
 	protected static final String ERROR_NO_IMAGE_STREAM = "No stream for image [%s]";
 	protected static final String ERROR_CANT_DECODE_IMAGE = "Image can't be decoded [%s]";
+	protected static final String LOG_CANT_REUSE_BITMAP = "Pooled bitmap can't be reused for decoding [%s]";
 
 	protected final boolean loggingEnabled;
+	//用于复用Bitmap的池，可能为null
+	protected final BitmapPool bitmapPool;
 
 	/**
 	 * @param loggingEnabled Whether debug logs will be written to LogCat. Usually should match {@link
@@ -56,7 +65,20 @@ public class BaseImageDecoder implements ImageDecoder {
 	 *                       ImageLoaderConfiguration.writeDebugLogs()}
 	 */
 	public BaseImageDecoder(boolean loggingEnabled) {
+		this(loggingEnabled, null);
+	}
+
+	/**
+	 * @param loggingEnabled Whether debug logs will be written to LogCat. Usually should match {@link
+	 *                       com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#writeDebugLogs()
+	 *                       ImageLoaderConfiguration.writeDebugLogs()}
+	 * @param bitmapPool     Pool of bitmaps which can be reused for decoding and transformation of images (on API 11+).
+	 *                       Can be <b>null</b> - then bitmaps aren't reused.
+	 * @since 1.9.5
+	 */
+	public BaseImageDecoder(boolean loggingEnabled, BitmapPool bitmapPool) {
 		this.loggingEnabled = loggingEnabled;
+		this.bitmapPool = bitmapPool;
 	}
 
 	/**
@@ -86,8 +108,19 @@ public class BaseImageDecoder implements ImageDecoder {
 			imageStream = resetStream(imageStream, decodingInfo);
 			//根据当前获得的bitmap的宽高和载体的宽高，计算并设置Options的压缩比例，主要是inSampleSize
 			Options decodingOptions = prepareDecodingOptions(imageInfo.imageSize, decodingInfo);
-			//解析流获得bitmap
-			decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			//尝试从池中取出可以复用的Bitmap
+			Bitmap reusable = prepareBitmapForReuse(imageInfo, decodingOptions);
+			try {
+				//解析流获得bitmap
+				decodedBitmap = decodeStream(imageStream, decodingOptions);
+			} catch (IllegalArgumentException e) {
+				if (reusable == null) throw e;
+				//复用的Bitmap不符合解码的要求，放回池中并且不复用Bitmap重新解码
+				if (loggingEnabled) L.d(LOG_CANT_REUSE_BITMAP, decodingInfo.getImageKey());
+				clearBitmapForReuse(decodingOptions, reusable);
+				imageStream = resetStream(imageStream, decodingInfo);
+				decodedBitmap = decodeStream(imageStream, decodingOptions);
+			}
 		} finally {//关闭流
 			IoUtils.closeSilently(imageStream);
 		}
@@ -101,6 +134,15 @@ public class BaseImageDecoder implements ImageDecoder {
 		return decodedBitmap;
 	}
 
+	/**
+	 * Decodes bitmap from stream using prepared options
+	 *
+	 * @throws IllegalArgumentException if {@link Options#inBitmap} can't be reused for decoding
+	 */
+	protected Bitmap decodeStream(InputStream imageStream, Options decodingOptions) {
+		return BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+	}
+
 	protected ImageFileInfo defineImageSizeAndRotation(InputStream imageStream, ImageDecodingInfo decodingInfo)
 			throws IOException {
 		Options options = new Options();
@@ -204,6 +246,54 @@ public class BaseImageDecoder implements ImageDecoder {
 		return decodingOptions;
 	}
 
+	/**
+	 * Sets bitmap from {@linkplain #bitmapPool pool} as {@link Options#inBitmap} if it can be reused for decoding.
+	 *
+	 * @return Bitmap taken from pool or <b>null</b> if there is no appropriate bitmap
+	 */
+	protected Bitmap prepareBitmapForReuse(ImageFileInfo imageInfo, Options decodingOptions) {
+		if (bitmapPool == null || Build.VERSION.SDK_INT < 11) return null;
+		return prepareBitmapForReuse11(imageInfo, decodingOptions);
+	}
+
+	@TargetApi(11)
+	private Bitmap prepareBitmapForReuse11(ImageFileInfo imageInfo, Options decodingOptions) {
+		//用户自己指定了inBitmap，或者解码时会按照密度缩放，这时候无法预知解码后的大小
+		if (decodingOptions.inBitmap != null) return null;
+		if (decodingOptions.inScaled && decodingOptions.inDensity != 0 && decodingOptions.inTargetDensity != 0) return null;
+
+		//imageSize是考虑了旋转之后的大小，这里需要的是原图解码的大小
+		ImageSize imageSize = imageInfo.imageSize;
+		boolean rotated = imageInfo.exif.rotation % 180 != 0;
+		int width = rotated ? imageSize.getHeight() : imageSize.getWidth();
+		int height = rotated ? imageSize.getWidth() : imageSize.getHeight();
+		int scale = Math.max(decodingOptions.inSampleSize, 1);
+		if (Build.VERSION.SDK_INT < 19) {
+			//4.4之前只能复用相同大小的Bitmap，而且不能有压缩
+			if (scale != 1) return null;
+		} else {
+			width = (width + scale - 1) / scale;
+			height = (height + scale - 1) / scale;
+		}
+		if (width <= 0 || height <= 0) return null;
+
+		Bitmap.Config config = decodingOptions.inPreferredConfig;
+		if (config == null) config = Bitmap.Config.ARGB_8888;
+		Bitmap reusable = bitmapPool.get(width, height, config);
+		//复用Bitmap的时候解码的结果必须是可变的
+		decodingOptions.inMutable = true;
+		decodingOptions.inBitmap = reusable;
+		return reusable;
+	}
+
+	@TargetApi(11)
+	private void clearBitmapForReuse(Options decodingOptions, Bitmap reusable) {
+		decodingOptions.inBitmap = null;
+		if (!bitmapPool.put(reusable)) {
+			reusable.recycle();
+		}
+	}
+
 	/**
 	 * 重置输入流，用于再次获取Bitmap
 	 * 一般来说流用过之后要再次使用必须重置或者重新获取
@@ -252,6 +342,11 @@ public class BaseImageDecoder implements ImageDecoder {
 
 			if (loggingEnabled) L.d(LOG_ROTATE_IMAGE, rotation, decodingInfo.getImageKey());
 		}
+		if (bitmapPool != null && Build.VERSION.SDK_INT >= 11) {
+			//不需要任何变换的话直接使用解码的结果
+			if (m.isIdentity()) return subsampledBitmap;
+			return transformWithPool(subsampledBitmap, m);
+		}
 		//处理拉伸/压缩，旋转和颠倒，这个过程相对会耗费一些内存
 		Bitmap finalBitmap = Bitmap.createBitmap(subsampledBitmap, 0, 0, subsampledBitmap.getWidth(), subsampledBitmap
 				.getHeight(), m, true);
@@ -261,6 +356,45 @@ public class BaseImageDecoder implements ImageDecoder {
 		return finalBitmap;
 	}
 
+	/**
+	 * Draws transformed bitmap into bitmap taken from {@linkplain #bitmapPool pool} (or into new one). Source bitmap is
+	 * put into pool after that.
+	 */
+	@TargetApi(12)
+	private Bitmap transformWithPool(Bitmap source, Matrix m) {
+		//和Bitmap.createBitmap(source, 0, 0, w, h, m, true)的计算方式一致
+		RectF bounds = new RectF(0, 0, source.getWidth(), source.getHeight());
+		m.mapRect(bounds);
+		int width = Math.round(bounds.width());
+		int height = Math.round(bounds.height());
+		if (width <= 0 || height <= 0) return source;
+
+		Bitmap.Config config = source.getConfig();
+		if (config == null) config = Bitmap.Config.ARGB_8888;
+		Bitmap target = bitmapPool.get(width, height, config);
+		if (target == null) {
+			target = Bitmap.createBitmap(width, height, config);
+		} else {
+			target.eraseColor(0);
+		}
+		if (Build.VERSION.SDK_INT >= 12) {
+			target.setHasAlpha(source.hasAlpha());
+		}
+		target.setDensity(source.getDensity());
+
+		Canvas canvas = new Canvas(target);
+		canvas.translate(-bounds.left, -bounds.top);
+		canvas.concat(m);
+		canvas.drawBitmap(source, 0, 0, new Paint(Paint.FILTER_BITMAP_FLAG));
+		canvas.setBitmap(null);
+
+		//原来的Bitmap已经没用了，优先放入池中
+		if (!bitmapPool.put(source)) {
+			source.recycle();
+		}
+		return target;
+	}
+
 	protected static class ExifInfo {
 
 		public final int rotation;
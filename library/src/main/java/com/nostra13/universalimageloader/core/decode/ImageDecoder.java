@@ -29,7 +29,11 @@ import java.io.IOException;
 public interface ImageDecoder {
 
 	/**
-	 * 根据指定的目标大小和参数处理图片
+	 * 根据指定的目标大小和参数处理图片<br />
+	 * <b>NOTE:</b> Since 1.9.5 ImageLoader passes {@linkplain ImageDecodingInfo#obtain pooled} decoding info which is
+	 * recycled right after this method returns. Decoder mustn't keep the info (or its decoding options) and mustn't
+	 * use it from other threads after returning.
+	 *
 	 * @param imageDecodingInfo 处理的时候可能需要使用的参数
 	 * @return 处理后的bitmap
 	 */
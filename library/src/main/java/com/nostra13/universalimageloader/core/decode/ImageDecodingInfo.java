@@ -24,31 +24,85 @@ import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.ViewScaleType;
 import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.utils.ObjectPool;
 
 /**
- * Contains needed information for decoding image to Bitmap
+ * Contains needed information for decoding image to Bitmap.<br />
+ * <b>NOTE:</b> Since 1.9.5 info which ImageLoader passes to {@link ImageDecoder#decode(ImageDecodingInfo)} is taken
+ * from pool and is {@linkplain #recycle() recycled} after decoding, so it (and its {@linkplain #getDecodingOptions()
+ * decoding options}) must not be kept by decoder after <b>decode()</b> returns.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.8.3
  */
 public class ImageDecodingInfo {
 
-	private final String imageKey;
-	private final String imageUri;
-	private final String originalImageUri;
-	private final ImageSize targetSize;
+	private static final int MAX_POOL_SIZE = 8;
 
-	private final ImageScaleType imageScaleType;
-	private final ViewScaleType viewScaleType;
+	private static final ObjectPool<ImageDecodingInfo> POOL = new ObjectPool<ImageDecodingInfo>(MAX_POOL_SIZE) {
+		@Override
+		protected ImageDecodingInfo create() {
+			return new ImageDecodingInfo();
+		}
+	};
 
-	private final ImageDownloader downloader;
-	private final Object extraForDownloader;
+	private String imageKey;
+	private String imageUri;
+	private String originalImageUri;
+	private ImageSize targetSize;
 
-	private final boolean considerExifParams;
-	private final Options decodingOptions;
+	private ImageScaleType imageScaleType;
+	private ViewScaleType viewScaleType;
+
+	private ImageDownloader downloader;
+	private Object extraForDownloader;
+
+	private boolean considerExifParams;
+	private final Options decodingOptions = new Options();
+
+	private ImageDecodingInfo() {
+	}
 
 	public ImageDecodingInfo(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize, ViewScaleType viewScaleType,
 							 ImageDownloader downloader, DisplayImageOptions displayOptions) {
+		init(imageKey, imageUri, originalImageUri, targetSize, viewScaleType, downloader, displayOptions);
+	}
+
+	/**
+	 * Returns decoding info from pool (or creates new one if pool is empty). Returned info should be
+	 * {@linkplain #recycle() recycled} after decoding.
+	 *
+	 * @since 1.9.5
+	 */
+	public static ImageDecodingInfo obtain(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize,
+			ViewScaleType viewScaleType, ImageDownloader downloader, DisplayImageOptions displayOptions) {
+		ImageDecodingInfo decodingInfo = POOL.acquire();
+		decodingInfo.init(imageKey, imageUri, originalImageUri, targetSize, viewScaleType, downloader, displayOptions);
+		return decodingInfo;
+	}
+
+	/**
+	 * Returns this info to pool. Info must not be used after this call.
+	 *
+	 * @since 1.9.5
+	 */
+	public void recycle() {
+		imageKey = null;
+		imageUri = null;
+		originalImageUri = null;
+		targetSize = null;
+		imageScaleType = null;
+		viewScaleType = null;
+		downloader = null;
+		extraForDownloader = null;
+		//不再持有调用方的Bitmap和缓冲区，下次obtain的时候会重新复制
+		decodingOptions.inTempStorage = null;
+		if (Build.VERSION.SDK_INT >= 11) decodingOptions.inBitmap = null;
+		POOL.release(this);
+	}
+
+	private void init(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize,
+			ViewScaleType viewScaleType, ImageDownloader downloader, DisplayImageOptions displayOptions) {
 		this.imageKey = imageKey;
 		this.imageUri = imageUri;
 		this.originalImageUri = originalImageUri;
@@ -61,7 +115,7 @@ public class ImageDecodingInfo {
 		this.extraForDownloader = displayOptions.getExtraForDownloader();
 
 		considerExifParams = displayOptions.isConsiderExifParams();
-		decodingOptions = new Options();
+		//Options对象会被复用，所有需要的参数都会重新复制
 		copyOptions(displayOptions.getDecodingOptions(), decodingOptions);
 	}
 
@@ -36,6 +36,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -137,7 +138,9 @@ public class BaseImageDownloader implements ImageDownloader {
 			throw new IOException("Image request failed with response code " + conn.getResponseCode());
 		}
 
-		return new ContentLengthInputStream(new BufferedInputStream(imageStream, BUFFER_SIZE), conn.getContentLength());
+		//关闭流的时候如果还没有读取完毕则断开连接，这样取消的任务可以立即中断下载并释放socket
+		InputStream connectionStream = new ConnectionInputStream(new BufferedInputStream(imageStream, BUFFER_SIZE), conn);
+		return new ContentLengthInputStream(connectionStream, conn.getContentLength());
 	}
 
 	/**
@@ -277,6 +280,52 @@ public class BaseImageDownloader implements ImageDownloader {
 		return mimeType != null && mimeType.startsWith("video/");
 	}
 
+	/**
+	 * Stream of network connection which {@linkplain HttpURLConnection#disconnect() disconnects} the connection if it's
+	 * closed before end of stream. So download can be aborted from another thread by closing of the stream (blocked
+	 * read is interrupted then). Fully read stream is closed as usual so the connection can be reused.
+	 */
+	private static final class ConnectionInputStream extends FilterInputStream {
+
+		private final HttpURLConnection connection;
+		private volatile boolean endOfStream;
+		private volatile boolean closed;
+
+		ConnectionInputStream(InputStream stream, HttpURLConnection connection) {
+			super(stream);
+			this.connection = connection;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return checkEnd(super.read());
+		}
+
+		@Override
+		public int read(byte[] buffer, int byteOffset, int byteCount) throws IOException {
+			return checkEnd(super.read(buffer, byteOffset, byteCount));
+		}
+
+		private int checkEnd(int result) {
+			if (result == -1) {
+				endOfStream = true;
+			}
+			return result;
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (this) {
+				if (closed) return;
+				closed = true;
+			}
+			if (!endOfStream) {
+				connection.disconnect();
+			}
+			super.close();
+		}
+	}
+
 	/**
 	 * 判断当前uri是不是video类型
      */
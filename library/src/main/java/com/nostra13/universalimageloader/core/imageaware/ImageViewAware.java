@@ -17,6 +17,7 @@ package com.nostra13.universalimageloader.core.imageaware;
 
 import android.graphics.Bitmap;
 import android.graphics.drawable.AnimationDrawable;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.view.View;
 import android.widget.ImageView;
@@ -34,6 +35,10 @@ import java.lang.reflect.Field;
  */
 public class ImageViewAware extends ViewAware {
 
+	//反射获取的Field只查找一次，getDeclaredField每次调用都会复制Field对象
+	private static final Field MAX_WIDTH_FIELD = getImageViewField("mMaxWidth");
+	private static final Field MAX_HEIGHT_FIELD = getImageViewField("mMaxHeight");
+
 	/**
 	 * Constructor. <br />
 	 * References {@link #ImageViewAware(android.widget.ImageView, boolean) ImageViewAware(imageView, true)}.
@@ -79,7 +84,7 @@ public class ImageViewAware extends ViewAware {
 			ImageView imageView = (ImageView) viewRef.get();
 			if (imageView != null) {
 				//通过反射获取maxWidth属性，尝试用maxWidth来设置宽度
-				width = getImageViewFieldValue(imageView, "mMaxWidth");
+				width = getImageViewFieldValue(imageView, MAX_WIDTH_FIELD);
 			}
 		}
 		//这里还是可能为0
@@ -97,7 +102,7 @@ public class ImageViewAware extends ViewAware {
 		if (height <= 0) {
 			ImageView imageView = (ImageView) viewRef.get();
 			if (imageView != null) {
-				height = getImageViewFieldValue(imageView, "mMaxHeight"); // Check maxHeight parameter
+				height = getImageViewFieldValue(imageView, MAX_HEIGHT_FIELD); // Check maxHeight parameter
 			}
 		}
 		return height;
@@ -129,17 +134,34 @@ public class ImageViewAware extends ViewAware {
 		}
 	}
 
+	/** Skips bitmap which is shown by ImageView already, so redisplaying of image doesn't allocate new drawable */
 	@Override
 	protected void setImageBitmapInto(Bitmap bitmap, View view) {
-		((ImageView) view).setImageBitmap(bitmap);
+		ImageView imageView = (ImageView) view;
+		Drawable current = imageView.getDrawable();
+		//ImageView.setImageBitmap每次都会创建新的BitmapDrawable
+		if (bitmap != null && current instanceof BitmapDrawable && ((BitmapDrawable) current).getBitmap() == bitmap) {
+			return;
+		}
+		imageView.setImageBitmap(bitmap);
 	}
 
-	private static int getImageViewFieldValue(Object object, String fieldName) {
-		int value = 0;
+	private static Field getImageViewField(String fieldName) {
 		try {
 			Field field = ImageView.class.getDeclaredField(fieldName);
 			field.setAccessible(true);
-			int fieldValue = (Integer) field.get(object);
+			return field;
+		} catch (Exception e) {
+			L.e(e);
+			return null;
+		}
+	}
+
+	private static int getImageViewFieldValue(Object object, Field field) {
+		if (field == null) return 0;
+		int value = 0;
+		try {
+			int fieldValue = field.getInt(object);
 			if (fieldValue > 0 && fieldValue < Integer.MAX_VALUE) {
 				value = fieldValue;
 			}
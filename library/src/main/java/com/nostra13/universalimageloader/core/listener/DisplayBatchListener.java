@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.listener;
+
+/**
+ * Listener for batches of image displays which are applied on UI thread once per frame in
+ * {@linkplain com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#batchedDisplay(int, DisplayBatchListener)
+ * batched display} mode. Is called on UI thread.
+ *
+ * @since 1.9.5
+ */
+public interface DisplayBatchListener {
+
+	/**
+	 * Is called when batch of displays was applied in frame.
+	 *
+	 * @param displayedCount Count of images displayed in this batch
+	 * @param deferredCount  Count of displays which didn't fit in frame time budget and were deferred to next frame
+	 * @param batchTimeNanos Time (in nanoseconds) which was spent on displaying of this batch
+	 */
+	void onDisplayBatch(int displayedCount, int deferredCount, long batchTimeNanos);
+}
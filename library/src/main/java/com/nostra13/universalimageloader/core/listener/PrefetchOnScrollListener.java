@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.listener;
+
+import android.widget.AbsListView;
+import android.widget.AbsListView.OnScrollListener;
+import android.widget.GridView;
+import android.widget.ListView;
+import com.nostra13.universalimageloader.core.ScrollPrefetcher;
+
+/**
+ * 根据滑动的方向和速度预加载即将滑入屏幕的图片
+ * Listener-helper for {@linkplain AbsListView list views} ({@link ListView}, {@link GridView}) which passes scroll
+ * events to {@link ScrollPrefetcher}. So images of items which will be scrolled into view soon are prefetched.<br />
+ * Set it to your list view's {@link AbsListView#setOnScrollListener(OnScrollListener) setOnScrollListener(...)}.<br />
+ * This listener can wrap your custom {@linkplain OnScrollListener listener} (e.g. {@link PauseOnScrollListener}).
+ *
+ * @since 1.9.5
+ */
+public class PrefetchOnScrollListener implements OnScrollListener {
+
+	private final ScrollPrefetcher prefetcher;
+	private final OnScrollListener externalListener;
+
+	/**
+	 * Constructor
+	 *
+	 * @param prefetcher {@link ScrollPrefetcher} which prefetches images of list view
+	 */
+	public PrefetchOnScrollListener(ScrollPrefetcher prefetcher) {
+		this(prefetcher, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param prefetcher     {@link ScrollPrefetcher} which prefetches images of list view
+	 * @param customListener Your custom {@link OnScrollListener} for {@linkplain AbsListView list view} which also
+	 *                       will be get scroll events
+	 */
+	public PrefetchOnScrollListener(ScrollPrefetcher prefetcher, OnScrollListener customListener) {
+		this.prefetcher = prefetcher;
+		externalListener = customListener;
+	}
+
+	@Override
+	public void onScrollStateChanged(AbsListView view, int scrollState) {
+		if (scrollState == OnScrollListener.SCROLL_STATE_IDLE) {
+			prefetcher.onScrollIdle();
+		}
+		if (externalListener != null) {
+			externalListener.onScrollStateChanged(view, scrollState);
+		}
+	}
+
+	@Override
+	public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+		prefetcher.onScroll(firstVisibleItem, visibleItemCount, totalItemCount);
+		if (externalListener != null) {
+			externalListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+		}
+	}
+}
@@ -51,13 +51,31 @@ public final class ImageSizeUtils {
 	 * parameters or device display dimensions.<br />
 	 */
 	public static ImageSize defineTargetSizeForView(ImageAware imageAware, ImageSize maxImageSize) {
+		int width = defineTargetWidthForView(imageAware, maxImageSize.getWidth());
+		int height = defineTargetHeightForView(imageAware, maxImageSize.getHeight());
+		return new ImageSize(width, height);
+	}
+
+	/**
+	 * Defines target width for image aware view. Same as {@link #defineTargetSizeForView(ImageAware, ImageSize)} but
+	 * doesn't allocate {@link ImageSize}.
+	 *
+	 * @since 1.9.5
+	 */
+	public static int defineTargetWidthForView(ImageAware imageAware, int maxImageWidth) {
 		int width = imageAware.getWidth();
-		if (width <= 0) width = maxImageSize.getWidth();
+		return width > 0 ? width : maxImageWidth;
+	}
 
+	/**
+	 * Defines target height for image aware view. Same as {@link #defineTargetSizeForView(ImageAware, ImageSize)} but
+	 * doesn't allocate {@link ImageSize}.
+	 *
+	 * @since 1.9.5
+	 */
+	public static int defineTargetHeightForView(ImageAware imageAware, int maxImageHeight) {
 		int height = imageAware.getHeight();
-		if (height <= 0) height = maxImageSize.getHeight();
-
-		return new ImageSize(width, height);
+		return height > 0 ? height : maxImageHeight;
 	}
 
 	private static int considerMaxTextureSize(int srcWidth, int srcHeight, int scale, boolean powerOf2) {
@@ -32,7 +32,14 @@ public final class IoUtils {
 	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024; // 32 KB
 	/** {@value} */
 	public static final int DEFAULT_IMAGE_TOTAL_SIZE = 500 * 1024; // 500 Kb
-	/** {@value} */
+	/**
+	 * {@value}
+	 *
+	 * @deprecated Copying is stopped as soon as {@link CopyListener} asks for it. Whether to keep near-complete
+	 * download of cancelled task is defined by
+	 * {@link com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#keepCancelledDownloadsFrom(int)}
+	 */
+	@Deprecated
 	public static final int CONTINUE_LOADING_PERCENTAGE = 75;
 
 	private IoUtils() {
@@ -84,15 +91,8 @@ public final class IoUtils {
 	}
 
 	private static boolean shouldStopLoading(CopyListener listener, int current, int total) {
-		if (listener != null) {
-			boolean shouldContinue = listener.onBytesCopied(current, total);
-			if (!shouldContinue) {
-				if (100 * current / total < CONTINUE_LOADING_PERCENTAGE) {
-					return true; // if loaded more than 75% then continue loading anyway
-				}
-			}
-		}
-		return false;
+		//是否继续加载完全由listener决定，快要完成的下载是否保留由listener自己的策略决定
+		return listener != null && !listener.onBytesCopied(current, total);
 	}
 
 	/**
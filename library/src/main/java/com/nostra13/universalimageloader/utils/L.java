@@ -74,6 +74,18 @@ public final class L {
 		}
 	}
 
+	/**
+	 * Same as {@link #d(String, Object...)} for one argument. Arguments array isn't allocated if debug logs are
+	 * disabled.
+	 *
+	 * @since 1.9.5
+	 */
+	public static void d(String message, Object arg) {
+		if (writeDebugLogs) {
+			log(Log.DEBUG, null, message, arg);
+		}
+	}
+
 	public static void i(String message, Object... args) {
 		log(Log.INFO, null, message, args);
 	}
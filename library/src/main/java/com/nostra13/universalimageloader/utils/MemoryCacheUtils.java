@@ -18,6 +18,7 @@ package com.nostra13.universalimageloader.utils;
 import android.graphics.Bitmap;
 
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.UriIndexedMemoryCache;
 import com.nostra13.universalimageloader.core.ImageLoaderConfiguration;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 
@@ -48,6 +49,17 @@ public final class MemoryCacheUtils {
 		return new StringBuilder(imageUri).append(URI_AND_SIZE_SEPARATOR).append(targetSize.getWidth()).append(WIDTH_AND_HEIGHT_SEPARATOR).append(targetSize.getHeight()).toString();
 	}
 
+	/**
+	 * Returns image URI part of memory cache key generated by {@link #generateKey(String, ImageSize)}. If key doesn't
+	 * contain size part then key itself is returned.
+	 *
+	 * @since 1.9.5
+	 */
+	public static String getImageUri(String memoryCacheKey) {
+		int separatorIndex = memoryCacheKey.lastIndexOf(URI_AND_SIZE_SEPARATOR);
+		return separatorIndex < 0 ? memoryCacheKey : memoryCacheKey.substring(0, separatorIndex);
+	}
+
 	public static Comparator<String> createFuzzyKeyComparator() {
 		return new Comparator<String>() {
 			@Override
@@ -63,14 +75,15 @@ public final class MemoryCacheUtils {
 	 * Searches all bitmaps in memory cache which are corresponded to incoming URI.<br />
 	 * <b>Note:</b> Memory cache can contain multiple sizes of the same image if only you didn't set
 	 * {@link ImageLoaderConfiguration.Builder#denyCacheImageMultipleSizesInMemory()
-	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}
+	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}<br />
+	 * <b>Note:</b> If memory cache is {@link UriIndexedMemoryCache} (e.g. default cache) then only bitmaps of exactly
+	 * this URI are found, otherwise all keys of cache are looked through and bitmaps of all keys which start with URI
+	 * are found.
 	 */
 	public static List<Bitmap> findCachedBitmapsForImageUri(String imageUri, MemoryCache memoryCache) {
 		List<Bitmap> values = new ArrayList<Bitmap>();
-		for (String key : memoryCache.keys()) {
-			if (key.startsWith(imageUri)) {
-				values.add(memoryCache.get(key));
-			}
+		for (String key : findCacheKeysForImageUri(imageUri, memoryCache)) {
+			values.add(memoryCache.get(key));
 		}
 		return values;
 	}
@@ -79,9 +92,15 @@ public final class MemoryCacheUtils {
 	 * Searches all keys in memory cache which are corresponded to incoming URI.<br />
 	 * <b>Note:</b> Memory cache can contain multiple sizes of the same image if only you didn't set
 	 * {@link ImageLoaderConfiguration.Builder#denyCacheImageMultipleSizesInMemory()
-	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}
+	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}<br />
+	 * <b>Note:</b> If memory cache is {@link UriIndexedMemoryCache} (e.g. default cache) then only keys of exactly this
+	 * URI are found, otherwise all keys of cache are looked through and all keys which start with URI are found.
 	 */
 	public static List<String> findCacheKeysForImageUri(String imageUri, MemoryCache memoryCache) {
+		//有索引的话只需要查找这个图片的几个尺寸，不需要遍历所有的key
+		if (memoryCache instanceof UriIndexedMemoryCache) {
+			return ((UriIndexedMemoryCache) memoryCache).keysForImageUri(imageUri);
+		}
 		List<String> values = new ArrayList<String>();
 		for (String key : memoryCache.keys()) {
 			if (key.startsWith(imageUri)) {
@@ -95,16 +114,12 @@ public final class MemoryCacheUtils {
 	 * Removes from memory cache all images for incoming URI.<br />
 	 * <b>Note:</b> Memory cache can contain multiple sizes of the same image if only you didn't set
 	 * {@link ImageLoaderConfiguration.Builder#denyCacheImageMultipleSizesInMemory()
-	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}
+	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}<br />
+	 * <b>Note:</b> If memory cache is {@link UriIndexedMemoryCache} (e.g. default cache) then only images of exactly
+	 * this URI are removed, otherwise images of all keys which start with URI are removed.
 	 */
 	public static void removeFromCache(String imageUri, MemoryCache memoryCache) {
-		List<String> keysToRemove = new ArrayList<String>();
-		for (String key : memoryCache.keys()) {
-			if (key.startsWith(imageUri)) {
-				keysToRemove.add(key);
-			}
-		}
-		for (String keyToRemove : keysToRemove) {
+		for (String keyToRemove : findCacheKeysForImageUri(imageUri, memoryCache)) {
 			memoryCache.remove(keyToRemove);
 		}
 	}
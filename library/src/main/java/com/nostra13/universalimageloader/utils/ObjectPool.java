@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.utils;
+
+/**
+ * Bounded thread-safe pool of reusable objects. Pool keeps at most <b>maxSize</b> released instances, if pool is
+ * empty then new instance is {@linkplain #create() created}. Released instance must not be used by releasing side
+ * anymore.
+ *
+ * @param <T> Type of pooled objects
+ * @since 1.9.5
+ */
+public abstract class ObjectPool<T> {
+
+	private static final String ERROR_INSTANCE_NULL = "Released instance must not be null";
+	private static final String ERROR_MAX_SIZE = "maxSize must be >= 0";
+	private static final String ERROR_ALREADY_RELEASED = "Instance is already in the pool";
+
+	private final Object[] pool;
+	private int poolSize;
+
+	private int createdCount;
+	private int reusedCount;
+
+	/** @param maxSize Maximum count of instances kept in pool. <b>0</b> - pooling is disabled. */
+	protected ObjectPool(int maxSize) {
+		if (maxSize < 0) throw new IllegalArgumentException(ERROR_MAX_SIZE);
+		pool = new Object[maxSize];
+	}
+
+	/** Creates new instance when pool is empty */
+	protected abstract T create();
+
+	/** @return Instance from pool or new instance if pool is empty */
+	@SuppressWarnings("unchecked")
+	public T acquire() {
+		synchronized (this) {
+			if (poolSize > 0) {
+				int last = --poolSize;
+				T instance = (T) pool[last];
+				pool[last] = null;
+				reusedCount++;
+				return instance;
+			}
+			createdCount++;
+		}
+		//创建对象不需要持有锁
+		return create();
+	}
+
+	/**
+	 * Returns instance to pool
+	 *
+	 * @return <b>true</b> - if instance was put in pool; <b>false</b> - if pool is full (instance is left for GC)
+	 * @throws IllegalArgumentException if instance is <b>null</b>
+	 * @throws IllegalStateException    if instance is already in pool
+	 */
+	public synchronized boolean release(T instance) {
+		if (instance == null) throw new IllegalArgumentException(ERROR_INSTANCE_NULL);
+		for (int i = 0; i < poolSize; i++) {
+			if (pool[i] == instance) throw new IllegalStateException(ERROR_ALREADY_RELEASED);
+		}
+		if (poolSize == pool.length) return false;
+		pool[poolSize++] = instance;
+		return true;
+	}
+
+	/** Removes all instances from pool */
+	public synchronized void clear() {
+		for (int i = 0; i < poolSize; i++) {
+			pool[i] = null;
+		}
+		poolSize = 0;
+	}
+
+	/** @return Count of instances kept in pool now */
+	public synchronized int size() {
+		return poolSize;
+	}
+
+	/** @return Count of instances which were {@linkplain #create() created} by {@link #acquire()} */
+	public synchronized int getCreatedCount() {
+		return createdCount;
+	}
+
+	/** @return Count of instances which were taken from pool by {@link #acquire()} */
+	public synchronized int getReusedCount() {
+		return reusedCount;
+	}
+}
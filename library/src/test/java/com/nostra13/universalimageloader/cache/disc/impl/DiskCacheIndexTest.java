@@ -0,0 +1,113 @@
+package com.nostra13.universalimageloader.cache.disc.impl;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+public class DiskCacheIndexTest {
+
+	private static final String TEMP_POSTFIX = ".tmp";
+	private static final int NAME_COUNT = 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAdd() throws Exception {
+		DiskCacheIndex index = new DiskCacheIndex();
+		index.add("image1");
+		index.add("image1");
+
+		Assertions.assertThat(index.contains("image1")).isTrue();
+		Assertions.assertThat(index.contains("image2")).isFalse();
+		Assertions.assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		DiskCacheIndex index = new DiskCacheIndex();
+		index.add("image1");
+		index.remove("image1");
+		index.remove("image1");
+
+		Assertions.assertThat(index.contains("image1")).isFalse();
+		Assertions.assertThat(index.size()).isZero();
+	}
+
+	@Test
+	public void testRemove_keepsProbeSequencesOfOtherNames() throws Exception {
+		DiskCacheIndex index = new DiskCacheIndex();
+		for (int i = 0; i < NAME_COUNT; i++) {
+			index.add("image" + i);
+		}
+		// Removal from the middle of collision clusters shifts following names back
+		for (int i = 0; i < NAME_COUNT; i += 2) {
+			index.remove("image" + i);
+		}
+
+		for (int i = 0; i < NAME_COUNT; i++) {
+			Assertions.assertThat(index.contains("image" + i)).isEqualTo(i % 2 == 1);
+		}
+		Assertions.assertThat(index.size()).isEqualTo(NAME_COUNT / 2);
+
+		for (int i = 0; i < NAME_COUNT; i += 2) {
+			index.add("image" + i);
+		}
+		for (int i = 0; i < NAME_COUNT; i++) {
+			Assertions.assertThat(index.contains("image" + i)).isTrue();
+		}
+		Assertions.assertThat(index.size()).isEqualTo(NAME_COUNT);
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		File cacheDir = folder.newFolder("cache");
+		File reserveCacheDir = folder.newFolder("reserve");
+		new File(cacheDir, "image1").createNewFile();
+		new File(cacheDir, "image2" + TEMP_POSTFIX).createNewFile();
+		new File(reserveCacheDir, "image3").createNewFile();
+		DiskCacheIndex index = new DiskCacheIndex();
+
+		Assertions.assertThat(index.isLoaded()).isFalse();
+		index.load(cacheDir, reserveCacheDir, TEMP_POSTFIX);
+
+		Assertions.assertThat(index.isLoaded()).isTrue();
+		Assertions.assertThat(index.contains("image1")).isTrue();
+		Assertions.assertThat(index.contains("image2")).isFalse();
+		Assertions.assertThat(index.contains("image2" + TEMP_POSTFIX)).isFalse();
+		Assertions.assertThat(index.contains("image3")).isTrue();
+		Assertions.assertThat(index.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testLoad_onlyOnce() throws Exception {
+		File cacheDir = folder.newFolder("cache");
+		new File(cacheDir, "image1").createNewFile();
+		DiskCacheIndex index = new DiskCacheIndex();
+		index.load(cacheDir, null, TEMP_POSTFIX);
+		index.remove("image1");
+
+		index.load(cacheDir, null, TEMP_POSTFIX);
+
+		Assertions.assertThat(index.contains("image1")).isFalse();
+	}
+
+	@Test
+	public void testLoadInBackground() throws Exception {
+		File cacheDir = folder.newFolder("cache");
+		new File(cacheDir, "image1").createNewFile();
+		DiskCacheIndex index = new DiskCacheIndex();
+
+		index.loadInBackground(cacheDir, null, TEMP_POSTFIX);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!index.isLoaded() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		Assertions.assertThat(index.isLoaded()).isTrue();
+		Assertions.assertThat(index.contains("image1")).isTrue();
+	}
+}
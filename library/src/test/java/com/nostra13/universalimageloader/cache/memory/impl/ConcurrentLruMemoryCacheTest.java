@@ -0,0 +1,136 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapEvictionListener;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConcurrentLruMemoryCacheTest {
+
+	@Test
+	public void testPut_evictsLeastRecentlyUsed() throws Exception {
+		ConcurrentLruMemoryCache cache = new UnitSizeCache(3);
+		cache.put("a", createBitmap());
+		cache.put("b", createBitmap());
+		cache.put("c", createBitmap());
+
+		Assertions.assertThat(cache.get("a")).isNotNull();
+		cache.put("d", createBitmap());
+
+		Assertions.assertThat(cache.keys()).containsOnly("a", "c", "d");
+		Assertions.assertThat(cache.size()).isEqualTo(3);
+	}
+
+	@Test
+	public void testEvictionListener() throws Exception {
+		ConcurrentLruMemoryCache cache = new UnitSizeCache(2);
+		final List<String> evicted = new ArrayList<String>();
+		cache.setEvictionListener(new BitmapEvictionListener() {
+			@Override
+			public void onBitmapEvicted(String key, Bitmap bitmap) {
+				evicted.add(key);
+			}
+		});
+		Bitmap bitmap = createBitmap();
+		cache.put("a", bitmap);
+		cache.put("a", bitmap);
+		cache.put("b", createBitmap());
+		cache.put("b", createBitmap());
+		cache.put("c", createBitmap());
+		Assertions.assertThat(evicted).containsExactly("b", "a");
+
+		Assertions.assertThat(cache.remove("b")).isNotNull();
+		Assertions.assertThat(cache.remove("b")).isNull();
+		cache.clear();
+		Assertions.assertThat(evicted).containsExactly("b", "a", "b", "c");
+		Assertions.assertThat(cache.keys()).isEmpty();
+		Assertions.assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testKeysForImageUri_followEviction() throws Exception {
+		ConcurrentLruMemoryCache cache = new UnitSizeCache(2);
+		cache.put("http://site.com/a.png_100x100", createBitmap());
+		cache.put("http://site.com/a.png_200x200", createBitmap());
+		Assertions.assertThat(cache.keysForImageUri("http://site.com/a.png"))
+				.containsOnly("http://site.com/a.png_100x100", "http://site.com/a.png_200x200");
+
+		cache.put("http://site.com/b.png_100x100", createBitmap());
+		Assertions.assertThat(cache.keysForImageUri("http://site.com/a.png"))
+				.containsOnly("http://site.com/a.png_200x200");
+		cache.remove("http://site.com/a.png_200x200");
+		Assertions.assertThat(cache.keysForImageUri("http://site.com/a.png")).isEmpty();
+	}
+
+	@Test
+	public void testConcurrentAccess_sizeIsConsistent() throws Exception {
+		final ConcurrentLruMemoryCache cache = new UnitSizeCache(20);
+		final Bitmap[] bitmaps = new Bitmap[50];
+		for (int i = 0; i < bitmaps.length; i++) {
+			bitmaps[i] = createBitmap();
+		}
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final CountDownLatch done = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			final Random random = new Random(t);
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 20000; i++) {
+							int index = random.nextInt(bitmaps.length);
+							String key = String.valueOf(index);
+							int operation = random.nextInt(10);
+							if (operation == 0) {
+								cache.remove(key);
+							} else if (operation < 4) {
+								cache.put(key, bitmaps[index]);
+							} else {
+								Bitmap bitmap = cache.get(key);
+								if (bitmap != null && bitmap != bitmaps[index]) {
+									throw new AssertionError("Wrong bitmap for key " + key);
+								}
+							}
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		done.await();
+
+		Assertions.assertThat(failure.get()).isNull();
+		Assertions.assertThat(cache.size()).isLessThanOrEqualTo(20);
+		Assertions.assertThat(cache.size()).isEqualTo(cache.keys().size());
+	}
+
+	private static Bitmap createBitmap() {
+		return Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+	}
+
+	private static class UnitSizeCache extends ConcurrentLruMemoryCache {
+
+		UnitSizeCache(int maxSize) {
+			super(maxSize);
+		}
+
+		@Override
+		protected int sizeOf(String key, Bitmap value) {
+			return 1;
+		}
+	}
+}
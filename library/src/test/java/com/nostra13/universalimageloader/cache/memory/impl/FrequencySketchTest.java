@@ -0,0 +1,44 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class FrequencySketchTest {
+
+	@Test
+	public void testFrequency_countsIncrements() throws Exception {
+		FrequencySketch sketch = new FrequencySketch(64);
+		int popular = "http://site.com/avatar.png".hashCode();
+		int rare = "http://site.com/photo.png".hashCode();
+		for (int i = 0; i < 5; i++) {
+			sketch.increment(popular);
+		}
+		sketch.increment(rare);
+
+		Assertions.assertThat(sketch.frequency(popular)).isGreaterThanOrEqualTo(5);
+		Assertions.assertThat(sketch.frequency(rare)).isGreaterThanOrEqualTo(1).isLessThan(5);
+		Assertions.assertThat(sketch.frequency("unknown".hashCode())).isLessThan(5);
+	}
+
+	@Test
+	public void testFrequency_isSaturated() throws Exception {
+		FrequencySketch sketch = new FrequencySketch(64);
+		for (int i = 0; i < 100; i++) {
+			sketch.increment(42);
+		}
+		Assertions.assertThat(sketch.frequency(42)).isEqualTo(FrequencySketch.MAX_FREQUENCY);
+	}
+
+	@Test
+	public void testIncrement_agesCounters() throws Exception {
+		FrequencySketch sketch = new FrequencySketch(8);
+		for (int i = 0; i < 8; i++) {
+			sketch.increment(42);
+		}
+		// sample size is 10 * 8 increments, so counters are halved after them
+		for (int i = 0; i < 80; i++) {
+			sketch.increment(1000 + i);
+		}
+		Assertions.assertThat(sketch.frequency(42)).isLessThanOrEqualTo(4 + 1);
+	}
+}
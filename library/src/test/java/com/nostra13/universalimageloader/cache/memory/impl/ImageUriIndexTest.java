@@ -0,0 +1,45 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ImageUriIndexTest {
+
+	private static final String URI = "http://site.com/image.png";
+
+	@Test
+	public void testGet_returnsAllSizesOfUri() throws Exception {
+		ImageUriIndex index = new ImageUriIndex();
+		String small = MemoryCacheUtils.generateKey(URI, new ImageSize(100, 100));
+		String large = MemoryCacheUtils.generateKey(URI, new ImageSize(800, 600));
+		String other = MemoryCacheUtils.generateKey(URI + "2", new ImageSize(100, 100));
+		index.add(small);
+		index.add(large);
+		index.add(other);
+
+		Assertions.assertThat(index.get(URI)).containsOnly(small, large);
+		Assertions.assertThat(index.get(URI + "2")).containsOnly(other);
+		Assertions.assertThat(index.get("http://site.com")).isEmpty();
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		ImageUriIndex index = new ImageUriIndex();
+		String key = MemoryCacheUtils.generateKey(URI, new ImageSize(100, 100));
+		index.add(key);
+		index.remove(key);
+		index.remove(key);
+
+		Assertions.assertThat(index.get(URI)).isEmpty();
+	}
+
+	@Test
+	public void testGetImageUri() throws Exception {
+		String key = MemoryCacheUtils.generateKey("http://site.com/image_1.png", new ImageSize(100, 50));
+		Assertions.assertThat(MemoryCacheUtils.getImageUri(key)).isEqualTo("http://site.com/image_1.png");
+		Assertions.assertThat(MemoryCacheUtils.getImageUri("custom")).isEqualTo("custom");
+	}
+}
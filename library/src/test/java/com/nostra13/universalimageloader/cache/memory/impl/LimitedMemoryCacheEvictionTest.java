@@ -0,0 +1,123 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class LimitedMemoryCacheEvictionTest {
+
+	private final Map<Bitmap, Integer> sizes = new IdentityHashMap<Bitmap, Integer>();
+	private final List<Bitmap> evicted = new ArrayList<Bitmap>();
+
+	@Test
+	public void testFifo_evictsInOrderOfPutting() throws Exception {
+		FIFOLimitedMemoryCache cache = new FIFOLimitedMemoryCache(10) {
+			@Override
+			protected int getSize(Bitmap value) {
+				return sizes.get(value);
+			}
+
+			@Override
+			protected Bitmap removeNext() {
+				return recordEvicted(super.removeNext());
+			}
+		};
+		Bitmap a = createBitmap(3);
+		Bitmap b = createBitmap(3);
+		Bitmap c = createBitmap(3);
+		cache.put("a", a);
+		cache.put("b", b);
+		cache.put("c", c);
+		cache.remove("b");
+		cache.put("d", createBitmap(3));
+		Assertions.assertThat(evicted).isEmpty();
+
+		cache.put("e", createBitmap(3));
+		cache.put("f", createBitmap(3));
+		Assertions.assertThat(evicted).containsExactly(a, c);
+	}
+
+	@Test
+	public void testLargest_evictsLargestBitmap() throws Exception {
+		LargestLimitedMemoryCache cache = new LargestLimitedMemoryCache(10) {
+			@Override
+			protected int getSize(Bitmap value) {
+				return sizes.get(value);
+			}
+
+			@Override
+			protected Bitmap removeNext() {
+				return recordEvicted(super.removeNext());
+			}
+		};
+		Bitmap small = createBitmap(2);
+		Bitmap large = createBitmap(5);
+		Bitmap removed = createBitmap(6);
+		Bitmap medium = createBitmap(3);
+		cache.put("small", small);
+		cache.put("large", large);
+		cache.put("removed", removed);
+		cache.remove("removed");
+		cache.put("medium", medium);
+		cache.put("new", createBitmap(4));
+		Assertions.assertThat(evicted).containsExactly(large);
+
+		cache.put("new2", createBitmap(4));
+		Assertions.assertThat(evicted).hasSize(2);
+		Assertions.assertThat(sizes.get(evicted.get(1))).isEqualTo(4);
+	}
+
+	@Test
+	public void testUsingFreq_evictsLeastUsedBitmap() throws Exception {
+		UsingFreqLimitedMemoryCache cache = new UsingFreqLimitedMemoryCache(10) {
+			@Override
+			protected int getSize(Bitmap value) {
+				return sizes.get(value);
+			}
+
+			@Override
+			protected Bitmap removeNext() {
+				return recordEvicted(super.removeNext());
+			}
+		};
+		Bitmap a = createBitmap(3);
+		Bitmap b = createBitmap(3);
+		Bitmap c = createBitmap(3);
+		cache.put("a", a);
+		cache.put("b", b);
+		cache.put("c", c);
+		cache.get("a");
+		cache.get("a");
+		cache.get("c");
+		cache.get("b");
+		cache.get("b");
+		cache.get("b");
+
+		Bitmap d = createBitmap(3);
+		cache.put("d", d);
+		Assertions.assertThat(evicted).containsExactly(c);
+
+		cache.put("e", createBitmap(3));
+		Assertions.assertThat(evicted).containsExactly(c, d);
+	}
+
+	private Bitmap recordEvicted(Bitmap bitmap) {
+		evicted.add(bitmap);
+		return bitmap;
+	}
+
+	private Bitmap createBitmap(int size) {
+		Bitmap bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+		sizes.put(bitmap, size);
+		return bitmap;
+	}
+}
@@ -0,0 +1,101 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures throughput of {@link MemoryCache#get(String)} with growing number of reader threads while one writer thread
+ * keeps putting bitmaps (like decoding threads do). Is skipped by default, run it with
+ * {@code -Duil.benchmark=true}. Results are printed as operations per millisecond.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MemoryCacheReadBenchmark {
+
+	private static final int KEY_COUNT = 512;
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+	private static final long ITERATION_MILLIS = 500;
+	private static final int[] READER_THREADS = {1, 2, 4, 8};
+
+	@Test
+	public void benchmarkGet() throws Exception {
+		Assume.assumeTrue(Boolean.getBoolean("uil.benchmark"));
+
+		String[] keys = new String[KEY_COUNT];
+		Bitmap[] bitmaps = new Bitmap[KEY_COUNT];
+		for (int i = 0; i < KEY_COUNT; i++) {
+			keys[i] = "http://site.com/image" + i + ".png_100x100";
+			bitmaps[i] = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		}
+		int maxSize = bitmaps[0].getRowBytes() * bitmaps[0].getHeight() * KEY_COUNT * 3 / 4;
+
+		for (int threads : READER_THREADS) {
+			double lru = measure(new LruMemoryCache(maxSize), keys, bitmaps, threads);
+			double concurrentLru = measure(new ConcurrentLruMemoryCache(maxSize), keys, bitmaps, threads);
+			System.out.println(String.format("readers=%d LruMemoryCache=%.1f ops/ms ConcurrentLruMemoryCache=%.1f ops/ms",
+					threads, lru, concurrentLru));
+		}
+	}
+
+	private static double measure(MemoryCache cache, String[] keys, Bitmap[] bitmaps, int threads)
+			throws InterruptedException {
+		for (int i = 0; i < keys.length; i++) {
+			cache.put(keys[i], bitmaps[i]);
+		}
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			runIteration(cache, keys, bitmaps, threads);
+		}
+		long operations = 0;
+		for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+			operations += runIteration(cache, keys, bitmaps, threads);
+		}
+		return (double) operations / (MEASUREMENT_ITERATIONS * ITERATION_MILLIS);
+	}
+
+	/** Runs readers and one writer for {@link #ITERATION_MILLIS}, returns number of performed reads */
+	private static long runIteration(final MemoryCache cache, final String[] keys, final Bitmap[] bitmaps, int threads)
+			throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + ITERATION_MILLIS;
+		final AtomicLong operations = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(threads + 1);
+		for (int t = 0; t < threads; t++) {
+			final int seed = t * 31;
+			new Thread() {
+				@Override
+				public void run() {
+					long count = 0;
+					int index = seed;
+					while ((count & 0xFF) != 0 || System.currentTimeMillis() < deadline) {
+						cache.get(keys[index++ & (KEY_COUNT - 1)]);
+						count++;
+					}
+					operations.addAndGet(count);
+					done.countDown();
+				}
+			}.start();
+		}
+		new Thread() {
+			@Override
+			public void run() {
+				int index = 0;
+				while (System.currentTimeMillis() < deadline) {
+					int i = index++ & (KEY_COUNT - 1);
+					cache.put(keys[i], bitmaps[i]);
+					Thread.yield();
+				}
+				done.countDown();
+			}
+		}.start();
+		done.await();
+		return operations.get();
+	}
+}
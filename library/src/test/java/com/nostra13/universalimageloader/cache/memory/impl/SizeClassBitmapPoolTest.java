@@ -0,0 +1,119 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class SizeClassBitmapPoolTest {
+
+	private static final int BITMAP_10x10_SIZE = 10 * 10 * 4;
+
+	@Test
+	public void testGet_beforeKitKat_exactMatchOnly() throws Exception {
+		TestPool pool = new TestPool(BITMAP_10x10_SIZE * 4, false);
+		Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		pool.put(bitmap);
+		pool.put(Bitmap.createBitmap(20, 5, Bitmap.Config.ARGB_8888)); // the same byte size
+
+		Assertions.assertThat(pool.get(5, 5, Bitmap.Config.ARGB_8888)).isNull();
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.RGB_565)).isNull();
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isNull();
+		Assertions.assertThat(pool.getHitCount()).isEqualTo(1);
+		Assertions.assertThat(pool.getMissCount()).isEqualTo(3);
+		Assertions.assertThat(pool.reconfiguredCount).isZero();
+	}
+
+	@Test
+	public void testGet_sinceKitKat_smallestFittingSizeClass() throws Exception {
+		TestPool pool = new TestPool(BITMAP_10x10_SIZE * 8, true);
+		Bitmap small = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		Bitmap big = Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888);
+		pool.put(big);
+		pool.put(small);
+
+		Assertions.assertThat(pool.get(8, 8, Bitmap.Config.ARGB_8888)).isSameAs(small);
+		// 20x20 bitmap is more than MAX_SIZE_MULTIPLE times bigger than 8x8 one
+		Assertions.assertThat(pool.get(8, 8, Bitmap.Config.ARGB_8888)).isNull();
+		Assertions.assertThat(pool.get(15, 15, Bitmap.Config.ARGB_8888)).isSameAs(big);
+		Assertions.assertThat(pool.reconfiguredCount).isEqualTo(2);
+		Assertions.assertThat(pool.size()).isZero();
+	}
+
+	@Test
+	public void testGet_sinceKitKat_notReconfigurableBitmapIsDropped() throws Exception {
+		TestPool pool = new TestPool(BITMAP_10x10_SIZE * 4, true);
+		pool.reconfigurable = false;
+		Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		pool.put(bitmap);
+
+		Assertions.assertThat(pool.get(8, 8, Bitmap.Config.ARGB_8888)).isNull();
+		Assertions.assertThat(bitmap.isRecycled()).isTrue();
+		Assertions.assertThat(pool.size()).isZero();
+	}
+
+	@Test
+	public void testPut_trimsToMaxSize() throws Exception {
+		TestPool pool = new TestPool(BITMAP_10x10_SIZE * 3, false);
+		Bitmap first = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		pool.put(first);
+		pool.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+		pool.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+		Assertions.assertThat(pool.size()).isEqualTo(BITMAP_10x10_SIZE * 3);
+
+		pool.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+
+		Assertions.assertThat(pool.size()).isEqualTo(BITMAP_10x10_SIZE * 3);
+		Assertions.assertThat(pool.getEvictionCount()).isEqualTo(1);
+		Assertions.assertThat(first.isRecycled()).isTrue();
+	}
+
+	@Test
+	public void testPut_rejectsBitmapBiggerThanPool() throws Exception {
+		TestPool pool = new TestPool(BITMAP_10x10_SIZE, false);
+
+		Assertions.assertThat(pool.put(Bitmap.createBitmap(20, 20, Bitmap.Config.ARGB_8888))).isFalse();
+		Assertions.assertThat(pool.put(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888))).isTrue();
+		Assertions.assertThat(pool.getPutCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		TestPool pool = new TestPool(BITMAP_10x10_SIZE * 2, false);
+		Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		pool.put(bitmap);
+
+		pool.clear();
+
+		Assertions.assertThat(pool.size()).isZero();
+		Assertions.assertThat(bitmap.isRecycled()).isTrue();
+		Assertions.assertThat(pool.get(10, 10, Bitmap.Config.ARGB_8888)).isNull();
+	}
+
+	/** Pool which sizes bitmaps by their current dimensions and doesn't depend on native reconfiguration */
+	private static class TestPool extends SizeClassBitmapPool {
+
+		boolean reconfigurable = true;
+		int reconfiguredCount;
+
+		TestPool(int maxSize, boolean reconfigureSupported) {
+			super(maxSize, reconfigureSupported);
+		}
+
+		@Override
+		protected int sizeOf(Bitmap bitmap) {
+			return bitmap.getWidth() * bitmap.getHeight() * getBytesPerPixel(bitmap.getConfig());
+		}
+
+		@Override
+		protected boolean reconfigure(Bitmap bitmap, int width, int height, Bitmap.Config config) {
+			if (!reconfigurable) return false;
+			reconfiguredCount++;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapEvictionListener;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class TinyLfuMemoryCacheTest {
+
+	@Test
+	public void testPut_popularBitmapsSurviveScan() throws Exception {
+		TinyLfuMemoryCache cache = new PixelCountCache(20);
+		for (int i = 0; i < 5; i++) {
+			cache.put("avatar" + i, createBitmap());
+		}
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 5; i++) {
+				Assertions.assertThat(cache.get("avatar" + i)).isNotNull();
+			}
+		}
+
+		for (int i = 0; i < 200; i++) {
+			String key = "photo" + i;
+			cache.get(key);
+			cache.put(key, createBitmap());
+		}
+
+		Assertions.assertThat(cache.keys()).contains("avatar0", "avatar1", "avatar2", "avatar3", "avatar4");
+		Assertions.assertThat(cache.size()).isEqualTo(20);
+	}
+
+	@Test
+	public void testPut_lruCacheLosesPopularBitmapsOnScan() throws Exception {
+		// the same scenario as above for comparison: plain LRU evicts everything
+		ConcurrentLruMemoryCache cache = new ConcurrentLruMemoryCache(20) {
+			@Override
+			protected int sizeOf(String key, Bitmap value) {
+				return 1;
+			}
+		};
+		for (int i = 0; i < 5; i++) {
+			cache.put("avatar" + i, createBitmap());
+			cache.get("avatar" + i);
+		}
+		for (int i = 0; i < 200; i++) {
+			cache.put("photo" + i, createBitmap());
+		}
+		Assertions.assertThat(cache.keys()).doesNotContain("avatar0");
+	}
+
+	@Test
+	public void testRemoveAndClear_notifyListener() throws Exception {
+		TinyLfuMemoryCache cache = new PixelCountCache(10);
+		final List<String> evicted = new ArrayList<String>();
+		cache.setEvictionListener(new BitmapEvictionListener() {
+			@Override
+			public void onBitmapEvicted(String key, Bitmap bitmap) {
+				evicted.add(key);
+			}
+		});
+		cache.put("a", createBitmap());
+		cache.put("b", createBitmap());
+		cache.put("b", createBitmap());
+		Assertions.assertThat(cache.remove("a")).isNotNull();
+		Assertions.assertThat(cache.remove("a")).isNull();
+		cache.clear();
+
+		Assertions.assertThat(evicted).containsExactly("b", "a", "b");
+		Assertions.assertThat(cache.keys()).isEmpty();
+		Assertions.assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testPut_mixedSizes_evictsWindowCandidatesAndProtectedBitmaps() throws Exception {
+		TinyLfuMemoryCache cache = new PixelCountCache(100);
+		final List<String> evicted = new ArrayList<String>();
+		cache.setEvictionListener(new BitmapEvictionListener() {
+			@Override
+			public void onBitmapEvicted(String key, Bitmap bitmap) {
+				evicted.add(key);
+			}
+		});
+		cache.put("big", createBitmap(95));
+		cache.get("big"); // promoted to protected queue
+		cache.put("w1", createBitmap(2));
+		cache.put("w2", createBitmap(2));
+		for (int i = 0; i < 5; i++) {
+			cache.get("w2");
+		}
+
+		// both window Bitmaps become candidates, main area has to be emptied
+		cache.put("x", createBitmap(9));
+
+		Assertions.assertThat(evicted).containsOnly("w1", "w2", "big");
+		Assertions.assertThat(cache.keys()).containsOnly("x");
+		Assertions.assertThat(cache.size()).isEqualTo(9);
+	}
+
+	@Test
+	public void testPut_mixedSizes_sizeStaysWithinLimit() throws Exception {
+		TinyLfuMemoryCache cache = new PixelCountCache(100);
+		for (int i = 0; i < 500; i++) {
+			String key = "key" + (i % 37);
+			for (int j = 0; j < i % 3; j++) {
+				cache.get(key);
+			}
+			cache.put(key, createBitmap(1 + (i * 7) % 60));
+			Assertions.assertThat(cache.size()).isLessThanOrEqualTo(100);
+		}
+	}
+
+	private static Bitmap createBitmap() {
+		return createBitmap(1);
+	}
+
+	private static Bitmap createBitmap(int size) {
+		return Bitmap.createBitmap(size, 1, Bitmap.Config.ARGB_8888);
+	}
+
+	/** Cache which measures Bitmaps in pixels, so test can set any size of Bitmap by its width */
+	private static class PixelCountCache extends TinyLfuMemoryCache {
+
+		PixelCountCache(int maxSize) {
+			super(maxSize);
+		}
+
+		@Override
+		protected int sizeOf(String key, Bitmap value) {
+			return value.getWidth() * value.getHeight();
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.impl.ConcurrentLruMemoryCache;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.imageaware.ImageViewAware;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BitmapReuseRegistryTest {
+
+	private RecordingPool pool;
+	private BitmapReuseRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new RecordingPool();
+		registry = new BitmapReuseRegistry(pool);
+	}
+
+	@Test
+	public void testEvictedBitmapIsPooled() throws Exception {
+		Bitmap bitmap = createBitmap();
+		registry.registerCached(bitmap);
+
+		registry.onBitmapEvicted("key", bitmap);
+
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+		Assertions.assertThat(registry.acquireInFlight(bitmap)).isFalse();
+	}
+
+	@Test
+	public void testNotRegisteredBitmapIsNotPooled() throws Exception {
+		Bitmap bitmap = createBitmap();
+
+		registry.onBitmapEvicted("key", bitmap);
+		registry.releaseInFlight(bitmap);
+
+		Assertions.assertThat(registry.acquireInFlight(bitmap)).isFalse();
+		Assertions.assertThat(pool.pooled).isEmpty();
+	}
+
+	@Test
+	public void testBitmapCachedTwiceIsPooledAfterBothEvictions() throws Exception {
+		Bitmap bitmap = createBitmap();
+		registry.registerCached(bitmap);
+		registry.registerCached(bitmap);
+
+		registry.onBitmapEvicted("key1", bitmap);
+		Assertions.assertThat(pool.pooled).isEmpty();
+		registry.onBitmapEvicted("key2", bitmap);
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+	}
+
+	@Test
+	public void testInFlightLease_pendingDisplayKeepsEvictedBitmap() throws Exception {
+		Bitmap bitmap = createBitmap();
+		registry.registerCached(bitmap);
+		Assertions.assertThat(registry.acquireInFlight(bitmap)).isTrue(); // display task is posted
+
+		registry.onBitmapEvicted("key", bitmap);
+		Assertions.assertThat(pool.pooled).isEmpty();
+
+		registry.releaseInFlight(bitmap); // display task is run or dropped
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+	}
+
+	@Test
+	public void testInFlightLease_isTransferredToViewLease() throws Exception {
+		Bitmap bitmap = createBitmap();
+		ImageViewAware imageAware = createImageAware();
+		registry.registerCached(bitmap);
+		registry.acquireInFlight(bitmap);
+		registry.onBitmapEvicted("key", bitmap);
+
+		registry.onDisplayed(imageAware, bitmap);
+		registry.releaseInFlight(bitmap);
+		Assertions.assertThat(pool.pooled).isEmpty();
+
+		registry.onDisplayed(imageAware, createBitmap());
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+	}
+
+	@Test
+	public void testRegistrationBeforePut_evictionDuringPut() throws Exception {
+		ConcurrentLruMemoryCache cache = new OversizeCache();
+		cache.setEvictionListener(registry);
+		Bitmap bitmap = createBitmap();
+
+		registry.registerCached(bitmap);
+		cache.put("key", bitmap); // bitmap is evicted right inside put
+
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+		Assertions.assertThat(registry.acquireInFlight(bitmap)).isFalse(); // owner isn't leaked
+	}
+
+	@Test
+	public void testRegistrationBeforePut_loadingTaskKeepsLease() throws Exception {
+		ConcurrentLruMemoryCache cache = new OversizeCache();
+		cache.setEvictionListener(registry);
+		Bitmap bitmap = createBitmap();
+
+		registry.registerCached(bitmap);
+		registry.acquireInFlight(bitmap);
+		cache.put("key", bitmap);
+		Assertions.assertThat(pool.pooled).isEmpty();
+
+		registry.releaseInFlight(bitmap);
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+	}
+
+	@Test
+	public void testRejectedPut_undoesRegistration() throws Exception {
+		Bitmap bitmap = createBitmap();
+		registry.registerCached(bitmap);
+		registry.acquireInFlight(bitmap);
+
+		registry.unregisterCached(bitmap);
+		Assertions.assertThat(pool.pooled).isEmpty();
+		registry.releaseInFlight(bitmap);
+
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+	}
+
+	@Test
+	public void testViewLease_releasedWhenViewShowsAnotherBitmap() throws Exception {
+		Bitmap bitmap = createBitmap();
+		ImageViewAware imageAware = createImageAware();
+		registry.registerCached(bitmap);
+		registry.onDisplayed(imageAware, bitmap);
+		registry.onDisplayed(imageAware, bitmap);
+
+		registry.onBitmapEvicted("key", bitmap);
+		Assertions.assertThat(pool.pooled).isEmpty();
+
+		registry.onDisplayed(imageAware, createBitmap());
+		Assertions.assertThat(pool.pooled).containsExactly(bitmap);
+	}
+
+	@Test
+	public void testNonViewTarget_pinsBitmap() throws Exception {
+		Bitmap bitmap = createBitmap();
+		registry.registerCached(bitmap);
+
+		registry.onDisplayed(new NonViewAware(new ImageSize(1, 1), ViewScaleType.CROP), bitmap);
+		registry.onBitmapEvicted("key", bitmap);
+
+		Assertions.assertThat(pool.pooled).isEmpty();
+	}
+
+	@Test
+	public void testClear_forgetsOwners() throws Exception {
+		Bitmap bitmap = createBitmap();
+		registry.registerCached(bitmap);
+
+		registry.clear();
+		registry.onBitmapEvicted("key", bitmap);
+
+		Assertions.assertThat(pool.pooled).isEmpty();
+	}
+
+	private static Bitmap createBitmap() {
+		return Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+	}
+
+	private static ImageViewAware createImageAware() {
+		return new ImageViewAware(new ImageView(RuntimeEnvironment.application));
+	}
+
+	/** Cache which can't hold any bitmap, so every put evicts the bitmap at once */
+	private static class OversizeCache extends ConcurrentLruMemoryCache {
+
+		OversizeCache() {
+			super(1);
+		}
+
+		@Override
+		protected int sizeOf(String key, Bitmap value) {
+			return 2;
+		}
+	}
+
+	private static class RecordingPool implements BitmapPool {
+
+		final List<Bitmap> pooled = new ArrayList<Bitmap>();
+
+		@Override
+		public boolean put(Bitmap bitmap) {
+			pooled.add(bitmap);
+			return true;
+		}
+
+		@Override
+		public Bitmap get(int width, int height, Bitmap.Config config) {
+			return null;
+		}
+
+		@Override
+		public void clear() {
+			pooled.clear();
+		}
+
+		@Override
+		public int getHitCount() {
+			return 0;
+		}
+
+		@Override
+		public int getMissCount() {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.nostra13.universalimageloader.cache.memory.impl.ConcurrentLruMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.SizeClassBitmapPool;
+import com.nostra13.universalimageloader.core.imageaware.ImageViewAware;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+@RunWith(RobolectricTestRunner.class)
+public class ImageLoaderAllocationTest {
+
+	private static final String URI = "http://site.com/image.png";
+	private static final int VIEW_SIZE = 100;
+	private static final int CACHE_SIZE = 1024 * 1024;
+
+	private ImageLoader imageLoader;
+	private ImageView imageView;
+	private ImageViewAware imageAware;
+	private Bitmap bitmap;
+
+	@Before
+	public void setUp() throws Exception {
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application)
+				.memoryCache(new ConcurrentLruMemoryCache(CACHE_SIZE))
+				.bitmapPool(new SizeClassBitmapPool(CACHE_SIZE))
+				.build();
+		imageLoader = ImageLoader.getInstance();
+		imageLoader.init(configuration);
+
+		imageView = new ImageView(RuntimeEnvironment.application);
+		imageView.setLayoutParams(new ViewGroup.LayoutParams(VIEW_SIZE, VIEW_SIZE));
+		imageAware = new ImageViewAware(imageView);
+		bitmap = Bitmap.createBitmap(VIEW_SIZE, VIEW_SIZE, Bitmap.Config.ARGB_8888);
+		imageLoader.getMemoryCache().put(URI + "_" + VIEW_SIZE + "x" + VIEW_SIZE, bitmap);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		imageLoader.destroy();
+	}
+
+	@Test
+	public void testDisplayImage_memoryCacheHitKeepsDrawable() throws Exception {
+		imageLoader.displayImage(URI, imageAware);
+		Drawable drawable = imageView.getDrawable();
+
+		imageLoader.displayImage(URI, imageAware);
+
+		Assertions.assertThat(drawable).isInstanceOf(BitmapDrawable.class);
+		Assertions.assertThat(((BitmapDrawable) drawable).getBitmap()).isSameAs(bitmap);
+		Assertions.assertThat(imageView.getDrawable()).isSameAs(drawable);
+	}
+
+	@Test
+	public void testDisplayImage_steadyStateMemoryCacheHitAllocatesNothing() throws Exception {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+		// Warm up: first display creates key entry, view request and view lease
+		for (int i = 0; i < 100; i++) {
+			imageLoader.displayImage(URI, imageAware);
+		}
+		long threadId = Thread.currentThread().getId();
+		// Calibrate the allocation of measurement itself
+		long start = allocationBean.getThreadAllocatedBytes(threadId);
+		long overhead = allocationBean.getThreadAllocatedBytes(threadId) - start;
+
+		start = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 10000; i++) {
+			imageLoader.displayImage(URI, imageAware);
+		}
+		long allocated = allocationBean.getThreadAllocatedBytes(threadId) - start - overhead;
+
+		Assertions.assertThat(allocated).isLessThanOrEqualTo(0);
+	}
+}
@@ -0,0 +1,72 @@
+package com.nostra13.universalimageloader.core;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+public class MemoryCacheKeyTableTest {
+
+	private static final String URI = "http://site.com/image.png";
+
+	@Test
+	public void testObtain_keyFormat() throws Exception {
+		MemoryCacheKeyTable table = new MemoryCacheKeyTable();
+		MemoryCacheKeyTable.Entry entry = table.obtain(URI, 100, 200);
+
+		Assertions.assertThat(entry.key).isEqualTo(URI + "_100x200");
+		Assertions.assertThat(entry.targetSize.getWidth()).isEqualTo(100);
+		Assertions.assertThat(entry.targetSize.getHeight()).isEqualTo(200);
+	}
+
+	@Test
+	public void testObtain_sameRequestReusesEntry() throws Exception {
+		MemoryCacheKeyTable table = new MemoryCacheKeyTable();
+		MemoryCacheKeyTable.Entry entry = table.obtain(URI, 100, 200);
+
+		Assertions.assertThat(table.obtain(new String(URI), 100, 200)).isSameAs(entry);
+		Assertions.assertThat(table.obtain(URI, 200, 100).key).isEqualTo(URI + "_200x100");
+		Assertions.assertThat(table.obtain(URI + "?v=2", 100, 200).key).isEqualTo(URI + "?v=2_100x200");
+	}
+
+	@Test
+	public void testObtain_collidingKeysReplaceEachOther() throws Exception {
+		MemoryCacheKeyTable table = new MemoryCacheKeyTable(1);
+		MemoryCacheKeyTable.Entry first = table.obtain(URI, 100, 100);
+		MemoryCacheKeyTable.Entry second = table.obtain(URI, 50, 50);
+
+		Assertions.assertThat(second.key).isEqualTo(URI + "_50x50");
+		Assertions.assertThat(table.obtain(URI, 100, 100)).isNotSameAs(first);
+		Assertions.assertThat(table.obtain(URI, 100, 100).key).isEqualTo(first.key);
+	}
+
+	@Test
+	public void testObtain_steadyStateHitAllocatesNothing() throws Exception {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+		MemoryCacheKeyTable table = new MemoryCacheKeyTable();
+		String[] uris = new String[20];
+		for (int i = 0; i < uris.length; i++) {
+			uris[i] = URI + "?id=" + i;
+			table.obtain(uris[i], 120, 120);
+		}
+		long threadId = Thread.currentThread().getId();
+		// Calibrate the allocation of measurement itself
+		long start = allocationBean.getThreadAllocatedBytes(threadId);
+		long overhead = allocationBean.getThreadAllocatedBytes(threadId) - start;
+
+		start = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 10000; i++) {
+			table.obtain(uris[i % uris.length], 120, 120);
+		}
+		long allocated = allocationBean.getThreadAllocatedBytes(threadId) - start - overhead;
+
+		Assertions.assertThat(allocated).isLessThanOrEqualTo(0);
+	}
+}
@@ -0,0 +1,136 @@
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.decode.ImageDecoder;
+import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
+import com.nostra13.universalimageloader.core.process.BitmapProcessor;
+import com.nostra13.universalimageloader.utils.ObjectPool;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/** Counts objects which are created per request by real loading cycles of {@link ImageLoader} */
+@RunWith(RobolectricTestRunner.class)
+public class TaskPoolingTest {
+
+	private static final String URI = "file:///sdcard/image.png";
+	private static final ImageSize TARGET_SIZE = new ImageSize(10, 10);
+	private static final int REQUEST_COUNT = 100;
+
+	private RecordingDecoder decoder;
+	private ImageLoader imageLoader;
+
+	@Before
+	public void setUp() throws Exception {
+		decoder = new RecordingDecoder();
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application)
+				.imageDecoder(decoder)
+				.build();
+		imageLoader = ImageLoader.getInstance();
+		imageLoader.init(configuration);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		imageLoader.destroy();
+	}
+
+	@Test
+	public void testLoadImageSync_decodingInfoIsReused() throws Exception {
+		loadImages(REQUEST_COUNT, null);
+
+		// without pooling every decoding gets its own info
+		Assertions.assertThat(decoder.decodedCount).isEqualTo(REQUEST_COUNT);
+		Assertions.assertThat(decoder.decodingInfos).hasSize(1);
+	}
+
+	@Test
+	public void testLoadImageSync_displayTaskIsReused() throws Exception {
+		loadImages(1, null); // pool has a released task after first request
+
+		PoolCounter displayTasks = new PoolCounter(DisplayBitmapTask.POOL);
+		loadImages(REQUEST_COUNT, null);
+
+		// without pooling every request creates its own task
+		Assertions.assertThat(displayTasks.createdSince()).isZero();
+		Assertions.assertThat(displayTasks.reusedSince()).isEqualTo(REQUEST_COUNT);
+	}
+
+	@Test
+	public void testLoadImageSync_memoryCacheHit_processAndDisplayTasksAreReused() throws Exception {
+		DisplayImageOptions options = new DisplayImageOptions.Builder()
+				.cacheInMemory(true)
+				.postProcessor(new BitmapProcessor() {
+					@Override
+					public Bitmap process(Bitmap bitmap) {
+						return bitmap;
+					}
+				})
+				.build();
+		loadImages(2, options); // first request caches image, second one fills pools after memory cache hit
+
+		PoolCounter processTasks = new PoolCounter(ProcessAndDisplayImageTask.POOL);
+		PoolCounter displayTasks = new PoolCounter(DisplayBitmapTask.POOL);
+		loadImages(REQUEST_COUNT, options);
+
+		Assertions.assertThat(decoder.decodedCount).isEqualTo(1);
+		Assertions.assertThat(processTasks.createdSince()).isZero();
+		Assertions.assertThat(processTasks.reusedSince()).isEqualTo(REQUEST_COUNT);
+		Assertions.assertThat(displayTasks.createdSince()).isZero();
+		Assertions.assertThat(displayTasks.reusedSince()).isEqualTo(REQUEST_COUNT);
+	}
+
+	private void loadImages(int count, DisplayImageOptions options) {
+		for (int i = 0; i < count; i++) {
+			Assertions.assertThat(imageLoader.loadImageSync(URI, TARGET_SIZE, options)).isNotNull();
+		}
+	}
+
+	/** Remembers counters of pool, pools are shared by all tests */
+	private static class PoolCounter {
+
+		private final ObjectPool<?> pool;
+		private final int createdCount;
+		private final int reusedCount;
+
+		PoolCounter(ObjectPool<?> pool) {
+			this.pool = pool;
+			createdCount = pool.getCreatedCount();
+			reusedCount = pool.getReusedCount();
+		}
+
+		int createdSince() {
+			return pool.getCreatedCount() - createdCount;
+		}
+
+		int reusedSince() {
+			return pool.getReusedCount() - reusedCount;
+		}
+	}
+
+	/** Decoder which doesn't read image data and remembers every distinct decoding info it was passed */
+	private static class RecordingDecoder implements ImageDecoder {
+
+		final Set<ImageDecodingInfo> decodingInfos =
+				Collections.newSetFromMap(new IdentityHashMap<ImageDecodingInfo, Boolean>());
+		int decodedCount;
+
+		@Override
+		public Bitmap decode(ImageDecodingInfo imageDecodingInfo) {
+			decodingInfos.add(imageDecodingInfo);
+			decodedCount++;
+			return Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.nostra13.universalimageloader.core;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class ViewRequestMapTest {
+
+	@Test
+	public void testPrepare_sameKeyKeepsGeneration() throws Exception {
+		ViewRequestMap map = new ViewRequestMap();
+		int generation = map.prepare(42, "http://host/image.png_100x100");
+
+		Assertions.assertThat(generation).isNotEqualTo(ViewRequestMap.NO_GENERATION);
+		Assertions.assertThat(map.prepare(42, "http://host/image.png_100x100")).isEqualTo(generation);
+		Assertions.assertThat(map.getGeneration(42)).isEqualTo(generation);
+		Assertions.assertThat(map.getCacheKey(42)).isEqualTo("http://host/image.png_100x100");
+	}
+
+	@Test
+	public void testPrepare_anotherKeyChangesGeneration() throws Exception {
+		ViewRequestMap map = new ViewRequestMap();
+		int generation = map.prepare(42, "http://host/image.png_100x100");
+		int newGeneration = map.prepare(42, "http://host/another.png_100x100");
+
+		Assertions.assertThat(newGeneration).isNotEqualTo(generation);
+		Assertions.assertThat(map.getGeneration(42)).isEqualTo(newGeneration);
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		ViewRequestMap map = new ViewRequestMap();
+		int generation = map.prepare(0, "key");
+		map.remove(0);
+
+		Assertions.assertThat(map.getGeneration(0)).isEqualTo(ViewRequestMap.NO_GENERATION);
+		Assertions.assertThat(map.getCacheKey(0)).isNull();
+		Assertions.assertThat(map.prepare(0, "key")).isNotEqualTo(generation);
+	}
+
+	@Test
+	public void testRemove_ofGeneration() throws Exception {
+		ViewRequestMap map = new ViewRequestMap();
+		int generation = map.prepare(0, "key");
+		int newGeneration = map.prepare(0, "another key");
+
+		Assertions.assertThat(map.remove(0, generation)).isFalse();
+		Assertions.assertThat(map.getGeneration(0)).isEqualTo(newGeneration);
+		Assertions.assertThat(map.remove(0, newGeneration)).isTrue();
+		Assertions.assertThat(map.getGeneration(0)).isEqualTo(ViewRequestMap.NO_GENERATION);
+	}
+
+	@Test
+	public void testManyViews() throws Exception {
+		ViewRequestMap map = new ViewRequestMap();
+		Map<Integer, String> expected = new HashMap<Integer, String>();
+		Random random = new Random(7);
+		for (int i = 0; i < 20000; i++) {
+			int viewId = random.nextInt(500) * 31;
+			if (random.nextInt(3) == 0) {
+				map.remove(viewId);
+				expected.remove(viewId);
+			} else {
+				String key = "key" + random.nextInt(5);
+				map.prepare(viewId, key);
+				expected.put(viewId, key);
+			}
+		}
+		for (int i = 0; i < 500; i++) {
+			Assertions.assertThat(map.getCacheKey(i * 31)).isEqualTo(expected.get(i * 31));
+		}
+	}
+}
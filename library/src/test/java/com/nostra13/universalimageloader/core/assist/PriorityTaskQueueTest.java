@@ -0,0 +1,173 @@
+package com.nostra13.universalimageloader.core.assist;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class PriorityTaskQueueTest {
+
+	@Test
+	public void testPoll_greaterPriorityFirst() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue();
+		TestTask low = new TestTask(-1);
+		TestTask normal = new TestTask(0);
+		TestTask high = new TestTask(10);
+		queue.offer(low);
+		queue.offer(normal);
+		queue.offer(high);
+
+		Assertions.assertThat(queue.poll()).isSameAs(high);
+		Assertions.assertThat(queue.poll()).isSameAs(normal);
+		Assertions.assertThat(queue.poll()).isSameAs(low);
+		Assertions.assertThat(queue.poll()).isNull();
+	}
+
+	@Test
+	public void testPoll_equalPriorityUsesProcessingType() throws Exception {
+		TestTask first = new TestTask(0);
+		TestTask second = new TestTask(0);
+
+		PriorityTaskQueue fifo = new PriorityTaskQueue(QueueProcessingType.FIFO, PriorityTaskQueue.DEFAULT_MAX_WAIT_MILLIS);
+		fifo.offer(first);
+		fifo.offer(second);
+		Assertions.assertThat(fifo.poll()).isSameAs(first);
+
+		PriorityTaskQueue lifo = new PriorityTaskQueue(QueueProcessingType.LIFO, PriorityTaskQueue.DEFAULT_MAX_WAIT_MILLIS);
+		lifo.offer(first);
+		lifo.offer(second);
+		Assertions.assertThat(lifo.poll()).isSameAs(second);
+	}
+
+	@Test
+	public void testUpdatePriority_queuedTaskIsMoved() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue();
+		TestTask prefetch = new TestTask(-10);
+		TestTask thumbnail = new TestTask(0);
+		queue.offer(prefetch);
+		queue.offer(thumbnail);
+
+		prefetch.priority = 10;
+		Assertions.assertThat(queue.updatePriority(prefetch)).isTrue();
+
+		Assertions.assertThat(queue.poll()).isSameAs(prefetch);
+		Assertions.assertThat(queue.updatePriority(prefetch)).isFalse();
+	}
+
+	@Test
+	public void testPoll_oldTaskIsNotStarved() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue(QueueProcessingType.FIFO, 1);
+		TestTask old = new TestTask(-10);
+		queue.offer(old);
+		Thread.sleep(5);
+		queue.offer(new TestTask(10));
+
+		Assertions.assertThat(queue.poll()).isSameAs(old);
+	}
+
+	@Test
+	public void testPoll_lifoOrderOfEqualPriorityIgnoresWaitTime() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue(QueueProcessingType.LIFO, 1);
+		TestTask old = new TestTask(0);
+		queue.offer(old);
+		Thread.sleep(5);
+		TestTask recent = new TestTask(0);
+		queue.offer(recent);
+
+		Assertions.assertThat(queue.poll()).isSameAs(recent);
+		Assertions.assertThat(queue.poll()).isSameAs(old);
+	}
+
+	@Test
+	public void testPoll_lifo_oldTaskOfLowerPriorityIsNotStarved() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue(QueueProcessingType.LIFO, 1);
+		TestTask old = new TestTask(-10);
+		queue.offer(old);
+		Thread.sleep(5);
+		queue.offer(new TestTask(10));
+
+		Assertions.assertThat(queue.poll()).isSameAs(old);
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue();
+		TestTask[] tasks = new TestTask[10];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new TestTask(i);
+			queue.offer(tasks[i]);
+		}
+
+		Assertions.assertThat(queue.remove(tasks[9])).isTrue();
+		Assertions.assertThat(queue.remove(tasks[4])).isTrue();
+		Assertions.assertThat(queue.remove(tasks[4])).isFalse();
+		Assertions.assertThat(queue.size()).isEqualTo(8);
+
+		int[] expected = {8, 7, 6, 5, 3, 2, 1, 0};
+		for (int priority : expected) {
+			Assertions.assertThat(((TestTask) queue.take()).priority).isEqualTo(priority);
+		}
+		Assertions.assertThat(queue.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void testRemove_manyTasks() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue();
+		TestTask[] tasks = new TestTask[100];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new TestTask(i % 7);
+			queue.offer(tasks[i]);
+		}
+		for (int i = 0; i < tasks.length; i++) {
+			if (i % 3 != 1) {
+				Assertions.assertThat(queue.remove(tasks[i])).isTrue();
+			}
+		}
+		Assertions.assertThat(queue.size()).isEqualTo(33);
+		Assertions.assertThat(queue.contains(tasks[0])).isFalse();
+		Assertions.assertThat(queue.contains(tasks[1])).isTrue();
+
+		int previousPriority = Integer.MAX_VALUE;
+		int count = 0;
+		Runnable task;
+		while ((task = queue.poll()) != null) {
+			int priority = ((TestTask) task).priority;
+			Assertions.assertThat(priority).isLessThanOrEqualTo(previousPriority);
+			previousPriority = priority;
+			count++;
+		}
+		Assertions.assertThat(count).isEqualTo(33);
+	}
+
+	@Test
+	public void testOffer_boundedQueue() throws Exception {
+		PriorityTaskQueue queue = new PriorityTaskQueue(QueueProcessingType.FIFO, PriorityTaskQueue.DEFAULT_MAX_WAIT_MILLIS, 2);
+		TestTask first = new TestTask(0);
+		queue.offer(first);
+		queue.offer(new TestTask(0));
+
+		Assertions.assertThat(queue.remainingCapacity()).isEqualTo(0);
+		Assertions.assertThat(queue.offer(new TestTask(0))).isFalse();
+		Assertions.assertThat(queue.offer(first)).isTrue();
+
+		queue.poll();
+		Assertions.assertThat(queue.offer(new TestTask(0))).isTrue();
+		Assertions.assertThat(queue.size()).isEqualTo(2);
+	}
+
+	private static class TestTask implements PrioritizedTask {
+
+		int priority;
+
+		TestTask(int priority) {
+			this.priority = priority;
+		}
+
+		@Override
+		public int getPriority() {
+			return priority;
+		}
+
+		@Override
+		public void run() {
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.nostra13.universalimageloader.core.decode;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory.Options;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.core.DisplayImageOptions;
+import com.nostra13.universalimageloader.core.assist.ImageScaleType;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BaseImageDecoderTest {
+
+	private static final int IMAGE_SIZE = 10;
+
+	@Test
+	public void testDecode_reusesPooledBitmap() throws Exception {
+		Bitmap reusable = createBitmap();
+		SingleBitmapPool pool = new SingleBitmapPool(reusable, true);
+		TestDecoder decoder = new TestDecoder(pool, false);
+
+		Bitmap result = decoder.decode(createDecodingInfo());
+
+		Assertions.assertThat(result).isSameAs(reusable);
+		Assertions.assertThat(decoder.inBitmaps).containsExactly(reusable);
+		Assertions.assertThat(pool.returned).isEmpty();
+	}
+
+	@Test
+	public void testDecode_fallsBackIfPooledBitmapIsRejected() throws Exception {
+		Bitmap reusable = createBitmap();
+		SingleBitmapPool pool = new SingleBitmapPool(reusable, true);
+		TestDecoder decoder = new TestDecoder(pool, true);
+
+		Bitmap result = decoder.decode(createDecodingInfo());
+
+		Assertions.assertThat(result).isSameAs(decoder.decodedBitmap);
+		Assertions.assertThat(decoder.inBitmaps).containsExactly(reusable, null);
+		Assertions.assertThat(pool.returned).containsExactly(reusable);
+		Assertions.assertThat(reusable.isRecycled()).isFalse();
+	}
+
+	@Test
+	public void testDecode_fallbackRecyclesBitmapIfPoolIsFull() throws Exception {
+		Bitmap reusable = createBitmap();
+		SingleBitmapPool pool = new SingleBitmapPool(reusable, false);
+		TestDecoder decoder = new TestDecoder(pool, true);
+
+		Bitmap result = decoder.decode(createDecodingInfo());
+
+		Assertions.assertThat(result).isSameAs(decoder.decodedBitmap);
+		Assertions.assertThat(reusable.isRecycled()).isTrue();
+	}
+
+	@Test
+	public void testDecode_emptyPool() throws Exception {
+		SingleBitmapPool pool = new SingleBitmapPool(null, true);
+		TestDecoder decoder = new TestDecoder(pool, true);
+
+		Bitmap result = decoder.decode(createDecodingInfo());
+
+		Assertions.assertThat(result).isSameAs(decoder.decodedBitmap);
+		Assertions.assertThat(decoder.inBitmaps).containsExactly((Bitmap) null);
+	}
+
+	private static ImageDecodingInfo createDecodingInfo() {
+		DisplayImageOptions options = new DisplayImageOptions.Builder().imageScaleType(ImageScaleType.NONE).build();
+		ImageSize targetSize = new ImageSize(IMAGE_SIZE, IMAGE_SIZE);
+		return new ImageDecodingInfo("key", "uri", "uri", targetSize, ViewScaleType.FIT_INSIDE, null, options);
+	}
+
+	private static Bitmap createBitmap() {
+		return Bitmap.createBitmap(IMAGE_SIZE, IMAGE_SIZE, Bitmap.Config.ARGB_8888);
+	}
+
+	/** Decoder which doesn't touch real image data. It can reject any {@link Options#inBitmap} like old Android does. */
+	private static class TestDecoder extends BaseImageDecoder {
+
+		final Bitmap decodedBitmap = createBitmap();
+		final List<Bitmap> inBitmaps = new ArrayList<Bitmap>();
+		private final boolean rejectInBitmap;
+
+		TestDecoder(BitmapPool bitmapPool, boolean rejectInBitmap) {
+			super(false, bitmapPool);
+			this.rejectInBitmap = rejectInBitmap;
+		}
+
+		@Override
+		protected InputStream getImageStream(ImageDecodingInfo decodingInfo) {
+			return new ByteArrayInputStream(new byte[16]);
+		}
+
+		@Override
+		protected ImageFileInfo defineImageSizeAndRotation(InputStream imageStream, ImageDecodingInfo decodingInfo) {
+			return new ImageFileInfo(new ImageSize(IMAGE_SIZE, IMAGE_SIZE), new ExifInfo());
+		}
+
+		@Override
+		protected Bitmap decodeStream(InputStream imageStream, Options decodingOptions) {
+			Bitmap inBitmap = decodingOptions.inBitmap;
+			inBitmaps.add(inBitmap);
+			if (inBitmap == null) return decodedBitmap;
+			if (rejectInBitmap) throw new IllegalArgumentException("Problem decoding into existing bitmap");
+			return inBitmap;
+		}
+	}
+
+	private static class SingleBitmapPool implements BitmapPool {
+
+		final List<Bitmap> returned = new ArrayList<Bitmap>();
+		private Bitmap bitmap;
+		private final boolean acceptReturned;
+
+		SingleBitmapPool(Bitmap bitmap, boolean acceptReturned) {
+			this.bitmap = bitmap;
+			this.acceptReturned = acceptReturned;
+		}
+
+		@Override
+		public boolean put(Bitmap bitmap) {
+			if (!acceptReturned) return false;
+			returned.add(bitmap);
+			return true;
+		}
+
+		@Override
+		public Bitmap get(int width, int height, Bitmap.Config config) {
+			Bitmap result = bitmap;
+			bitmap = null;
+			return result;
+		}
+
+		@Override
+		public void clear() {
+			bitmap = null;
+		}
+
+		@Override
+		public int getHitCount() {
+			return 0;
+		}
+
+		@Override
+		public int getMissCount() {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.nostra13.universalimageloader.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class ObjectPoolTest {
+
+	private static final int REQUEST_COUNT = 1000;
+
+	@Test
+	public void testAllocationsPerRequest_withoutPooling() throws Exception {
+		TestPool pool = new TestPool(0);
+		runRequests(pool, REQUEST_COUNT);
+
+		Assertions.assertThat(pool.getCreatedCount()).isEqualTo(REQUEST_COUNT);
+		Assertions.assertThat(pool.getReusedCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testAllocationsPerRequest_withPooling() throws Exception {
+		TestPool pool = new TestPool(4);
+		runRequests(pool, REQUEST_COUNT);
+
+		Assertions.assertThat(pool.getCreatedCount()).isEqualTo(1);
+		Assertions.assertThat(pool.getReusedCount()).isEqualTo(REQUEST_COUNT - 1);
+	}
+
+	@Test
+	public void testRelease_poolIsBounded() throws Exception {
+		TestPool pool = new TestPool(2);
+		Object first = pool.acquire();
+		Object second = pool.acquire();
+		Object third = pool.acquire();
+
+		Assertions.assertThat(pool.release(first)).isTrue();
+		Assertions.assertThat(pool.release(second)).isTrue();
+		Assertions.assertThat(pool.release(third)).isFalse();
+		Assertions.assertThat(pool.size()).isEqualTo(2);
+		Assertions.assertThat(pool.acquire()).isSameAs(second);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRelease_twice() throws Exception {
+		TestPool pool = new TestPool(2);
+		Object instance = pool.acquire();
+		pool.release(instance);
+		pool.release(instance);
+	}
+
+	@Test
+	public void testAllocationsPerRequest_concurrentRequests() throws Exception {
+		final int threadCount = 4;
+		final TestPool pool = new TestPool(threadCount);
+		final CountDownLatch finished = new CountDownLatch(threadCount);
+		for (int i = 0; i < threadCount; i++) {
+			new Thread() {
+				@Override
+				public void run() {
+					runRequests(pool, REQUEST_COUNT);
+					finished.countDown();
+				}
+			}.start();
+		}
+		finished.await();
+
+		Assertions.assertThat(pool.getCreatedCount()).isLessThanOrEqualTo(threadCount);
+		Assertions.assertThat(pool.getCreatedCount() + pool.getReusedCount()).isEqualTo(threadCount * REQUEST_COUNT);
+	}
+
+	private static void runRequests(TestPool pool, int count) {
+		for (int i = 0; i < count; i++) {
+			Object instance = pool.acquire();
+			pool.release(instance);
+		}
+	}
+
+	private static class TestPool extends ObjectPool<Object> {
+
+		TestPool(int maxSize) {
+			super(maxSize);
+		}
+
+		@Override
+		protected Object create() {
+			return new Object();
+		}
+	}
+}